@@ -0,0 +1,155 @@
+package com.aim.fictionalpubliclibrary.config;
+
+import com.aim.fictionalpubliclibrary.dtos.BookLookupDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookPageDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.dtos.ErrorDTO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the book DTOs as Protobuf, following the messages of proto/books.proto.
+ * Serialization goes through Jackson with the schema, so the DTOs need no generated classes.
+ * Protobuf has no top-level repeated values, lists of books are wrapped in the BookList and BookRequestList
+ * messages. Types without a message in the schema are left to the other converters.
+ */
+public class BookProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+    public static final MediaType APPLICATION_PROTOBUF = MediaType.parseMediaType(APPLICATION_PROTOBUF_VALUE);
+
+    static final String SCHEMA_LOCATION = "proto/books.proto";
+
+    private final ObjectMapper protobufMapper;
+    private final Map<Class<?>, Binding> bindings;
+    private final Map<Class<?>, Binding> listBindings;
+
+    public BookProtobufHttpMessageConverter() {
+        super(APPLICATION_PROTOBUF, MediaType.parseMediaType("application/protobuf"));
+        // Same modules and features as the JSON, CBOR and Smile converters, only the names differ
+        this.protobufMapper = Jackson2ObjectMapperBuilder.json()
+                .factory(new ProtobufFactory())
+                .propertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+                .build();
+        NativeProtobufSchema schema;
+        try {
+            schema = ProtobufSchemaLoader.std.loadNative(new ClassPathResource(SCHEMA_LOCATION).getURL());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load " + SCHEMA_LOCATION, e);
+        }
+        this.bindings = Map.of(
+                BookResponseDTO.class, binding(schema, "Book", BookResponseDTO.class),
+                BookRequestDTO.class, binding(schema, "BookRequest", BookRequestDTO.class),
+                BookPageDTO.class, binding(schema, "BookPage", BookPageDTO.class),
+                BookLookupDTO.class, binding(schema, "BookLookup", BookLookupDTO.class),
+                ErrorDTO.class, binding(schema, "Error", ErrorDTO.class));
+        this.listBindings = Map.of(
+                BookResponseDTO.class, listBinding(schema, "BookList", BookResponseDTO.class),
+                BookRequestDTO.class, listBinding(schema, "BookRequestList", BookRequestDTO.class));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return bindings.containsKey(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return binding(type) != null && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return binding(type != null ? type : clazz) != null && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return read(binding(type), inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return read(binding(clazz), inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        Binding binding = binding(type != null ? type : object.getClass());
+        if (binding == null) {
+            throw new HttpMessageNotWritableException("No Protobuf message for " + object.getClass().getName());
+        }
+        binding.writer().writeValue(outputMessage.getBody(),
+                binding.list() ? new Books<>((List<?>) object) : object);
+    }
+
+    private Object read(Binding binding, HttpInputMessage inputMessage) throws IOException {
+        if (binding == null) {
+            throw new HttpMessageNotReadableException("No Protobuf message for the requested type", inputMessage);
+        }
+        Object value = binding.reader().readValue(inputMessage.getBody());
+        if (binding.list()) {
+            List<?> books = ((Books<?>) value).books();
+            return books != null ? books : List.of();
+        }
+        return value;
+    }
+
+    private Binding binding(Type type) {
+        ResolvableType resolvableType = ResolvableType.forType(type);
+        Class<?> clazz = resolvableType.resolve();
+        if (clazz == null) {
+            return null;
+        }
+        if (List.class.isAssignableFrom(clazz)) {
+            Class<?> elementClass = resolvableType.asCollection().resolveGeneric(0);
+            return elementClass == null ? null : listBindings.get(elementClass);
+        }
+        return bindings.get(clazz);
+    }
+
+    private Binding binding(NativeProtobufSchema schema, String message, Class<?> clazz) {
+        JavaType javaType = protobufMapper.constructType(clazz);
+        return new Binding(protobufMapper.readerFor(javaType).with(schema.forType(message)),
+                protobufMapper.writerFor(javaType).with(schema.forType(message)), false);
+    }
+
+    private Binding listBinding(NativeProtobufSchema schema, String message, Class<?> elementClass) {
+        JavaType javaType = protobufMapper.getTypeFactory().constructParametricType(Books.class, elementClass);
+        return new Binding(protobufMapper.readerFor(javaType).with(schema.forType(message)),
+                protobufMapper.writerFor(javaType).with(schema.forType(message)), true);
+    }
+
+    /** Reader and writer of one message, list tells whether the message wraps a list of books. */
+    private record Binding(ObjectReader reader, ObjectWriter writer, boolean list) {
+    }
+
+    /** Body of the BookList and BookRequestList messages. */
+    private record Books<T>(List<T> books) {
+    }
+}
@@ -0,0 +1,237 @@
+package com.aim.fictionalpubliclibrary.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Application specific configuration, bound from the "library.*" properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "library")
+public class LibraryProperties {
+
+    private Pagination pagination = new Pagination();
+    private Batch batch = new Batch();
+    private Lookup lookup = new Lookup();
+    private Ingest ingest = new Ingest();
+    private Changes changes = new Changes();
+    private Export export = new Export();
+    private Indexes indexes = new Indexes();
+    private CsvImport csvImport = new CsvImport();
+    private Snapshot snapshot = new Snapshot();
+    private Cache cache = new Cache();
+    private SecondLevelCache secondLevelCache = new SecondLevelCache();
+    private Replica replica = new Replica();
+    private Logging logging = new Logging();
+
+    /**
+     * Settings for the cursor paginated list endpoint.
+     */
+    @Getter
+    @Setter
+    public static class Pagination {
+        /** Page size used when the client does not send a limit. */
+        private int defaultSize = 50;
+        /** Hard upper bound for the page size, larger limits are capped to it. */
+        private int maxSize = 500;
+    }
+
+    /**
+     * Settings for the bulk create endpoint.
+     */
+    @Getter
+    @Setter
+    public static class Batch {
+        /** Number of books inserted per JDBC batch before the persistence context is cleared. */
+        private int chunkSize = 500;
+        /** Maximum number of books accepted in one request. */
+        private int maxSize = 10_000;
+    }
+
+    /**
+     * Settings for the multi-get endpoints.
+     */
+    @Getter
+    @Setter
+    public static class Lookup {
+        /** Number of IDs bound to one IN query, longer lists are split into several queries. */
+        private int chunkSize = 1000;
+        /** Maximum number of IDs accepted in one request. */
+        private int maxSize = 10_000;
+    }
+
+    /**
+     * Settings for the asynchronous create endpoint.
+     */
+    @Getter
+    @Setter
+    public static class Ingest {
+        /** Books that can wait to be written, requests beyond it are rejected with 429. */
+        private int queueCapacity = 10_000;
+        /** Maximum number of queued books written in one transaction. */
+        private int maxBatchSize = 500;
+        /** How long the outcome of a ticket can be looked up after it was last updated. */
+        private Duration ticketRetention = Duration.ofHours(1);
+        /** Maximum number of tickets kept, the oldest are dropped beyond it. */
+        private long maxTickets = 1_000_000;
+        /** How long shutdown waits for the queued books to be written. */
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Settings for the change feed.
+     */
+    @Getter
+    @Setter
+    public static class Changes {
+        /** Number of recent changes kept for clients resuming with Last-Event-ID. */
+        private int replaySize = 10_000;
+        /** How often a comment is sent to every subscriber, so closed connections are noticed. */
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+        /** How long a subscription stays open, the client then reconnects with its Last-Event-ID. */
+        private Duration subscriptionTimeout = Duration.ofMinutes(30);
+        /** Maximum number of subscribers, further subscriptions are rejected with 429. */
+        private int maxSubscribers = 10_000;
+    }
+
+    /**
+     * Settings for the NDJSON export endpoint.
+     */
+    @Getter
+    @Setter
+    public static class Export {
+        /** How long one export may stream, it replaces spring.mvc.async.request-timeout for the export only. */
+        private Duration timeout = Duration.ofHours(1);
+    }
+
+    /**
+     * Settings for the in-memory search, facet and version indexes.
+     */
+    @Getter
+    @Setter
+    public static class Indexes {
+        /** How long a deleted book is remembered, so a change to it applied after the delete is ignored. */
+        private Duration tombstoneRetention = Duration.ofMinutes(1);
+    }
+
+    /**
+     * Settings for the bulk CSV import, run at startup when a file is set.
+     */
+    @Getter
+    @Setter
+    public static class CsvImport {
+        /** CSV file to import at startup, nothing is imported if not set. */
+        private String file;
+        /** Where rejected rows are written, defaults to the imported file's name with ".rejected.csv" appended. */
+        private String errorReport;
+        /** Size of the file ranges parsed in parallel, each is memory-mapped on its own. */
+        private DataSize chunkSize = DataSize.ofMegabytes(64);
+        /** Number of rows written per transaction. */
+        private int batchSize = 5_000;
+        /** Number of ranges parsed and written at the same time, 0 for one per available processor. */
+        private int parallelism = 0;
+        /** Whether the application exits once the import is done, with status 1 if any row was rejected. */
+        private boolean exitWhenDone = true;
+    }
+
+    /**
+     * Settings for the binary snapshot of the catalog, restored at startup and saved at shutdown.
+     */
+    @Getter
+    @Setter
+    public static class Snapshot {
+        /** Snapshot file, snapshots are disabled if not set. */
+        private String file;
+        /** Whether the snapshot is loaded at startup, when the file exists and the database has no books. */
+        private boolean restoreOnStartup = true;
+        /** Whether the catalog is saved to the snapshot at shutdown. */
+        private boolean saveOnShutdown = true;
+        /** Number of books restored per transaction. */
+        private int batchSize = 10_000;
+    }
+
+    /**
+     * Settings for the read-through cache of books by ID.
+     */
+    @Getter
+    @Setter
+    public static class Cache {
+        /** Whether getBookById is served through the cache. */
+        private boolean enabled = true;
+        /** Maximum number of cached books, the least valuable entries are evicted beyond it. */
+        private long maximumSize = 10_000;
+        /** How long a cached book is served before it is read from the database again. */
+        private Duration timeToLive = Duration.ofMinutes(10);
+    }
+
+    /**
+     * Settings for Hibernate's second-level cache, whose regions are JCache caches backed by Caffeine.
+     */
+    @Getter
+    @Setter
+    public static class SecondLevelCache {
+        /** Bounds of each region, keyed by region name. Regions not listed here are created unbounded. */
+        private Map<String, Region> regions = new HashMap<>();
+    }
+
+    /**
+     * Bounds of one second-level cache region.
+     */
+    @Getter
+    @Setter
+    public static class Region {
+        /** Maximum number of entries, the least valuable entries are evicted beyond it. Unbounded if not set. */
+        private Long maximumSize;
+        /** How long an entry is served after it was written. Never expires if not set. */
+        private Duration timeToLive;
+        /** Whether the JCache statistics of the region are recorded, e.g. for JMX. */
+        private boolean statistics = true;
+    }
+
+    /**
+     * Settings for routing read-only transactions to a read replica. Only used when a replica is configured,
+     * the replica's connection pool itself is bound from "library.replica.datasource.*".
+     */
+    @Getter
+    @Setter
+    public static class Replica {
+        /** How long after a write commits read-only transactions still go to the primary, to cover replication lag. */
+        private Duration readYourWritesWindow = Duration.ofSeconds(1);
+        /** How long read-only transactions go to the primary after the replica failed to give a connection. */
+        private Duration retryInterval = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Settings for request logging.
+     */
+    @Getter
+    @Setter
+    public static class Logging {
+        /** Share of requests, between 0 and 1, whose request log line is written when no endpoint rate is set. */
+        private double defaultSampleRate = 1.0;
+        /** Share of requests logged per endpoint, keyed by BookController method name, e.g. getBookById. */
+        private Map<String, Double> sampleRates = new HashMap<>();
+        /** Root appender defined in logback-spring.xml: ASYNC_CONSOLE, or CONSOLE to log on the calling thread. */
+        private String appender = "ASYNC_CONSOLE";
+        private Async async = new Async();
+    }
+
+    /**
+     * Settings of the asynchronous log appender, read by logback-spring.xml at startup.
+     */
+    @Getter
+    @Setter
+    public static class Async {
+        /** Capacity of the bounded queue between the logging threads and the writer thread. */
+        private int queueSize = 8192;
+        /** true drops events when the queue is full, false makes the logging thread wait for free space. */
+        private boolean neverBlock = true;
+    }
+}
@@ -0,0 +1,27 @@
+package com.aim.fictionalpubliclibrary.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics that Spring Boot does not publish on its own.
+ * Request, repository, Hibernate, connection pool and @Timed service timers are auto-configured,
+ * see the Actuator section of application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Replaces Spring Boot's default JSON converter with one that times response serialization.
+     * @param objectMapper the ObjectMapper configured by Spring Boot
+     * @param meterRegistry MeterRegistry
+     * @return TimedJacksonHttpMessageConverter
+     */
+    @Bean
+    public TimedJacksonHttpMessageConverter timedJacksonHttpMessageConverter(ObjectMapper objectMapper,
+                                                                            MeterRegistry meterRegistry) {
+        return new TimedJacksonHttpMessageConverter(objectMapper, meterRegistry);
+    }
+}
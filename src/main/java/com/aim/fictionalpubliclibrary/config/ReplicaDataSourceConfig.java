@@ -0,0 +1,67 @@
+package com.aim.fictionalpubliclibrary.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Read replica support, active when library.replica.datasource.jdbc-url is set.
+ * Replaces Spring Boot's data source with one connection pool per database: the primary, configured by the
+ * usual spring.datasource.* properties, and the replica, configured by library.replica.datasource.* (the
+ * HikariCP settings: jdbc-url, username, password, maximum-pool-size, connection-timeout...).
+ * The application uses a {@link ReplicaRoutingDataSource} over both, behind a LazyConnectionDataSourceProxy.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "library.replica.datasource", name = "jdbc-url")
+public class ReplicaDataSourceConfig {
+
+    /**
+     * Connection pool of the primary database, the one Spring Boot would have created.
+     * @param dataSourceProperties the spring.datasource.* properties
+     * @return HikariDataSource
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Connection pool of the replica database. The pool starts on the first connection, so the application
+     * starts even when the replica is down.
+     * @return HikariDataSource
+     */
+    @Bean
+    @ConfigurationProperties("library.replica.datasource")
+    public HikariDataSource replicaDataSource() {
+        return new HikariDataSource();
+    }
+
+    /**
+     * The data source used by JPA and everything else.
+     * @param primaryDataSource HikariDataSource
+     * @param replicaDataSource HikariDataSource
+     * @param libraryProperties LibraryProperties
+     * @param meterRegistry MeterRegistry
+     * @return DataSource
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+                                 LibraryProperties libraryProperties, MeterRegistry meterRegistry) {
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primaryDataSource,
+                replicaDataSource, libraryProperties.getReplica(), meterRegistry);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,117 @@
+package com.aim.fictionalpubliclibrary.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Routes the connections of read-only transactions to a read replica and every other connection to the primary.
+ * The transaction must be known when the connection is taken, so this data source has to sit behind a
+ * LazyConnectionDataSourceProxy, which only takes the connection at the first statement.
+ * Read-your-writes: for library.replica.read-your-writes-window after any write transaction commits, read-only
+ * transactions go to the primary too, so a client reading right after its write does not miss it on a replica
+ * that lags behind. The window is global, a steady stream of writes keeps every read on the primary.
+ * Fallback: when the replica cannot give a connection, the read goes to the primary, and so do all reads for
+ * library.replica.retry-interval before the replica is tried again.
+ * Connections are counted as "library.datasource.connections" tagged with the target, replica failures as
+ * "library.datasource.replica.failures".
+ */
+@Log4j2
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String CONNECTION_COUNTER = "library.datasource.connections";
+    static final String FAILURE_COUNTER = "library.datasource.replica.failures";
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long readYourWritesNanos;
+    private final long retryNanos;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter replicaFailures;
+    private volatile long lastWriteNanos;
+    private volatile long replicaDownUntilNanos;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, LibraryProperties.Replica settings,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.readYourWritesNanos = settings.getReadYourWritesWindow().toNanos();
+        this.retryNanos = settings.getRetryInterval().toNanos();
+        long now = System.nanoTime();
+        this.lastWriteNanos = now - readYourWritesNanos;
+        this.replicaDownUntilNanos = now;
+        this.primaryConnections = Counter.builder(CONNECTION_COUNTER).tag("target", "primary")
+                .description("Connections taken by transactions, by target database").register(meterRegistry);
+        this.replicaConnections = Counter.builder(CONNECTION_COUNTER).tag("target", "replica")
+                .description("Connections taken by transactions, by target database").register(meterRegistry);
+        this.replicaFailures = Counter.builder(FAILURE_COUNTER)
+                .description("Read-only transactions sent to the primary because the replica failed")
+                .register(meterRegistry);
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Target.PRIMARY;
+        }
+        long now = System.nanoTime();
+        if (now - lastWriteNanos < readYourWritesNanos || now - replicaDownUntilNanos < 0) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Target.REPLICA) {
+            try {
+                Connection connection = replica.getConnection();
+                replicaConnections.increment();
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                replicaDownUntilNanos = System.nanoTime() + retryNanos;
+                replicaFailures.increment();
+                log.warn("Replica unavailable, reading from the primary for the next {} ms",
+                        retryNanos / 1_000_000, e);
+            }
+        } else if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            recordWrite();
+        }
+        Connection connection = primary.getConnection();
+        primaryConnections.increment();
+        return connection;
+    }
+
+    /**
+     * Starts the read-your-writes window now, and again when the write transaction completes, since the
+     * replica can only catch up with it once it is committed.
+     */
+    private void recordWrite() {
+        lastWriteNanos = System.nanoTime();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    lastWriteNanos = System.nanoTime();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.aim.fictionalpubliclibrary.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Regions of Hibernate's second-level cache, see the JPA/Hibernate section of application.properties.
+ * Hibernate gets a Caffeine JCache CacheManager whose regions are created here, bounded as configured by
+ * library.second-level-cache.regions.*, instead of reading Caffeine's own configuration file.
+ * The update timestamps region is always unbounded: an evicted timestamp would let the query cache serve
+ * results older than the last write to a table.
+ * The hit ratio of each configured region is published as "library.hibernate.cache.hit.ratio", tagged by
+ * region, next to the hit and miss counts Spring Boot publishes from the Hibernate statistics.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    static final String HIT_RATIO_GAUGE = "library.hibernate.cache.hit.ratio";
+
+    /**
+     * CacheManager holding the second-level cache regions.
+     * @param libraryProperties LibraryProperties
+     * @return CacheManager
+     */
+    @Bean
+    public CacheManager hibernateCacheManager(LibraryProperties libraryProperties) {
+        CachingProvider cachingProvider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = cachingProvider.getCacheManager(cachingProvider.getDefaultURI(),
+                getClass().getClassLoader());
+        Map<String, LibraryProperties.Region> regions = libraryProperties.getSecondLevelCache().getRegions();
+        regions.forEach((name, region) -> cacheManager.createCache(name, configuration(region)));
+        if (!regions.containsKey(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME)) {
+            cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                    configuration(new LibraryProperties.Region()));
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Hands the CacheManager to Hibernate's JCache region factory.
+     * @param hibernateCacheManager CacheManager
+     * @return HibernatePropertiesCustomizer
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    /**
+     * Hit ratio gauges of the configured regions. The Hibernate statistics are read when the gauges are,
+     * so binding them does not initialize JPA early.
+     * @param entityManagerFactory EntityManagerFactory
+     * @param libraryProperties LibraryProperties
+     * @return MeterBinder
+     */
+    @Bean
+    public MeterBinder secondLevelCacheHitRatios(ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                                                 LibraryProperties libraryProperties) {
+        return meterRegistry -> libraryProperties.getSecondLevelCache().getRegions().keySet().forEach(region ->
+                Gauge.builder(HIT_RATIO_GAUGE, () -> hitRatio(entityManagerFactory.getObject(), region))
+                        .description("Share of second-level cache lookups answered by the region")
+                        .tag("region", region)
+                        .register(meterRegistry));
+    }
+
+    /**
+     * Hits over lookups of a region since startup.
+     * @return double, NaN if the region was not looked up yet or statistics are disabled
+     */
+    static double hitRatio(EntityManagerFactory entityManagerFactory, String region) {
+        CacheRegionStatistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+                .getStatistics().getCacheRegionStatistics(region);
+        if (statistics == null) {
+            return Double.NaN;
+        }
+        long hits = statistics.getHitCount();
+        long lookups = hits + statistics.getMissCount();
+        return lookups == 0 ? Double.NaN : (double) hits / lookups;
+    }
+
+    private static CaffeineConfiguration<Object, Object> configuration(LibraryProperties.Region region) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        // Hibernate only caches immutable entries, copying them on every read and write would buy nothing
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(region.isStatistics());
+        if (region.getMaximumSize() != null) {
+            configuration.setMaximumSize(OptionalLong.of(region.getMaximumSize()));
+        }
+        if (region.getTimeToLive() != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(region.getTimeToLive().toNanos()));
+        }
+        return configuration;
+    }
+}
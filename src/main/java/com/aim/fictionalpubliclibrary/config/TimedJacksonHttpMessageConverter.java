@@ -0,0 +1,43 @@
+package com.aim.fictionalpubliclibrary.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Jackson message converter that times how long writing each JSON response body takes,
+ * so serialization time shows up separately from the service and database timers.
+ * Published as the "library.http.serialization" timer, tagged with the class of the written value.
+ */
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    static final String TIMER_NAME = "library.http.serialization";
+
+    private final MeterRegistry meterRegistry;
+
+    public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        super(objectMapper);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            sample.stop(Timer.builder(TIMER_NAME)
+                    .description("Time spent writing JSON response bodies")
+                    .tag("type", object.getClass().getSimpleName())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.aim.fictionalpubliclibrary.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Spring MVC settings on top of Spring Boot's defaults.
+ * Besides JSON, the CBOR and Smile converters are registered by Spring MVC because their Jackson
+ * dataformats are on the classpath, Protobuf is added here for the book DTOs.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Added last, so JSON stays the default when the Accept header allows any type
+        converters.add(new BookProtobufHttpMessageConverter());
+    }
+}
@@ -1,52 +1,255 @@
 package com.aim.fictionalpubliclibrary.controllers;
 
+import com.aim.fictionalpubliclibrary.config.BookProtobufHttpMessageConverter;
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.dtos.BookFacetsDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookLookupDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookPageDTO;
 import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
 import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookSearchResultDTO;
+import com.aim.fictionalpubliclibrary.dtos.IngestTicketDTO;
+import com.aim.fictionalpubliclibrary.exceptions.InvalidInputException;
+import com.aim.fictionalpubliclibrary.exceptions.PreconditionFailedException;
+import com.aim.fictionalpubliclibrary.logging.RequestLogSampler;
 import com.aim.fictionalpubliclibrary.models.Book;
 import com.aim.fictionalpubliclibrary.services.BookService;
+import com.aim.fictionalpubliclibrary.services.changes.BookChangeFeed;
+import com.aim.fictionalpubliclibrary.services.ingest.BookIngestQueue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/v1/books")
 @Log4j2
 public class BookController {
 
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    static final String SMILE_VALUE = "application/x-jackson-smile";
+    static final String LAST_EVENT_ID = "Last-Event-ID";
+
     private final BookService bookService;
+    private final LibraryProperties libraryProperties;
+    private final ObjectMapper objectMapper;
+    private final RequestLogSampler requestLogSampler;
+    private final BookIngestQueue bookIngestQueue;
+    private final BookChangeFeed bookChangeFeed;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, LibraryProperties libraryProperties, ObjectMapper objectMapper,
+                          RequestLogSampler requestLogSampler, BookIngestQueue bookIngestQueue,
+                          BookChangeFeed bookChangeFeed) {
         this.bookService = bookService;
+        this.libraryProperties = libraryProperties;
+        this.objectMapper = objectMapper;
+        this.requestLogSampler = requestLogSampler;
+        this.bookIngestQueue = bookIngestQueue;
+        this.bookChangeFeed = bookChangeFeed;
     }
 
     /**
-     * API to get all books in the library
-     * target: /v1/books
+     * API to get the books in the library, one page at a time
+     * target: /v1/books?after={cursor}&limit={limit}
      * Method: GET
-     * @return List of BookResponseDTO
+     * @param after opaque cursor returned as nextCursor by the previous page, absent for the first page
+     * @param limit page size, defaults to library.pagination.default-size and is capped at library.pagination.max-size
+     * @param webRequest the request, for its If-None-Match header
+     * @return BookPageDTO
      * Steps:
-     * 1. Call the service layer to get all books
-     * 2. Convert the list of Book entities to list of BookResponseDTO
-     * 3. Return the list of BookResponseDTO with HTTP status 200 (OK)
+     * 1. Decode the cursor and resolve the page size
+     * 2. If the catalog has not changed since the ETag in If-None-Match, return HTTP status 304 (Not Modified)
+     * 3. Call the service layer to get the page of books after the cursor, projected into BookResponseDTO
+     * 4. Return the page with the cursor of the next page (null on the last page) and the catalog ETag
+     *    with HTTP status 200 (OK)
      */
     @GetMapping()
-    public ResponseEntity<List<BookResponseDTO>> getAllBooks() {
-        log.info("Fetching all books from the library");
-        List<BookResponseDTO> books = bookService.getAllBooks()
-                .stream()
-                .map(BookResponseDTO::fromBook)
-                .toList();
-        return ResponseEntity.ok(books);
+    public ResponseEntity<BookPageDTO> getAllBooks(@RequestParam(required = false) String after,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   WebRequest webRequest) {
+        if (requestLogSampler.sample("getAllBooks")) {
+            log.info("Fetching a page of books after cursor: {}", after);
+        }
+        long afterId = BookPageDTO.decodeCursor(after);
+        int pageSize = resolvePageSize(limit);
+        // Read before the books, a change made meanwhile then gives the next request a different ETag
+        String eTag = catalogETag();
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
+        List<BookResponseDTO> books = bookService.getBookResponsesAfter(afterId, pageSize);
+        String nextCursor = books.size() == pageSize
+                ? BookPageDTO.encodeCursor(books.get(books.size() - 1).getId())
+                : null;
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(BookPageDTO.builder()
+                        .books(books)
+                        .nextCursor(nextCursor)
+                        .build());
+    }
+
+    /**
+     * API to get many books by their IDs in one call
+     * target: /v1/books?ids={id},{id},...
+     * Method: GET
+     * @param ids IDs of the books, at most library.lookup.max-size
+     * @param webRequest the request, for its If-None-Match header
+     * @return BookLookupDTO
+     * Steps:
+     * 1. Validate the IDs
+     * 2. If the catalog has not changed since the ETag in If-None-Match, return HTTP status 304 (Not Modified)
+     * 3. Call the service layer to get the books with one query per library.lookup.chunk-size IDs
+     * 4. Return the books in request order and the IDs without a book with the catalog ETag
+     *    and HTTP status 200 (OK)
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<BookLookupDTO> getBooksByIds(@RequestParam List<Long> ids, WebRequest webRequest) {
+        if (requestLogSampler.sample("getBooksByIds")) {
+            log.info("Fetching {} books by ID", ids.size());
+        }
+        validateLookupIds(ids);
+        String eTag = catalogETag();
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(lookupBooks(ids));
+    }
+
+    /**
+     * API to get many books by their IDs, for lists too long for a URL
+     * target: /v1/books/lookup
+     * Method: POST
+     * @param ids array of book IDs, at most library.lookup.max-size
+     * @return BookLookupDTO
+     * Steps:
+     * 1. Validate the IDs
+     * 2. Call the service layer to get the books with one query per library.lookup.chunk-size IDs
+     * 3. Return the books in request order and the IDs without a book with HTTP status 200 (OK)
+     */
+    @PostMapping("/lookup")
+    public ResponseEntity<BookLookupDTO> lookupBooksByIds(@RequestBody List<Long> ids) {
+        if (requestLogSampler.sample("lookupBooksByIds")) {
+            log.info("Looking up {} books by ID", ids == null ? 0 : ids.size());
+        }
+        validateLookupIds(ids);
+        return ResponseEntity.ok(lookupBooks(ids));
+    }
+
+    /**
+     * API to export every book in the library as newline-delimited JSON
+     * target: /v1/books/export
+     * Method: GET
+     * @param webRequest the request, whose asynchronous processing gets the export timeout
+     * @return StreamingResponseBody writing one BookResponseDTO per line
+     * Steps:
+     * 1. Give this request library.export.timeout instead of the default async request timeout
+     * 2. Call the service layer to stream all books
+     * 3. Convert each Book entity to BookResponseDTO and write it as one line
+     * 4. Flush after the first line so the client gets the first byte right away
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBooks(WebRequest webRequest) {
+        boolean logged = requestLogSampler.sample("exportBooks");
+        if (logged) {
+            log.info("Exporting all books from the library");
+        }
+        // Set by Spring MVC before the handler runs, the streaming body then starts asynchronous processing with it
+        AsyncWebRequest asyncWebRequest = WebAsyncUtils.getAsyncManager(webRequest).getAsyncWebRequest();
+        if (asyncWebRequest != null) {
+            asyncWebRequest.setTimeout(libraryProperties.getExport().getTimeout().toMillis());
+        }
+        ObjectWriter writer = objectMapper.writerFor(BookResponseDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                long[] written = {0};
+                bookService.exportBooks(book -> {
+                    try {
+                        writer.writeValue(generator, BookResponseDTO.fromBook(book));
+                        generator.writeRaw('\n');
+                        if (written[0]++ == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (logged) {
+                    log.info("Exported {} books", written[0]);
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * API to follow the committed changes to the books as Server-Sent Events
+     * target: /v1/books/changes
+     * Method: GET
+     * @param lastEventId ID of the last event received, sent by clients when they reconnect
+     * @return SseEmitter sending one BookChangeDTO per event, with its sequence number as the event ID
+     * Steps:
+     * 1. Validate the Last-Event-ID, it must be a sequence number
+     * 2. Subscribe to the change feed, if it is full respond with HTTP status 429 (Too Many Requests)
+     * 3. Send the buffered changes after Last-Event-ID, or a "reset" event if they are no longer buffered,
+     *    then every change as it is committed
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getBookChanges(@RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+        if (requestLogSampler.sample("getBookChanges")) {
+            log.info("Subscribing to book changes after: {}", lastEventId);
+        }
+        Long after = null;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                after = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                throw new InvalidInputException("Last-Event-ID must be a sequence number");
+            }
+        }
+        return bookChangeFeed.subscribe(after);
     }
 
     /**
@@ -64,8 +267,11 @@ public class BookController {
      */
     @PostMapping
     public ResponseEntity<BookResponseDTO> createBook(@RequestBody BookRequestDTO bookRequestDTO) {
-        log.info("Creating a new book in the library: {}", bookRequestDTO);
-        log.debug("Validating the book request DTO");
+        if (requestLogSampler.sample("createBook")) {
+            log.info("Creating a new book in the library");
+        }
+        // The DTO is only formatted when debug is enabled
+        log.debug("Validating the book request DTO: {}", bookRequestDTO);
         BookRequestDTO.validate(bookRequestDTO);
         log.debug("Validation successful");
         Book bookToBeSaved = BookRequestDTO.toBook(bookRequestDTO);
@@ -74,23 +280,233 @@ public class BookController {
         return new ResponseEntity<>(bookResponseDTO, HttpStatus.CREATED);
     }
 
+    /**
+     * API to queue a new book to be created in the background
+     * target: /v1/books/async
+     * Method: POST
+     * @param bookRequestDTO BookRequestDTO
+     * @return IngestTicketDTO
+     * Steps:
+     * 1. Validate the input BookRequestDTO
+     * 2. Put the book on the ingest queue, if it is full respond with HTTP status 429 (Too Many Requests)
+     * 3. Return the PENDING ticket and its location with HTTP status 202 (Accepted)
+     */
+    @PostMapping("/async")
+    public ResponseEntity<IngestTicketDTO> createBookAsync(@RequestBody BookRequestDTO bookRequestDTO) {
+        if (requestLogSampler.sample("createBookAsync")) {
+            log.info("Queueing a new book for the library");
+        }
+        BookRequestDTO.validate(bookRequestDTO);
+        IngestTicketDTO ticket = IngestTicketDTO.fromTicket(bookIngestQueue.submit(bookRequestDTO));
+        return ResponseEntity.accepted()
+                .location(URI.create("/v1/books/async/" + ticket.getTicketId()))
+                .body(ticket);
+    }
+
+    /**
+     * API to get the outcome of a book queued through /v1/books/async
+     * target: /v1/books/async/{ticketId}
+     * Method: GET
+     * @param ticketId String
+     * @return IngestTicketDTO
+     * Steps:
+     * 1. Look up the ticket, unknown and expired tickets respond with HTTP status 404 (Not Found)
+     * 2. Return the ticket, with the book ID once created or the error once failed, with HTTP status 200 (OK)
+     */
+    @GetMapping("/async/{ticketId}")
+    public ResponseEntity<IngestTicketDTO> getIngestTicket(@PathVariable String ticketId) {
+        if (requestLogSampler.sample("getIngestTicket")) {
+            log.info("Fetching ingest ticket: {}", ticketId);
+        }
+        return ResponseEntity.ok(IngestTicketDTO.fromTicket(bookIngestQueue.getTicket(ticketId)));
+    }
+
+    /**
+     * API to create many books in the library in one request
+     * target: /v1/books/batch
+     * Method: POST
+     * @param bookRequestDTOs JSON array of BookRequestDTO, or the same as CBOR, Smile or Protobuf (BookRequestList)
+     * @return List of BookResponseDTO
+     * Steps:
+     * 1. Validate every BookRequestDTO, reporting the errors of all invalid items together
+     *    (at most library.batch.max-size items are accepted)
+     * 2. Convert the BookRequestDTOs to Book entities
+     * 3. Call the service layer to insert the books in JDBC batches
+     * 4. Return the created books, in request order, with HTTP status 201 (Created)
+     */
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            SMILE_VALUE, BookProtobufHttpMessageConverter.APPLICATION_PROTOBUF_VALUE})
+    public ResponseEntity<List<BookResponseDTO>> createBooks(@RequestBody List<BookRequestDTO> bookRequestDTOs) {
+        if (requestLogSampler.sample("createBooks")) {
+            log.info("Creating {} books in the library", bookRequestDTOs == null ? 0 : bookRequestDTOs.size());
+        }
+        int maxSize = libraryProperties.getBatch().getMaxSize();
+        if (bookRequestDTOs != null && bookRequestDTOs.size() > maxSize) {
+            throw new InvalidInputException("At most " + maxSize + " books can be created in one request");
+        }
+        BookRequestDTO.validateAll(bookRequestDTOs);
+        List<Book> booksToBeSaved = bookRequestDTOs.stream()
+                .map(BookRequestDTO::toBook)
+                .toList();
+        List<BookResponseDTO> books = bookService.createBooks(booksToBeSaved)
+                .stream()
+                .map(BookResponseDTO::fromBook)
+                .toList();
+        return new ResponseEntity<>(books, HttpStatus.CREATED);
+    }
+
+    /**
+     * API to create many books in the library from newline-delimited JSON
+     * target: /v1/books/batch
+     * Method: POST
+     * @param body NDJSON request body, one BookRequestDTO per line
+     * @return List of BookResponseDTO
+     * Steps:
+     * 1. Read one BookRequestDTO per line, up to library.batch.max-size
+     * 2. Continue as for the JSON array variant
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<BookResponseDTO>> createBooksFromNdjson(InputStream body) throws IOException {
+        int maxSize = libraryProperties.getBatch().getMaxSize();
+        List<BookRequestDTO> bookRequestDTOs = new ArrayList<>();
+        try (MappingIterator<BookRequestDTO> lines = objectMapper.readerFor(BookRequestDTO.class).readValues(body)) {
+            while (lines.hasNextValue()) {
+                if (bookRequestDTOs.size() == maxSize) {
+                    throw new InvalidInputException("At most " + maxSize + " books can be created in one request");
+                }
+                bookRequestDTOs.add(lines.nextValue());
+            }
+        }
+        return createBooks(bookRequestDTOs);
+    }
+
     /**
      * API to get a book by its ID
      * target: /v1/books/{id}
      * Method: GET
      * @param id Long
+     * @param webRequest the request, for its If-None-Match header
      * @return BookResponseDTO
      * Steps:
-     * 1. Call the service layer to get the book by ID
-     * 2. Convert the Book entity to BookResponseDTO
-     * 3. Return the BookResponseDTO with HTTP status 200 (OK)
+     * 1. If the in-memory version of the book matches the ETag in If-None-Match,
+     *    return HTTP status 304 (Not Modified) without loading the book
+     * 2. Call the service layer to get the book by ID, projected into BookResponseDTO
+     * 3. Return the BookResponseDTO with its ETag and HTTP status 200 (OK)
+     *    (304 if it matches If-None-Match after all, without writing the body)
      */
     @GetMapping("/{id}")
-    public ResponseEntity<BookResponseDTO> getBookById(@PathVariable Long id) {
-        log.info("Fetching book with ID: {}", id);
-        Book book = bookService.getBookById(id);
+    public ResponseEntity<BookResponseDTO> getBookById(@PathVariable Long id, WebRequest webRequest) {
+        if (requestLogSampler.sample("getBookById")) {
+            log.info("Fetching book with ID: {}", id);
+        }
+        Long version = bookService.getBookVersion(id);
+        if (version != null && webRequest.checkNotModified(bookETag(id, version))) {
+            return notModified(bookETag(id, version));
+        }
+        BookResponseDTO bookResponseDTO = bookService.getBookResponseById(id);
+        return ResponseEntity.ok()
+                .eTag(bookETag(id, bookResponseDTO.getVersion()))
+                .body(bookResponseDTO);
+    }
+
+    /**
+     * API to get a book by its ISBN
+     * target: /v1/books/isbn/{isbn}
+     * Method: GET
+     * @param isbn ISBN-10 or ISBN-13, with or without hyphens
+     * @return BookResponseDTO
+     * Steps:
+     * 1. Call the service layer to get the book by its normalized ISBN-13
+     * 2. Convert the Book entity to BookResponseDTO
+     * 3. Return the BookResponseDTO with its ETag and HTTP status 200 (OK)
+     *    (304 if it matches If-None-Match, without writing the body)
+     */
+    @GetMapping("/isbn/{isbn}")
+    public ResponseEntity<BookResponseDTO> getBookByIsbn(@PathVariable String isbn) {
+        if (requestLogSampler.sample("getBookByIsbn")) {
+            log.info("Fetching book with ISBN: {}", isbn);
+        }
+        Book book = bookService.getBookByIsbn(isbn);
         BookResponseDTO bookResponseDTO = BookResponseDTO.fromBook(book);
-        return new ResponseEntity<>(bookResponseDTO, HttpStatus.OK);
+        return ResponseEntity.ok()
+                .eTag(bookETag(book.getId(), book.getVersion()))
+                .body(bookResponseDTO);
+    }
+
+    /**
+     * API to search books by the words of their title and author
+     * target: /v1/books/search?q={query}&page={page}&size={size}
+     * Method: GET
+     * @param q words to search for, a book matches when its title or author contains all of them
+     * @param page zero-based page number
+     * @param size page size, defaults to library.pagination.default-size and is capped at library.pagination.max-size
+     * @param webRequest the request, for its If-None-Match header
+     * @return BookSearchResultDTO
+     * Steps:
+     * 1. If the catalog has not changed since the ETag in If-None-Match, return HTTP status 304 (Not Modified)
+     * 2. Call the service layer to get the requested page of ranked matches
+     * 3. Convert the Book entities to BookResponseDTO
+     * 4. Return the matches and their total count with the catalog ETag and HTTP status 200 (OK)
+     */
+    @GetMapping("/search")
+    public ResponseEntity<BookSearchResultDTO> searchBooks(@RequestParam String q,
+                                                           @RequestParam(defaultValue = "0") int page,
+                                                           @RequestParam(required = false) Integer size,
+                                                           WebRequest webRequest) {
+        if (requestLogSampler.sample("searchBooks")) {
+            log.info("Searching books for: {}", q);
+        }
+        if (page < 0) {
+            throw new InvalidInputException("Page must not be negative");
+        }
+        int pageSize = resolvePageSize(size);
+        if (pageSize <= 0) {
+            throw new InvalidInputException("Size must be a positive integer");
+        }
+        String eTag = catalogETag();
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
+        Page<Book> books = bookService.searchBooks(q, PageRequest.of(page, pageSize));
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(BookSearchResultDTO.builder()
+                        .query(q)
+                        .totalHits(books.getTotalElements())
+                        .page(page)
+                        .books(books.stream().map(BookResponseDTO::fromBook).toList())
+                        .build());
+    }
+
+    /**
+     * API to get the number of books per genre, author and publication decade
+     * target: /v1/books/facets?limit={limit}
+     * Method: GET
+     * @param limit maximum number of genres and of authors returned (the largest ones), absent for all of them
+     * @param webRequest the request, for its If-None-Match header
+     * @return BookFacetsDTO
+     * Steps:
+     * 1. If the catalog has not changed since the ETag in If-None-Match, return HTTP status 304 (Not Modified)
+     * 2. Call the service layer to get the counts from the in-memory facet index
+     * 3. Order genres and authors by count and decades chronologically, keeping at most limit genres and authors
+     * 4. Return the counts with the catalog ETag and HTTP status 200 (OK)
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<BookFacetsDTO> getBookFacets(@RequestParam(required = false) Integer limit,
+                                                       WebRequest webRequest) {
+        if (requestLogSampler.sample("getBookFacets")) {
+            log.info("Fetching book facets");
+        }
+        if (limit != null && limit <= 0) {
+            throw new InvalidInputException("Limit must be a positive integer");
+        }
+        String eTag = catalogETag();
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(BookFacetsDTO.fromFacets(bookService.getBookFacets(), limit));
     }
 
     /**
@@ -99,20 +515,59 @@ public class BookController {
      * Method: PUT
      * @param id Long
      * @param bookRequestDTO BookRequestDTO
+     * @param ifMatch optional ETag of the book the update is based on
      * @return BookResponseDTO
      * Steps:
-     * 1. Convert BookRequestDTO to Book entity
-     * 2. Call the service layer to update the book by ID
-     * 3. Convert the updated Book entity to BookResponseDTO
-     * 4. Return the BookResponseDTO with HTTP status 200 (OK)
+     * 1. Validate the input BookRequestDTO, like on create
+     * 2. Convert BookRequestDTO to Book entity and If-Match to the expected version of the book
+     * 3. Call the service layer to update the book by ID, if it changed since the ETag in If-Match
+     *    respond with HTTP status 412 (Precondition Failed)
+     * 4. Convert the updated Book entity to BookResponseDTO
+     * 5. Return the BookResponseDTO with its new ETag and HTTP status 200 (OK)
      */
     @PutMapping("/{id}")
     public ResponseEntity<BookResponseDTO> updateBook(@PathVariable Long id,
-                                                      @RequestBody BookRequestDTO bookRequestDTO) {
-        log.info("Updating book with ID: {}", id);
-        Book book = bookService.updateBook(id, BookRequestDTO.toBook(bookRequestDTO));
+                                                      @RequestBody BookRequestDTO bookRequestDTO,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                      String ifMatch) {
+        if (requestLogSampler.sample("updateBook")) {
+            log.info("Updating book with ID: {}", id);
+        }
+        // The DTO is only formatted when debug is enabled
+        log.debug("Validating the book request DTO: {}", bookRequestDTO);
+        BookRequestDTO.validate(bookRequestDTO);
+        log.debug("Validation successful");
+        Book book = bookService.updateBook(id, BookRequestDTO.toBook(bookRequestDTO), expectedVersion(id, ifMatch));
         BookResponseDTO bookResponseDTO = BookResponseDTO.fromBook(book);
-        return new ResponseEntity<>(bookResponseDTO, HttpStatus.OK);
+        return ResponseEntity.ok()
+                .eTag(bookETag(book.getId(), book.getVersion()))
+                .body(bookResponseDTO);
+    }
+
+    /**
+     * API to partially update a book by its ID with a JSON Merge Patch (RFC 7396)
+     * target: /v1/books/{id}
+     * Method: PATCH
+     * @param id Long
+     * @param patch JSON object holding only the fields to change
+     * @param ifMatch optional ETag of the book the patch is based on
+     * @return ResponseEntity with HTTP status 204 (No Content)
+     * Steps:
+     * 1. Validate the patch and convert it to a Book holding only the changed fields
+     * 2. Call the service layer to update those columns in a single statement, which only applies if the book
+     *    still matches the ETag in If-Match, otherwise respond with HTTP status 412 (Precondition Failed)
+     * 3. Return HTTP status 204 (No Content)
+     */
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patchBook(@PathVariable Long id, @RequestBody JsonNode patch,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                          String ifMatch) {
+        if (requestLogSampler.sample("patchBook")) {
+            log.info("Patching book with ID: {}", id);
+        }
+        BookRequestDTO changes = BookRequestDTO.fromMergePatch(patch);
+        bookService.patchBook(id, BookRequestDTO.toBook(changes), expectedVersion(id, ifMatch));
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
     /**
@@ -120,16 +575,94 @@ public class BookController {
      * target: /v1/books/{id}
      * Method: DELETE
      * @param id Long
+     * @param ifMatch optional ETag of the book the deletion is based on
      * @return ResponseEntity with HTTP status 204 (No Content)
      * Steps:
-     * 1. Call the service layer to delete the book by ID
+     * 1. Call the service layer to delete the book by ID in a single statement, which only applies if the book
+     *    still matches the ETag in If-Match, otherwise respond with HTTP status 412 (Precondition Failed)
      * 2. Return HTTP status 204 (No Content)
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteBook(@PathVariable Long id) {
-        log.info("Deleting book with ID: {}", id);
-        bookService.deleteBook(id);
+    public ResponseEntity<Void> deleteBook(@PathVariable Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                           String ifMatch) {
+        if (requestLogSampler.sample("deleteBook")) {
+            log.info("Deleting book with ID: {}", id);
+        }
+        bookService.deleteBook(id, expectedVersion(id, ifMatch));
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    private void validateLookupIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new InvalidInputException("At least one ID is required");
+        }
+        int maxSize = libraryProperties.getLookup().getMaxSize();
+        if (ids.size() > maxSize) {
+            throw new InvalidInputException("At most " + maxSize + " books can be fetched in one request");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidInputException("IDs cannot be null");
+        }
+    }
+
+    private BookLookupDTO lookupBooks(List<Long> ids) {
+        List<BookResponseDTO> books = bookService.getBookResponsesByIds(ids);
+        Set<Long> foundIds = new HashSet<>();
+        books.forEach(book -> foundIds.add(book.getId()));
+        List<Long> missingIds = new LinkedHashSet<>(ids).stream()
+                .filter(id -> !foundIds.contains(id))
+                .toList();
+        return BookLookupDTO.builder()
+                .books(books)
+                .missingIds(missingIds)
+                .build();
+    }
+
+    /**
+     * Strong ETag of a book, its representation only changes when its version does.
+     */
+    private static String bookETag(long id, long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * Version of the book in an If-Match ETag, null without the header or for "*" (any existing version).
+     * An ETag this book never had, weak, of another book or of a list, can never match, so it fails right away.
+     */
+    private static Long expectedVersion(long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        String prefix = "\"" + id + "-";
+        if (eTag.startsWith(prefix) && eTag.endsWith("\"") && eTag.length() > prefix.length() + 1) {
+            try {
+                return Long.parseLong(eTag.substring(prefix.length(), eTag.length() - 1));
+            } catch (NumberFormatException e) {
+                // Falls through to the failed precondition
+            }
+        }
+        throw new PreconditionFailedException("Book", "id", id);
+    }
+
+    /**
+     * ETag of responses computed from the whole catalog, it changes with every change to any book.
+     */
+    private String catalogETag() {
+        return "\"catalog-" + bookService.getCatalogVersion() + "\"";
+    }
+
+    private static <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+
+    private int resolvePageSize(Integer limit) {
+        LibraryProperties.Pagination pagination = libraryProperties.getPagination();
+        if (limit == null) {
+            return pagination.getDefaultSize();
+        }
+        return Math.min(limit, pagination.getMaxSize());
+    }
+
 }
@@ -0,0 +1,55 @@
+package com.aim.fictionalpubliclibrary.dtos;
+
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.services.events.BookChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for one committed book change, as sent by the change feed.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookChangeDTO {
+    /** Position of the change in the feed, also sent as the event ID. */
+    private long sequence;
+    /** CREATED, UPDATED, PATCHED or DELETED. */
+    private String type;
+    /** ID of the changed book. */
+    private long bookId;
+    /** The book as written. For PATCHED only the changed fields are set (publishedYear 0 when unchanged), null for DELETED. */
+    private BookResponseDTO book;
+
+    /**
+     * Converts a committed book change to a BookChangeDTO.
+     *
+     * @param sequence the position of the change in the feed
+     * @param event the change to convert
+     * @return the corresponding BookChangeDTO
+     */
+    public static BookChangeDTO fromEvent(long sequence, BookChangedEvent event) {
+        return BookChangeDTO.builder()
+                .sequence(sequence)
+                .type(event.type().name())
+                .bookId(event.id())
+                .book(event.type() == BookChangedEvent.Type.PATCHED ? changes(event.id(), event.book())
+                        : BookResponseDTO.fromBook(event.book()))
+                .build();
+    }
+
+    private static BookResponseDTO changes(long id, Book changes) {
+        return BookResponseDTO.builder()
+                .id(id)
+                .title(changes.getTitle())
+                .author(changes.getAuthor())
+                .isbn(changes.getIsbn())
+                .publishedYear(changes.getPublishedYear())
+                .genre(changes.getGenre())
+                .version(changes.getVersion())
+                .build();
+    }
+}
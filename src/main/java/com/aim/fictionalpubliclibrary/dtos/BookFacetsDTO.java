@@ -0,0 +1,49 @@
+package com.aim.fictionalpubliclibrary.dtos;
+
+import com.aim.fictionalpubliclibrary.services.indexes.BookFacetIndex;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Data Transfer Object for the number of books per genre, author and decade.
+ * Genres and authors are ordered by count, largest first, decades chronologically.
+ */
+@Data
+@Builder
+public class BookFacetsDTO {
+    private Map<String, Long> genres;
+    private Map<String, Long> authors;
+    private Map<Integer, Long> decades;
+
+    /** Converts facet counts to a BookFacetsDTO.
+     *
+     * @param facets the facet counts
+     * @param limit maximum number of genres and of authors returned, null for all of them
+     * @return BookFacetsDTO
+     */
+    public static BookFacetsDTO fromFacets(BookFacetIndex.Facets facets, Integer limit) {
+        return BookFacetsDTO.builder()
+                .genres(largestFirst(facets.genres(), limit))
+                .authors(largestFirst(facets.authors(), limit))
+                .decades(toOrderedMap(facets.decades().entrySet().stream().sorted(Map.Entry.comparingByKey())))
+                .build();
+    }
+
+    private static Map<String, Long> largestFirst(Map<String, Long> counts, Integer limit) {
+        Stream<Map.Entry<String, Long>> entries = counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()));
+        return toOrderedMap(limit == null ? entries : entries.limit(limit));
+    }
+
+    private static <K> Map<K, Long> toOrderedMap(Stream<Map.Entry<K, Long>> entries) {
+        Map<K, Long> ordered = new LinkedHashMap<>();
+        entries.forEach(entry -> ordered.put(entry.getKey(), entry.getValue()));
+        return ordered;
+    }
+}
@@ -0,0 +1,22 @@
+package com.aim.fictionalpubliclibrary.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for the result of fetching many books by their IDs.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookLookupDTO {
+    /** The books found, in the order their IDs were requested, each book once. */
+    private List<BookResponseDTO> books;
+    /** The requested IDs without a book, in request order. */
+    private List<Long> missingIds;
+}
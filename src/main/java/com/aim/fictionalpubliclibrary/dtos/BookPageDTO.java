@@ -0,0 +1,54 @@
+package com.aim.fictionalpubliclibrary.dtos;
+
+import com.aim.fictionalpubliclibrary.exceptions.InvalidInputException;
+import lombok.Builder;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Data Transfer Object for a page of books returned by the cursor paginated list endpoint.
+ */
+@Data
+@Builder
+public class BookPageDTO {
+    private List<BookResponseDTO> books;
+    /** Opaque cursor to pass as "after" to fetch the next page, null when this is the last page. */
+    private String nextCursor;
+
+    /**
+     * Encodes the ID of the last book of a page into an opaque cursor.
+     *
+     * @param lastId the ID of the last book of the page
+     * @return the cursor
+     */
+    public static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encodeCursor(long)}.
+     *
+     * @param cursor the cursor, may be null or empty for the first page
+     * @return the ID to continue after, 0 for the first page
+     * @throws InvalidInputException if the cursor is malformed
+     */
+    public static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            long lastId = Long.parseLong(decoded);
+            if (lastId < 0) {
+                throw new InvalidInputException("Invalid cursor: " + cursor);
+            }
+            return lastId;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -2,16 +2,23 @@ package com.aim.fictionalpubliclibrary.dtos;
 
 import com.aim.fictionalpubliclibrary.exceptions.InvalidInputException;
 import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.utils.IsbnUtils;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.Builder;
 import lombok.Data;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /** Data Transfer Object for Book requests. */
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class BookRequestDTO {
+    private static final Set<String> TEXT_FIELDS = Set.of("title", "author", "isbn", "genre");
+
     private String title;
     private String author;
     private String isbn;
@@ -51,6 +58,8 @@ public class BookRequestDTO {
         }
         if (bookRequestDTO.getIsbn() == null || bookRequestDTO.getIsbn().isEmpty()) {
             errors.add("ISBN is required");
+        } else if (!IsbnUtils.isValid(bookRequestDTO.getIsbn())) {
+            errors.add("ISBN must be a valid ISBN-10 or ISBN-13");
         }
         if (bookRequestDTO.getPublishedYear() <= 0) {
             errors.add("Published year must be a positive integer");
@@ -62,4 +71,75 @@ public class BookRequestDTO {
             throw new InvalidInputException(String.join(", ", errors));
         }
     }
+
+    /** Validates every BookRequestDTO of a bulk request and reports the errors of all items at once.
+     *
+     * @param bookRequestDTOs the BookRequestDTOs to validate
+     * @throws InvalidInputException if the list is empty or any item is invalid, with one message per invalid item
+     */
+    public static void validateAll(List<BookRequestDTO> bookRequestDTOs) {
+        if (bookRequestDTOs == null || bookRequestDTOs.isEmpty()) {
+            throw new InvalidInputException("At least one book is required");
+        }
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < bookRequestDTOs.size(); i++) {
+            try {
+                validate(bookRequestDTOs.get(i));
+            } catch (InvalidInputException e) {
+                errors.add("Item " + i + ": " + e.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new InvalidInputException(String.join("; ", errors));
+        }
+    }
+
+    /** Converts and validates a JSON Merge Patch (RFC 7396) document into a partial BookRequestDTO.
+     * Fields absent from the patch stay null (or 0 for publishedYear), which toBook and Book.updateBook
+     * treat as unchanged. Every field of a book is required, so none of them can be removed with null.
+     *
+     * @param patch the merge patch document
+     * @return a BookRequestDTO holding only the patched fields
+     * @throws InvalidInputException if the patch is not an object, is empty, or has unknown, null or invalid fields
+     */
+    public static BookRequestDTO fromMergePatch(JsonNode patch) {
+        if (patch == null || !patch.isObject() || patch.isEmpty()) {
+            throw new InvalidInputException("Merge patch must be a non-empty JSON object");
+        }
+        BookRequestDTOBuilder builder = BookRequestDTO.builder();
+        List<String> errors = new ArrayList<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = patch.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = field.getKey();
+            JsonNode value = field.getValue();
+            if (value.isNull()) {
+                errors.add(name + " cannot be removed");
+            } else if (TEXT_FIELDS.contains(name)) {
+                if (!value.isTextual() || value.textValue().isEmpty()) {
+                    errors.add(name + " must be a non-empty string");
+                } else if (name.equals("isbn") && !IsbnUtils.isValid(value.textValue())) {
+                    errors.add("ISBN must be a valid ISBN-10 or ISBN-13");
+                } else {
+                    switch (name) {
+                        case "title" -> builder.title(value.textValue());
+                        case "author" -> builder.author(value.textValue());
+                        case "isbn" -> builder.isbn(value.textValue());
+                        default -> builder.genre(value.textValue());
+                    }
+                }
+            } else if (name.equals("publishedYear")) {
+                if (!value.canConvertToInt() || !value.isIntegralNumber() || value.intValue() <= 0) {
+                    errors.add("Published year must be a positive integer");
+                } else {
+                    builder.publishedYear(value.intValue());
+                }
+            } else {
+                errors.add("Unknown field: " + name);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new InvalidInputException(String.join(", ", errors));
+        }
+        return builder.build();
+    }
 }
@@ -1,14 +1,21 @@
 package com.aim.fictionalpubliclibrary.dtos;
 
 import com.aim.fictionalpubliclibrary.models.Book;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * Data Transfer Object for sending book details in responses.
+ * Read queries project straight into it through its all-args constructor, clients can read it back
+ * through the no-args one.
  */
 @Data
 @Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class BookResponseDTO {
     private long id;
     private String title;
@@ -16,6 +23,9 @@ public class BookResponseDTO {
     private String isbn;
     private int publishedYear;
     private String genre;
+    /** Only used to derive the ETag of the response, not part of the body. */
+    @JsonIgnore
+    private long version;
 
     /**
      * Converts a Book entity to a BookResponseDTO.
@@ -34,6 +44,7 @@ public class BookResponseDTO {
                 .isbn(book.getIsbn())
                 .publishedYear(book.getPublishedYear())
                 .genre(book.getGenre())
+                .version(book.getVersion())
                 .build();
     }
 }
@@ -0,0 +1,18 @@
+package com.aim.fictionalpubliclibrary.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for a page of ranked search results.
+ */
+@Data
+@Builder
+public class BookSearchResultDTO {
+    private String query;
+    private long totalHits;
+    private int page;
+    private List<BookResponseDTO> books;
+}
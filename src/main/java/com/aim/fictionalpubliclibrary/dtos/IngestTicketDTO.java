@@ -0,0 +1,39 @@
+package com.aim.fictionalpubliclibrary.dtos;
+
+import com.aim.fictionalpubliclibrary.services.ingest.BookIngestQueue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for the state of a book created through the asynchronous endpoint.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngestTicketDTO {
+    private String ticketId;
+    /** PENDING, CREATED or FAILED. */
+    private String status;
+    /** ID of the created book, set once the status is CREATED. */
+    private Long bookId;
+    /** Why the book was not created, set once the status is FAILED. */
+    private String error;
+
+    /**
+     * Converts a ticket of the ingest queue to an IngestTicketDTO.
+     *
+     * @param ticket the ticket to convert
+     * @return the corresponding IngestTicketDTO
+     */
+    public static IngestTicketDTO fromTicket(BookIngestQueue.Ticket ticket) {
+        return IngestTicketDTO.builder()
+                .ticketId(ticket.id())
+                .status(ticket.status().name())
+                .bookId(ticket.bookId())
+                .error(ticket.error())
+                .build();
+    }
+}
@@ -0,0 +1,15 @@
+package com.aim.fictionalpubliclibrary.exceptions;
+
+/**
+ * Custom exception to be thrown when a resource would duplicate an existing one.
+ */
+public class DuplicateResourceException extends RuntimeException {
+
+    public DuplicateResourceException(String resourceName, String fieldName, Object fieldValue) {
+        super(String.format("%s already exists with %s : '%s'", resourceName, fieldName, fieldValue));
+    }
+
+    public DuplicateResourceException(String resourceName, String fieldName) {
+        super(String.format("%s already exists with %s", resourceName, fieldName));
+    }
+}
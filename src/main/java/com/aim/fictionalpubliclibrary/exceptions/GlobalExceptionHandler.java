@@ -1,17 +1,35 @@
 package com.aim.fictionalpubliclibrary.exceptions;
 
 import com.aim.fictionalpubliclibrary.dtos.ErrorDTO;
+import com.aim.fictionalpubliclibrary.models.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 
+import java.util.Locale;
+
 /**
  * Global exception handler for the application.
+ * Every handled exception increments the "library.http.errors" counter, tagged with the response status
+ * and the exception class.
  */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    static final String ERROR_COUNTER = "library.http.errors";
+
+    private final MeterRegistry meterRegistry;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     /**
      * Handles ResourceNotFoundException and returns a 404 response.
      * @param ex ResourceNotFoundException
@@ -21,6 +39,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ErrorDTO> handleResourceNotFoundException(
             ResourceNotFoundException ex, WebRequest request) {
+        countError(404, ex);
         ErrorDTO errorDTO = new ErrorDTO();
         errorDTO.setMessage(ex.getMessage());
         errorDTO.setDetails(request.getDescription(false));
@@ -36,6 +55,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorDTO> handleGenericException(
             Exception ex, WebRequest request) {
+        countError(500, ex);
         ErrorDTO errorDTO = new ErrorDTO();
         errorDTO.setMessage(ex.getMessage());
         errorDTO.setDetails(request.getDescription(false));
@@ -51,10 +71,111 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(InvalidInputException.class)
     public ResponseEntity<ErrorDTO> handleInvalidInputException(
             InvalidInputException ex, WebRequest request) {
+        countError(400, ex);
         ErrorDTO errorDTO = new ErrorDTO();
         errorDTO.setMessage(ex.getMessage());
         errorDTO.setDetails(request.getDescription(false));
         return ResponseEntity.status(400).body(errorDTO);
     }
 
+    /**
+     * Handles DuplicateResourceException and returns a 409 response.
+     * @param ex DuplicateResourceException
+     * @param request web request
+     * @return ResponseEntity with ErrorDTO and 409 status
+     */
+    @ExceptionHandler(DuplicateResourceException.class)
+    public ResponseEntity<ErrorDTO> handleDuplicateResourceException(
+            DuplicateResourceException ex, WebRequest request) {
+        countError(409, ex);
+        ErrorDTO errorDTO = new ErrorDTO();
+        errorDTO.setMessage(ex.getMessage());
+        errorDTO.setDetails(request.getDescription(false));
+        return ResponseEntity.status(409).body(errorDTO);
+    }
+
+    /**
+     * Handles DataIntegrityViolationException. A violation of the unique ISBN-13 index means another request
+     * saved a book with the same ISBN between the service's duplicate check and this write, so it gets the
+     * same 409 response as the check. Any other violation is a 500 response.
+     * @param ex DataIntegrityViolationException
+     * @param request web request
+     * @return ResponseEntity with ErrorDTO and 409 or 500 status
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorDTO> handleDataIntegrityViolationException(
+            DataIntegrityViolationException ex, WebRequest request) {
+        if (violatesIsbnIndex(ex)) {
+            return handleDuplicateResourceException(new DuplicateResourceException("Book", "isbn"), request);
+        }
+        return handleGenericException(ex, request);
+    }
+
+    /**
+     * Handles PreconditionFailedException and returns a 412 response.
+     * @param ex PreconditionFailedException
+     * @param request web request
+     * @return ResponseEntity with ErrorDTO and 412 status
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorDTO> handlePreconditionFailedException(
+            PreconditionFailedException ex, WebRequest request) {
+        countError(412, ex);
+        ErrorDTO errorDTO = new ErrorDTO();
+        errorDTO.setMessage(ex.getMessage());
+        errorDTO.setDetails(request.getDescription(false));
+        return ResponseEntity.status(412).body(errorDTO);
+    }
+
+    /**
+     * Handles OptimisticLockingFailureException, raised when the versioned UPDATE of an entity matched no row
+     * because another transaction changed it first, and returns a 412 response.
+     * @param ex OptimisticLockingFailureException
+     * @param request web request
+     * @return ResponseEntity with ErrorDTO and 412 status
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorDTO> handleOptimisticLockingFailureException(
+            OptimisticLockingFailureException ex, WebRequest request) {
+        countError(412, ex);
+        ErrorDTO errorDTO = new ErrorDTO();
+        errorDTO.setMessage("The resource was changed by another request");
+        errorDTO.setDetails(request.getDescription(false));
+        return ResponseEntity.status(412).body(errorDTO);
+    }
+
+    /**
+     * Handles TooManyRequestsException and returns a 429 response with a Retry-After header.
+     * @param ex TooManyRequestsException
+     * @param request web request
+     * @return ResponseEntity with ErrorDTO and 429 status
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorDTO> handleTooManyRequestsException(
+            TooManyRequestsException ex, WebRequest request) {
+        countError(429, ex);
+        ErrorDTO errorDTO = new ErrorDTO();
+        errorDTO.setMessage(ex.getMessage());
+        errorDTO.setDetails(request.getDescription(false));
+        return ResponseEntity.status(429)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(errorDTO);
+    }
+
+    private static boolean violatesIsbnIndex(DataIntegrityViolationException ex) {
+        // The constraint name comes from Hibernate when its dialect can extract it, else from the driver's message
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            String name = cause instanceof ConstraintViolationException violation
+                    ? violation.getConstraintName() : cause.getMessage();
+            if (name != null && name.toLowerCase(Locale.ROOT).contains(Book.ISBN13_UNIQUE_INDEX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void countError(int status, Exception ex) {
+        meterRegistry.counter(ERROR_COUNTER, "status", String.valueOf(status),
+                "exception", ex.getClass().getSimpleName()).increment();
+    }
 }
@@ -0,0 +1,11 @@
+package com.aim.fictionalpubliclibrary.exceptions;
+
+/**
+ * Custom exception to be thrown when a resource changed since the version the client based its change on.
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String resourceName, String fieldName, Object fieldValue) {
+        super(String.format("%s with %s : '%s' was changed by another request", resourceName, fieldName, fieldValue));
+    }
+}
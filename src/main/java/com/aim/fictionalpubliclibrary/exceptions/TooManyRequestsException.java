@@ -0,0 +1,20 @@
+package com.aim.fictionalpubliclibrary.exceptions;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Custom exception to be thrown when a request cannot be taken on now but may succeed later.
+ */
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+    /** How long the client should wait before retrying. */
+    private final Duration retryAfter;
+
+    public TooManyRequestsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,37 @@
+package com.aim.fictionalpubliclibrary.logging;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which requests write their request log line, per endpoint.
+ * Rates come from library.logging.sample-rates (keyed by BookController method name) and fall back to
+ * library.logging.default-sample-rate. Only the request log lines are sampled, errors are always logged.
+ */
+@Component
+public class RequestLogSampler {
+
+    private final Map<String, Double> sampleRates;
+    private final double defaultSampleRate;
+
+    public RequestLogSampler(LibraryProperties libraryProperties) {
+        this.sampleRates = Map.copyOf(libraryProperties.getLogging().getSampleRates());
+        this.defaultSampleRate = libraryProperties.getLogging().getDefaultSampleRate();
+    }
+
+    /**
+     * Draws whether the current request of the endpoint is logged.
+     * @param endpoint BookController method name
+     * @return true if the request log line should be written
+     */
+    public boolean sample(String endpoint) {
+        double rate = sampleRates.getOrDefault(endpoint, defaultSampleRate);
+        if (rate >= 1.0) {
+            return true;
+        }
+        return rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.CreatedDate;
@@ -15,7 +16,7 @@ import java.util.Date;
 
 /**
  * BaseModel is a mapped superclass that provides common fields for all entities.
- * It includes an auto-generated ID, creation timestamp, and last modified timestamp.
+ * It includes an auto-generated ID, creation timestamp, last modified timestamp and version.
  * The class is annotated with @EntityListeners to enable auditing features.
  */
 @Getter
@@ -24,7 +25,9 @@ import java.util.Date;
 @EntityListeners(AuditingEntityListener.class)
 public class BaseModel {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // A pooled sequence lets Hibernate assign IDs up front and batch the inserts,
+    // which IDENTITY columns rule out.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private long id;
     
     @CreatedDate
@@ -32,4 +35,9 @@ public class BaseModel {
     
     @LastModifiedDate
     private Date lastModifiedAt;
+
+    // Incremented by every update, which only applies if the row still has the version that was read
+    // (UPDATE ... WHERE id = ? AND version = ?), so concurrent writers are detected without holding locks.
+    @Version
+    private long version;
 }
@@ -1,22 +1,53 @@
 package com.aim.fictionalpubliclibrary.models;
 
+import com.aim.fictionalpubliclibrary.utils.IsbnUtils;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Entity representing a Book in the library.
+ * Loaded books are kept in the "book" region of the second-level cache. READ_WRITE locks an entry while its
+ * book is being changed, so concurrent loads go to the database instead of reading a stale copy.
  */
 @Getter
 @Setter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Book.CACHE_REGION)
+@Table(indexes = @Index(name = Book.ISBN13_UNIQUE_INDEX, columnList = "isbn13", unique = true))
 public class Book extends BaseModel {
+
+    /** Second-level cache region of the entity. */
+    public static final String CACHE_REGION = "book";
+
+    /** Unique index on isbn13, also named in db/schema-h2.sql. */
+    public static final String ISBN13_UNIQUE_INDEX = "ux_book_isbn13";
+
     private String title;
     private String author;
     private String isbn;
+    /** Canonical ISBN-13 form of isbn, null if isbn is not a valid ISBN. Kept in sync by setIsbn. */
+    @Setter(AccessLevel.NONE)
+    private String isbn13;
     private int publishedYear;
     private String genre;
 
+    /**
+     * Sets the ISBN as given and derives the normalized ISBN-13 used for lookups and uniqueness.
+     * @param isbn ISBN-10 or ISBN-13, with or without hyphens
+     */
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+        this.isbn13 = IsbnUtils.toIsbn13(isbn);
+    }
+
     public static Book updateBook(Book book, Book updatedBook) {
         if (updatedBook.getTitle() != null) {
             book.setTitle(updatedBook.getTitle());
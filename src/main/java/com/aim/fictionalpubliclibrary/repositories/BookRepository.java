@@ -1,17 +1,34 @@
 package com.aim.fictionalpubliclibrary.repositories;
 
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
 import com.aim.fictionalpubliclibrary.models.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * BookRepository interface for CRUD operations on Book entities.
  * Extends JpaRepository to provide standard database operations.
  */
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
+
+    /**
+     * Query cache region of the list and lookup queries. Hibernate drops their cached results whenever
+     * a transaction writing to the book table commits.
+     */
+    String QUERY_CACHE_REGION = "book-queries";
 
     /**
      * Find a book by its ID.
@@ -20,4 +37,124 @@ public interface BookRepository extends JpaRepository<Book, Long> {
      */
     @Override
     Optional<Book> findById(Long id);
+
+    /**
+     * Find a book by its ID, projected straight into a BookResponseDTO without loading the entity.
+     * @param id Long
+     * @return Optional<BookResponseDTO>
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
+    @Query("SELECT new com.aim.fictionalpubliclibrary.dtos.BookResponseDTO("
+            + "b.id, b.title, b.author, b.isbn, b.publishedYear, b.genre, b.version) "
+            + "FROM Book b WHERE b.id = :id")
+    Optional<BookResponseDTO> findResponseById(@Param("id") Long id);
+
+    /**
+     * Find the books with the given IDs, projected straight into BookResponseDTOs, in no particular order.
+     * IDs without a book are skipped.
+     * @param ids Collection of Long
+     * @return List<BookResponseDTO>
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
+    @Query("SELECT new com.aim.fictionalpubliclibrary.dtos.BookResponseDTO("
+            + "b.id, b.title, b.author, b.isbn, b.publishedYear, b.genre, b.version) "
+            + "FROM Book b WHERE b.id IN :ids")
+    List<BookResponseDTO> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Find the next page of books ordered by ID, starting after the given ID, projected straight into
+     * BookResponseDTOs. Uses the primary key index, so the cost does not grow with the page offset.
+     * @param afterId ID of the last book of the previous page, 0 for the first page
+     * @param limit maximum number of books to return
+     * @return List<BookResponseDTO>
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
+    @Query("SELECT new com.aim.fictionalpubliclibrary.dtos.BookResponseDTO("
+            + "b.id, b.title, b.author, b.isbn, b.publishedYear, b.genre, b.version) "
+            + "FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<BookResponseDTO> findResponsePageAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Stream all books ordered by ID with a forward-only, read-only cursor.
+     * The stream must be consumed inside a transaction and closed after use.
+     * Bypasses the second-level cache, so a pass over the whole catalog does not evict the books in use.
+     * @return Stream<Book>
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    Stream<Book> streamAllOrderById();
+
+    /**
+     * Find a book by its normalized ISBN-13, using the unique ISBN-13 index.
+     * @param isbn13 String
+     * @return Optional<Book>
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
+    Optional<Book> findByIsbn13(String isbn13);
+
+    /**
+     * Check whether a book with the given normalized ISBN-13 exists.
+     * @param isbn13 String
+     * @return boolean
+     */
+    boolean existsByIsbn13(String isbn13);
+
+    /**
+     * Find which of the given normalized ISBN-13s already belong to a book.
+     * @param isbn13s Collection of String
+     * @return List<String> the ISBN-13s that exist
+     */
+    @Query("SELECT b.isbn13 FROM Book b WHERE b.isbn13 IN :isbn13s")
+    List<String> findExistingIsbn13s(@Param("isbn13s") Collection<String> isbn13s);
+
+    /**
+     * Check whether another book already has the given normalized ISBN-13.
+     * @param isbn13 String
+     * @param id ID of the book to ignore
+     * @return boolean
+     */
+    boolean existsByIsbn13AndIdNot(String isbn13, long id);
+
+    /**
+     * Find the version of a book, without loading it.
+     * @param id Long
+     * @return Optional<Long>
+     */
+    @Query("SELECT b.version FROM Book b WHERE b.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
+
+    /**
+     * Delete a book by its ID in a single DELETE statement, without loading it first.
+     * @param id Long
+     * @return number of deleted rows, 0 if no book has that ID
+     */
+    @Modifying
+    @Query("DELETE FROM Book b WHERE b.id = :id")
+    int deleteBookById(@Param("id") long id);
+
+    /**
+     * Delete a book by its ID in a single DELETE statement, only if it still has the given version.
+     * @param id Long
+     * @param version the version the caller last saw
+     * @return number of deleted rows, 0 if no book has that ID or it has another version
+     */
+    @Modifying
+    @Query("DELETE FROM Book b WHERE b.id = :id AND b.version = :version")
+    int deleteBookByIdAndVersion(@Param("id") long id, @Param("version") long version);
 }
@@ -0,0 +1,40 @@
+package com.aim.fictionalpubliclibrary.repositories;
+
+import com.aim.fictionalpubliclibrary.models.Book;
+
+import java.util.List;
+
+/**
+ * Custom BookRepository operations that Spring Data cannot derive.
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * Update only the fields that are set on the given changes, in a single UPDATE statement,
+     * without loading the book first. A null field, or a publishedYear of 0, is left unchanged.
+     * lastModifiedAt is set to the one of the changes, or to the current time if it is null.
+     * The version is incremented, when an expected version is given the row is only updated if it still has it.
+     * @param id ID of the book to update
+     * @param changes Book holding the new values
+     * @param expectedVersion the version the caller last saw, null to update whatever the version
+     * @return number of updated rows, 0 if no book has that ID (or it has another version)
+     */
+    int patchBook(long id, Book changes, Long expectedVersion);
+
+    /**
+     * Insert books with the IDs, versions and timestamps they already have, e.g. books saved in a snapshot,
+     * as one JDBC batch. The persistence context, ID generation, auditing and the second-level cache are
+     * bypassed, so the caller has to evict cached books and queries and move the ID sequence past the new IDs.
+     * @param books books to insert, their IDs must not be in use
+     */
+    void insertBooks(List<Book> books);
+
+    /**
+     * Restart the ID sequence so that books saved from now on get IDs above the given one.
+     * Only meant to run before any book was saved by this application, as IDs the pooled optimizer
+     * already holds in memory are still handed out.
+     * @param id the largest ID in use
+     * @throws IllegalStateException if book IDs do not come from a database sequence
+     */
+    void restartIdSequenceAfter(long id);
+}
@@ -0,0 +1,112 @@
+package com.aim.fictionalpubliclibrary.repositories;
+
+import com.aim.fictionalpubliclibrary.models.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Implementation of {@link BookRepositoryCustom}, picked up by Spring Data through its name.
+ */
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    // Table and column names as the default physical naming strategy derives them from the entity
+    private static final String INSERT_BOOK = "INSERT INTO book (id, version, created_at, last_modified_at,"
+            + " title, author, isbn, isbn13, published_year, genre) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patchBook(long id, Book changes, Long expectedVersion) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Book> update = criteriaBuilder.createCriteriaUpdate(Book.class);
+        Root<Book> book = update.from(Book.class);
+        if (changes.getTitle() != null) {
+            update.set(book.<String>get("title"), changes.getTitle());
+        }
+        if (changes.getAuthor() != null) {
+            update.set(book.<String>get("author"), changes.getAuthor());
+        }
+        if (changes.getIsbn() != null) {
+            update.set(book.<String>get("isbn"), changes.getIsbn());
+            update.set(book.<String>get("isbn13"), changes.getIsbn13());
+        }
+        if (changes.getPublishedYear() != 0) {
+            update.set(book.<Integer>get("publishedYear"), changes.getPublishedYear());
+        }
+        if (changes.getGenre() != null) {
+            update.set(book.<String>get("genre"), changes.getGenre());
+        }
+        // Bulk updates bypass the auditing entity listener and the version increment
+        update.set(book.<Date>get("lastModifiedAt"),
+                changes.getLastModifiedAt() != null ? changes.getLastModifiedAt() : new Date());
+        update.set(book.<Long>get("version"), criteriaBuilder.sum(book.<Long>get("version"), 1L));
+        if (expectedVersion == null) {
+            update.where(criteriaBuilder.equal(book.get("id"), id));
+        } else {
+            update.where(criteriaBuilder.equal(book.get("id"), id),
+                    criteriaBuilder.equal(book.get("version"), expectedVersion));
+        }
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public void insertBooks(List<Book> books) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_BOOK)) {
+                for (Book book : books) {
+                    statement.setLong(1, book.getId());
+                    statement.setLong(2, book.getVersion());
+                    setTimestamp(statement, 3, book.getCreatedAt());
+                    setTimestamp(statement, 4, book.getLastModifiedAt());
+                    statement.setString(5, book.getTitle());
+                    statement.setString(6, book.getAuthor());
+                    statement.setString(7, book.getIsbn());
+                    statement.setString(8, book.getIsbn13());
+                    statement.setInt(9, book.getPublishedYear());
+                    statement.setString(10, book.getGenre());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public void restartIdSequenceAfter(long id) {
+        SessionFactoryImplementor sessionFactory = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class);
+        if (!(sessionFactory.getMappingMetamodel().getEntityDescriptor(Book.class).getGenerator()
+                instanceof SequenceStyleGenerator generator) || !generator.getDatabaseStructure().isPhysicalSequence()) {
+            throw new IllegalStateException("Book IDs do not come from a database sequence");
+        }
+        DatabaseStructure sequence = generator.getDatabaseStructure();
+        String name = sessionFactory.getSqlStringGenerationContext().format(sequence.getPhysicalName());
+        // The pooled optimizer hands out the increment-size IDs up to each value it gets from the sequence,
+        // so the next value has to be a whole increment above the largest ID in use
+        long next = id + sequence.getIncrementSize();
+        entityManager.createNativeQuery("ALTER SEQUENCE " + name + " RESTART WITH " + next).executeUpdate();
+    }
+
+    private static void setTimestamp(PreparedStatement statement, int index, Date date) throws SQLException {
+        if (date == null) {
+            statement.setNull(index, Types.TIMESTAMP);
+        } else {
+            statement.setTimestamp(index, new Timestamp(date.getTime()));
+        }
+    }
+}
@@ -1,21 +1,48 @@
 package com.aim.fictionalpubliclibrary.services;
 
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
 import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.services.indexes.BookFacetIndex;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * BookService interface defining methods for managing Book entities.
  */
 public interface BookService {
 
-    List<Book> getAllBooks();
+    List<BookResponseDTO> getBookResponsesAfter(long afterId, int limit);
+
+    void exportBooks(Consumer<Book> consumer);
 
     Book getBookById(Long id);
 
+    BookResponseDTO getBookResponseById(Long id);
+
+    List<BookResponseDTO> getBookResponsesByIds(List<Long> ids);
+
+    Book getBookByIsbn(String isbn);
+
+    Page<Book> searchBooks(String query, Pageable pageable);
+
+    BookFacetIndex.Facets getBookFacets();
+
+    Long getBookVersion(Long id);
+
+    String getCatalogVersion();
+
     Book createBook(Book bookToBeSaved);
 
-    Book updateBook(Long id, Book book);
+    List<Book> createBooks(List<Book> booksToBeSaved);
+
+    void restoreBooks(List<Book> booksToBeRestored);
+
+    Book updateBook(Long id, Book book, Long expectedVersion);
+
+    void patchBook(Long id, Book changes, Long expectedVersion);
 
-    void deleteBook(Long id);
+    void deleteBook(Long id, Long expectedVersion);
 }
@@ -0,0 +1,257 @@
+package com.aim.fictionalpubliclibrary.services.changes;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.dtos.BookChangeDTO;
+import com.aim.fictionalpubliclibrary.exceptions.TooManyRequestsException;
+import com.aim.fictionalpubliclibrary.services.events.BookChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events feed of committed book changes, so clients can follow the catalog instead of polling it.
+ * Every change gets the next sequence number, sent as the event ID, and is kept in a bounded replay buffer:
+ * a client reconnecting with Last-Event-ID gets the changes it missed before the live ones. When they are no
+ * longer buffered, or the ID comes from before a restart, it gets a "reset" event instead, telling it to
+ * reload the catalog and go on from the reset event's ID.
+ * Sequence numbers start from the startup time in milliseconds times 1024, so they keep increasing across
+ * restarts and stay exact as JavaScript numbers.
+ * Subscribers are asynchronous requests, an idle one holds a connection but no thread. A single dispatcher
+ * thread owns the buffer and writes to every subscriber, so a change is serialized once and the events of a
+ * subscriber are never interleaved. Comments are sent every heartbeat interval to detect closed connections.
+ * The number of subscribers is published as "library.changes.subscribers".
+ */
+@Service
+@Log4j2
+public class BookChangeFeed implements SmartLifecycle {
+
+    static final String SUBSCRIBERS_GAUGE = "library.changes.subscribers";
+    static final String EVENTS_COUNTER = "library.changes.events";
+    static final String RESET_EVENT = "reset";
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(5);
+
+    private final ObjectMapper objectMapper;
+    private final Duration heartbeatInterval;
+    private final Duration subscriptionTimeout;
+    private final int maxSubscribers;
+    private final ScheduledExecutorService dispatcher;
+    private final Counter events;
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private volatile boolean running;
+
+    // Only used on the dispatcher thread
+    private final Set<SseEmitter> subscribers = new HashSet<>();
+    private final Set<ResponseBodyEmitter.DataWithMediaType>[] buffer;
+    private final long firstSequence;
+    private long lastSequence;
+
+    public BookChangeFeed(ObjectMapper objectMapper, LibraryProperties libraryProperties, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        LibraryProperties.Changes changes = libraryProperties.getChanges();
+        this.heartbeatInterval = changes.getHeartbeatInterval();
+        this.subscriptionTimeout = changes.getSubscriptionTimeout();
+        this.maxSubscribers = changes.getMaxSubscribers();
+        @SuppressWarnings("unchecked")
+        Set<ResponseBodyEmitter.DataWithMediaType>[] buffer = new Set[changes.getReplaySize()];
+        this.buffer = buffer;
+        this.lastSequence = System.currentTimeMillis() << 10;
+        this.firstSequence = lastSequence + 1;
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("book-change-feed").factory());
+        Gauge.builder(SUBSCRIBERS_GAUGE, subscriberCount, AtomicInteger::get)
+                .description("Clients subscribed to the book change feed")
+                .register(meterRegistry);
+        this.events = Counter.builder(EVENTS_COUNTER)
+                .description("Book changes sent through the change feed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to the changes committed from now on, after the ones missed since lastEventId.
+     * @param lastEventId sequence number of the last change the client got, null to only get new changes
+     * @return SseEmitter
+     * @throws TooManyRequestsException if the feed has max-subscribers subscribers or is shutting down
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        if (!running) {
+            throw new TooManyRequestsException("Book change feed is not running", RETRY_AFTER);
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new TooManyRequestsException("Book change feed has too many subscribers", RETRY_AFTER);
+        }
+        SseEmitter emitter = new SseEmitter(subscriptionTimeout.toMillis());
+        Runnable unsubscribe = () -> dispatch(() -> unsubscribe(emitter));
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        dispatch(() -> attach(emitter, lastEventId));
+        return emitter;
+    }
+
+    /**
+     * Sends a committed book change to every subscriber.
+     * @param event BookChangedEvent
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        dispatch(() -> publish(event));
+    }
+
+    /**
+     * Waits until every task handed to the dispatcher so far has run.
+     */
+    void awaitDispatched() throws InterruptedException, ExecutionException {
+        dispatcher.submit(() -> { }).get();
+    }
+
+    private void publish(BookChangedEvent event) {
+        long sequence = ++lastSequence;
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(BookChangeDTO.fromEvent(sequence, event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize change " + sequence, e);
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> change = SseEmitter.event()
+                .id(Long.toString(sequence))
+                .data(json)
+                .build();
+        buffer[index(sequence)] = change;
+        events.increment();
+        broadcast(change);
+    }
+
+    private void attach(SseEmitter emitter, Long lastEventId) {
+        try {
+            // Commits the response, so the client knows it is subscribed before the first change
+            emitter.send(SseEmitter.event().comment("subscribed"));
+            if (lastEventId != null) {
+                replay(emitter, lastEventId);
+            }
+            subscribers.add(emitter);
+        } catch (IOException | IllegalStateException e) {
+            subscriberCount.decrementAndGet();
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void replay(SseEmitter emitter, long lastEventId) throws IOException {
+        long oldestBuffered = Math.max(firstSequence, lastSequence - buffer.length + 1);
+        if (lastEventId > lastSequence || lastEventId < oldestBuffered - 1) {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(lastSequence))
+                    .name(RESET_EVENT)
+                    .data(Long.toString(lastSequence)));
+            return;
+        }
+        for (long sequence = lastEventId + 1; sequence <= lastSequence; sequence++) {
+            emitter.send(buffer[index(sequence)]);
+        }
+    }
+
+    private void heartbeat() {
+        broadcast(SseEmitter.event().comment("heartbeat").build());
+    }
+
+    private void broadcast(Set<ResponseBodyEmitter.DataWithMediaType> data) {
+        List<SseEmitter> failed = null;
+        for (SseEmitter subscriber : subscribers) {
+            try {
+                subscriber.send(data);
+            } catch (IOException | IllegalStateException e) {
+                if (failed == null) {
+                    failed = new ArrayList<>();
+                }
+                failed.add(subscriber);
+            }
+        }
+        if (failed != null) {
+            failed.forEach(subscriber -> {
+                unsubscribe(subscriber);
+                subscriber.complete();
+            });
+        }
+    }
+
+    private void unsubscribe(SseEmitter emitter) {
+        if (subscribers.remove(emitter)) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) Math.floorMod(sequence, (long) buffer.length);
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatcher.execute(() -> runLogged(task));
+        } catch (RejectedExecutionException e) {
+            log.debug("Book change feed is stopped, dropping a task");
+        }
+    }
+
+    private static void runLogged(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.error("Book change feed failed", e);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        dispatcher.scheduleWithFixedDelay(() -> runLogged(this::heartbeat), heartbeatInterval.toMillis(),
+                heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ends every subscription, clients reconnect with their Last-Event-ID once the application is back.
+     * Runs before the web server's graceful shutdown, which would otherwise wait for the open subscriptions.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        dispatch(() -> {
+            subscribers.forEach(SseEmitter::complete);
+            subscribers.clear();
+            subscriberCount.set(0);
+        });
+        dispatcher.shutdown();
+        try {
+            if (!dispatcher.awaitTermination(5, TimeUnit.SECONDS)) {
+                dispatcher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
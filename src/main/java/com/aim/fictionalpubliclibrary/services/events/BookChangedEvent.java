@@ -0,0 +1,39 @@
+package com.aim.fictionalpubliclibrary.services.events;
+
+import com.aim.fictionalpubliclibrary.models.Book;
+
+/**
+ * Application event published by the service layer whenever a book is created, updated or deleted.
+ * Listeners that keep derived state in memory should use @TransactionalEventListener,
+ * so they only see changes that were committed.
+ *
+ * @param type what happened to the book
+ * @param id the ID of the book
+ * @param book the book as written, only the changed fields for patches (see {@link Book#updateBook}),
+ *             null for deletions
+ */
+public record BookChangedEvent(Type type, long id, Book book) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        PATCHED,
+        DELETED
+    }
+
+    public static BookChangedEvent created(Book book) {
+        return new BookChangedEvent(Type.CREATED, book.getId(), book);
+    }
+
+    public static BookChangedEvent updated(Book book) {
+        return new BookChangedEvent(Type.UPDATED, book.getId(), book);
+    }
+
+    public static BookChangedEvent patched(long id, Book changes) {
+        return new BookChangedEvent(Type.PATCHED, id, changes);
+    }
+
+    public static BookChangedEvent deleted(long id) {
+        return new BookChangedEvent(Type.DELETED, id, null);
+    }
+}
@@ -1,38 +1,114 @@
 package com.aim.fictionalpubliclibrary.services.implementations;
 
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.exceptions.DuplicateResourceException;
+import com.aim.fictionalpubliclibrary.exceptions.InvalidInputException;
+import com.aim.fictionalpubliclibrary.exceptions.PreconditionFailedException;
 import com.aim.fictionalpubliclibrary.exceptions.ResourceNotFoundException;
 import com.aim.fictionalpubliclibrary.models.Book;
 import com.aim.fictionalpubliclibrary.repositories.BookRepository;
 import com.aim.fictionalpubliclibrary.services.BookService;
+import com.aim.fictionalpubliclibrary.services.events.BookChangedEvent;
+import com.aim.fictionalpubliclibrary.services.indexes.BookFacetIndex;
+import com.aim.fictionalpubliclibrary.services.indexes.BookSearchIndex;
+import com.aim.fictionalpubliclibrary.services.indexes.BookVersionIndex;
+import com.aim.fictionalpubliclibrary.utils.IsbnUtils;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * BookService backed by the database.
+ * Every public method is timed as "library.book.service" (class, method and exception tags). The database
+ * part of that time is published by Spring Data as "spring.data.repository.invocations".
+ */
 @Service
+@Timed(value = BookDBService.TIMER_NAME, histogram = true)
 public class BookDBService implements BookService {
 
+    static final String TIMER_NAME = "library.book.service";
+
     private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final LibraryProperties libraryProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookFacetIndex bookFacetIndex;
+    private final BookVersionIndex bookVersionIndex;
 
-    public BookDBService(BookRepository bookRepository) {
+    public BookDBService(BookRepository bookRepository, EntityManager entityManager,
+                         LibraryProperties libraryProperties, ApplicationEventPublisher eventPublisher,
+                         BookSearchIndex bookSearchIndex, BookFacetIndex bookFacetIndex,
+                         BookVersionIndex bookVersionIndex) {
         this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.libraryProperties = libraryProperties;
+        this.eventPublisher = eventPublisher;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookFacetIndex = bookFacetIndex;
+        this.bookVersionIndex = bookVersionIndex;
     }
 
     /**
-     * Get all books from the database.
+     * Get a page of books ordered by ID, as response DTOs.
      * Steps:
-     * 1. Call the repository layer to get all books.
-     * 2. If the list is empty, throw ResourceNotFoundException.
-     * 3. Return the list of books.
-     * @return List of Book
+     * 1. Validate the page size.
+     * 2. Call the repository layer to project the books with an ID greater than afterId into BookResponseDTOs.
+     * 3. Return the page of books, an empty list means there are no more books.
+     * @param afterId ID of the last book of the previous page, 0 for the first page
+     * @param limit maximum number of books to return
+     * @return List of BookResponseDTO
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookResponseDTO> getBookResponsesAfter(long afterId, int limit) {
+        if (limit <= 0) {
+            throw new InvalidInputException("Limit must be a positive integer");
+        }
+        return bookRepository.findResponsePageAfter(afterId, Limit.of(limit));
+    }
+
+    /**
+     * Export all books from the database, one at a time.
+     * Steps:
+     * 1. Open a read-only transaction and stream the books ordered by ID.
+     * 2. Hand each book to the consumer.
+     * 3. Detach the book from the persistence context so memory stays flat.
+     * @param consumer Consumer of Book, called once per book
      */
     @Override
-    public List<Book> getAllBooks() {
-        List<Book> books = bookRepository.findAll();
-        if (CollectionUtils.isEmpty(books)) {
-            throw new ResourceNotFoundException("Books", "All", "All");
+    @Transactional(readOnly = true)
+    public void exportBooks(Consumer<Book> consumer) {
+        try (Stream<Book> books = bookRepository.streamAllOrderById()) {
+            books.forEach(book -> {
+                consumer.accept(book);
+                entityManager.detach(book);
+            });
         }
-        return books;
     }
 
     /**
@@ -45,6 +121,7 @@ public class BookDBService implements BookService {
      * @return Book
      */
     @Override
+    @Transactional(readOnly = true)
     public Book getBookById(Long id) {
         return bookRepository.findById(id)
                 .orElseThrow(() ->
@@ -52,17 +129,214 @@ public class BookDBService implements BookService {
                 );
     }
 
+    /**
+     * Get a book by its ID, as a response DTO.
+     * Steps:
+     * 1. Call the repository layer to project the book into a BookResponseDTO.
+     * 2. If the book is not found, throw ResourceNotFoundException.
+     * 3. Return the BookResponseDTO.
+     * @param id Long
+     * @return BookResponseDTO
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BookResponseDTO getBookResponseById(Long id) {
+        return bookRepository.findResponseById(id)
+                .orElseThrow(() ->
+                        new ResourceNotFoundException("Book", "id", id)
+                );
+    }
+
+    /**
+     * Get many books by their IDs, as response DTOs.
+     * Steps:
+     * 1. Drop repeated IDs, keeping the first occurrence.
+     * 2. Split the IDs into chunks of library.lookup.chunk-size.
+     * 3. Call the repository layer to project the books of each chunk with a single IN query.
+     * 4. Return the books found, in the order of their IDs in the request. IDs without a book are left out.
+     * @param ids List of Long
+     * @return List of BookResponseDTO
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookResponseDTO> getBookResponsesByIds(List<Long> ids) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        int chunkSize = libraryProperties.getLookup().getChunkSize();
+        Map<Long, BookResponseDTO> booksById = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += chunkSize) {
+            bookRepository.findResponsesByIdIn(distinctIds.subList(from, Math.min(from + chunkSize, distinctIds.size())))
+                    .forEach(book -> booksById.put(book.getId(), book));
+        }
+        return distinctIds.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Get a book by its ISBN.
+     * Steps:
+     * 1. Normalize the ISBN-10 or ISBN-13 to ISBN-13, if it is not a valid ISBN throw InvalidInputException.
+     * 2. Call the repository layer to get the book by its ISBN-13.
+     * 3. If the book is not found, throw ResourceNotFoundException.
+     * 4. Return the book.
+     * @param isbn String
+     * @return Book
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Book getBookByIsbn(String isbn) {
+        String isbn13 = IsbnUtils.toIsbn13(isbn);
+        if (isbn13 == null) {
+            throw new InvalidInputException("ISBN must be a valid ISBN-10 or ISBN-13");
+        }
+        return bookRepository.findByIsbn13(isbn13)
+                .orElseThrow(() ->
+                        new ResourceNotFoundException("Book", "isbn", isbn)
+                );
+    }
+
+    /**
+     * Search books by the words of their title and author.
+     * Steps:
+     * 1. If the query is blank, throw InvalidInputException.
+     * 2. Get the IDs of the requested page of ranked matches from the search index.
+     * 3. Call the repository layer to get those books and return them in rank order.
+     * @param query String
+     * @param pageable page number and size
+     * @return Page of Book with the total number of matches
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Book> searchBooks(String query, Pageable pageable) {
+        if (query == null || query.isBlank()) {
+            throw new InvalidInputException("Query is required");
+        }
+        BookSearchIndex.SearchHits hits = bookSearchIndex.search(query, (int) pageable.getOffset(),
+                pageable.getPageSize());
+        if (hits.ids().length == 0) {
+            return new PageImpl<>(List.of(), pageable, hits.totalHits());
+        }
+        Map<Long, Book> booksById = bookRepository.findAllById(Arrays.stream(hits.ids()).boxed().toList())
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Book> books = Arrays.stream(hits.ids())
+                .mapToObj(booksById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(books, pageable, hits.totalHits());
+    }
+
+    /**
+     * Get the number of books per genre, author and decade.
+     * Steps:
+     * 1. Read the counts from the in-memory facet index, which is kept up to date by committed book changes.
+     * @return BookFacetIndex.Facets
+     */
+    @Override
+    public BookFacetIndex.Facets getBookFacets() {
+        return bookFacetIndex.facets();
+    }
+
+    /**
+     * Get the version of a book without querying the database.
+     * Steps:
+     * 1. Read the version from the in-memory version index, which is kept up to date by committed book changes.
+     * @param id Long
+     * @return Long, null if the book is not in the index (it may still exist, e.g. while the index is built)
+     */
+    @Override
+    public Long getBookVersion(Long id) {
+        return bookVersionIndex.version(id);
+    }
+
+    /**
+     * Get a version of the whole catalog, which changes whenever a book is created, changed or deleted.
+     * Steps:
+     * 1. Read the version from the in-memory version index.
+     * @return String
+     */
+    @Override
+    public String getCatalogVersion() {
+        return bookVersionIndex.catalogVersion();
+    }
+
     /**
      * Create a new book in the database.
      * Steps:
-     * 1. Call the repository layer to save the book.
-     * 2. Return the saved book.
+     * 1. If a book with the same ISBN already exists, throw DuplicateResourceException.
+     * 2. Call the repository layer to save the book.
+     * 3. Publish a BookChangedEvent for the created book.
+     * 4. Return the saved book.
      * @param bookToBeSaved Book
      * @return Book
      */
     @Override
+    @Transactional
     public Book createBook(Book bookToBeSaved) {
-        return bookRepository.save(bookToBeSaved);
+        if (bookToBeSaved.getIsbn13() != null && bookRepository.existsByIsbn13(bookToBeSaved.getIsbn13())) {
+            throw new DuplicateResourceException("Book", "isbn", bookToBeSaved.getIsbn());
+        }
+        Book savedBook = bookRepository.save(bookToBeSaved);
+        eventPublisher.publishEvent(BookChangedEvent.created(savedBook));
+        return savedBook;
+    }
+
+    /**
+     * Create many books in the database in one transaction.
+     * Steps:
+     * 1. If an ISBN repeats within the books or already exists, throw DuplicateResourceException.
+     * 2. Split the books into chunks of library.batch.chunk-size.
+     * 3. Save each chunk and flush it as a single JDBC batch.
+     * 4. Clear the persistence context after each chunk so memory stays bounded.
+     * 5. Publish a BookChangedEvent for each created book.
+     * 6. Return the saved books, in the order they were given.
+     * @param booksToBeSaved List of Book
+     * @return List of Book
+     */
+    @Override
+    @Transactional
+    public List<Book> createBooks(List<Book> booksToBeSaved) {
+        int chunkSize = libraryProperties.getBatch().getChunkSize();
+        checkIsbnsAreUnique(booksToBeSaved, chunkSize);
+        entityManager.unwrap(Session.class).setJdbcBatchSize(chunkSize);
+        List<Book> savedBooks = new ArrayList<>(booksToBeSaved.size());
+        for (int from = 0; from < booksToBeSaved.size(); from += chunkSize) {
+            List<Book> chunk = booksToBeSaved.subList(from, Math.min(from + chunkSize, booksToBeSaved.size()));
+            savedBooks.addAll(bookRepository.saveAll(chunk));
+            bookRepository.flush();
+            entityManager.clear();
+        }
+        savedBooks.forEach(book -> eventPublisher.publishEvent(BookChangedEvent.created(book)));
+        return savedBooks;
+    }
+
+    /**
+     * Insert books exactly as they were saved, e.g. a batch of a snapshot, in one transaction.
+     * Steps:
+     * 1. Insert the books in JDBC batches of library.batch.chunk-size, keeping their IDs, versions and timestamps.
+     * 2. Restart the ID sequence after the largest of their IDs, so new books get new IDs.
+     * 3. Evict the second-level and query caches, which the JDBC inserts bypassed.
+     * No BookChangedEvent is published: restores run at startup, while the in-memory indexes are built.
+     * @param booksToBeRestored List of Book, with IDs not in use and above those of the books already restored
+     */
+    @Override
+    @Transactional
+    public void restoreBooks(List<Book> booksToBeRestored) {
+        if (booksToBeRestored.isEmpty()) {
+            return;
+        }
+        int chunkSize = libraryProperties.getBatch().getChunkSize();
+        long maxId = 0;
+        for (int from = 0; from < booksToBeRestored.size(); from += chunkSize) {
+            List<Book> chunk = booksToBeRestored.subList(from, Math.min(from + chunkSize, booksToBeRestored.size()));
+            bookRepository.insertBooks(chunk);
+            for (Book book : chunk) {
+                maxId = Math.max(maxId, book.getId());
+            }
+        }
+        bookRepository.restartIdSequenceAfter(maxId);
+        entityManager.getEntityManagerFactory().getCache().unwrap(Cache.class).evictAllRegions();
     }
 
     /**
@@ -70,38 +344,115 @@ public class BookDBService implements BookService {
      * Steps:
      * 1. Call the repository layer to get the existing book by ID.
      * 2. If the book is not found, throw ResourceNotFoundException.
-     * 3. Update the existing book with the new values.
-     * 4. Call the repository layer to save the updated book.
-     * 5. Return the updated book.
+     * 3. If an expected version is given and the book has another one, throw PreconditionFailedException.
+     * 4. If the new ISBN belongs to another book, throw DuplicateResourceException.
+     * 5. Update the existing book with the new values.
+     * 6. Call the repository layer to save and flush the updated book. The UPDATE only applies if the row still
+     *    has the version that was read, otherwise it fails with OptimisticLockingFailureException.
+     * 7. Publish a BookChangedEvent for the updated book.
+     * 8. Return the updated book, with its new version.
      * @param id Long
      * @param bookToBeUpdated Book
+     * @param expectedVersion the version the client last saw, null to update whatever the version
      * @return Book
      */
     @Override
-    public Book updateBook(Long id, Book bookToBeUpdated) {
+    @Transactional
+    public Book updateBook(Long id, Book bookToBeUpdated, Long expectedVersion) {
         Book existingBook = bookRepository.findById(id)
                 .orElseThrow(() ->
                         new ResourceNotFoundException("Book", "id", id)
                 );
-        Book updatedBook = Book.updateBook(existingBook, bookToBeUpdated);
-        return bookRepository.save(updatedBook);
+        if (expectedVersion != null && existingBook.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException("Book", "id", id);
+        }
+        String isbn13 = bookToBeUpdated.getIsbn13();
+        if (isbn13 != null && !isbn13.equals(existingBook.getIsbn13())
+                && bookRepository.existsByIsbn13(isbn13)) {
+            throw new DuplicateResourceException("Book", "isbn", bookToBeUpdated.getIsbn());
+        }
+        Book updatedBook = bookRepository.saveAndFlush(Book.updateBook(existingBook, bookToBeUpdated));
+        eventPublisher.publishEvent(BookChangedEvent.updated(updatedBook));
+        return updatedBook;
     }
 
     /**
-     * Delete a book by its ID.
+     * Partially update a book with a single UPDATE statement, without loading it first.
      * Steps:
-     * 1. Call the repository layer to get the existing book by ID.
-     * 2. If the book is not found, throw ResourceNotFoundException.
-     * 3. Call the repository layer to delete the book.
+     * 1. If the ISBN changes to one that belongs to another book, throw DuplicateResourceException.
+     * 2. Stamp the changes with the modification time.
+     * 3. Call the repository layer to update only the changed columns, the modification time and the version,
+     *    only if the row still has the expected version when one is given.
+     * 4. If no row was updated, throw PreconditionFailedException if the book exists, ResourceNotFoundException if not.
+     * 5. Stamp the changes with the new version, the expected one plus one, or read back from the updated row.
+     * 6. Publish a BookChangedEvent with the changed fields.
      * @param id Long
+     * @param changes Book holding the changed fields, null fields (and a publishedYear of 0) are left unchanged
+     * @param expectedVersion the version the client last saw, null to update whatever the version
      */
     @Override
-    public void deleteBook(Long id) {
-        Book existingBook = bookRepository.findById(id)
-                .orElseThrow(() ->
-                        new ResourceNotFoundException("Book", "id", id)
-                );
-        bookRepository.delete(existingBook);
+    @Transactional
+    public void patchBook(Long id, Book changes, Long expectedVersion) {
+        if (changes.getIsbn13() != null && bookRepository.existsByIsbn13AndIdNot(changes.getIsbn13(), id)) {
+            throw new DuplicateResourceException("Book", "isbn", changes.getIsbn());
+        }
+        changes.setLastModifiedAt(new Date());
+        if (bookRepository.patchBook(id, changes, expectedVersion) == 0) {
+            throw notChanged(id, expectedVersion);
+        }
+        changes.setId(id);
+        // The updated row stays locked until commit, so the version read back is the one this update wrote
+        changes.setVersion(expectedVersion != null ? expectedVersion + 1
+                : bookRepository.findVersionById(id).orElseThrow());
+        eventPublisher.publishEvent(BookChangedEvent.patched(id, changes));
+    }
+
+    /**
+     * Delete a book by its ID with a single DELETE statement, without loading it first.
+     * Steps:
+     * 1. Call the repository layer to delete the book, only if it still has the expected version when one is given.
+     * 2. If no row was deleted, throw PreconditionFailedException if the book exists, ResourceNotFoundException if not.
+     * 3. Publish a BookChangedEvent for the deleted book.
+     * @param id Long
+     * @param expectedVersion the version the client last saw, null to delete whatever the version
+     */
+    @Override
+    @Transactional
+    public void deleteBook(Long id, Long expectedVersion) {
+        int deleted = expectedVersion == null ? bookRepository.deleteBookById(id)
+                : bookRepository.deleteBookByIdAndVersion(id, expectedVersion);
+        if (deleted == 0) {
+            throw notChanged(id, expectedVersion);
+        }
+        eventPublisher.publishEvent(BookChangedEvent.deleted(id));
+    }
+
+    /**
+     * Why a conditional statement on a book matched no row: the book is gone, or it has another version.
+     */
+    private RuntimeException notChanged(Long id, Long expectedVersion) {
+        if (expectedVersion != null && bookRepository.existsById(id)) {
+            return new PreconditionFailedException("Book", "id", id);
+        }
+        return new ResourceNotFoundException("Book", "id", id);
+    }
+
+    private void checkIsbnsAreUnique(List<Book> books, int chunkSize) {
+        Set<String> isbn13s = new HashSet<>();
+        List<String> duplicates = new ArrayList<>();
+        for (Book book : books) {
+            if (book.getIsbn13() != null && !isbn13s.add(book.getIsbn13())) {
+                duplicates.add(book.getIsbn13());
+            }
+        }
+        List<String> distinctIsbn13s = new ArrayList<>(isbn13s);
+        for (int from = 0; from < distinctIsbn13s.size(); from += chunkSize) {
+            duplicates.addAll(bookRepository.findExistingIsbn13s(
+                    distinctIsbn13s.subList(from, Math.min(from + chunkSize, distinctIsbn13s.size()))));
+        }
+        if (!duplicates.isEmpty()) {
+            throw new DuplicateResourceException("Book", "isbn", String.join(", ", duplicates));
+        }
     }
 
 }
@@ -0,0 +1,219 @@
+package com.aim.fictionalpubliclibrary.services.implementations;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import com.aim.fictionalpubliclibrary.services.indexes.BookFacetIndex;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * BookService decorator that serves getBookResponseById from a bounded in-memory cache.
+ * The cache holds immutable snapshots, every read returns a fresh BookResponseDTO so callers
+ * can never mutate a cached entry. Writes go to the database first and then
+ * invalidate the cached entry of the book they touched.
+ * Hit, miss and eviction counters are published as the "books" cache metrics, and every method is timed
+ * like BookDBService, so the two class tags of "library.book.service" compare cached and uncached time.
+ * Misses are loaded on the calling thread outside of the cache's internal locks, so a
+ * virtual thread waiting on the database is never pinned to its carrier.
+ */
+@Service
+@Primary
+@Timed(value = BookDBService.TIMER_NAME, histogram = true)
+@ConditionalOnProperty(prefix = "library.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CachingBookService implements BookService {
+
+    static final String CACHE_NAME = "books";
+
+    private final BookService bookService;
+    private final AsyncCache<Long, CachedBook> cache;
+
+    public CachingBookService(BookDBService bookDBService, LibraryProperties libraryProperties,
+                              MeterRegistry meterRegistry) {
+        this.bookService = bookDBService;
+        LibraryProperties.Cache cacheProperties = libraryProperties.getCache();
+        // Caffeine evicts with W-TinyLFU once the maximum size is reached
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheProperties.getMaximumSize())
+                .expireAfterWrite(cacheProperties.getTimeToLive())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    @Override
+    public List<BookResponseDTO> getBookResponsesAfter(long afterId, int limit) {
+        return bookService.getBookResponsesAfter(afterId, limit);
+    }
+
+    @Override
+    public void exportBooks(Consumer<Book> consumer) {
+        bookService.exportBooks(consumer);
+    }
+
+    @Override
+    public Book getBookById(Long id) {
+        return bookService.getBookById(id);
+    }
+
+    /**
+     * Get a book by its ID, from the cache when present.
+     * Steps:
+     * 1. Look up the snapshot of the book in the cache.
+     * 2. On a miss, register a pending entry, so concurrent readers of the same book wait for this load.
+     * 3. Load the book from the database and complete the pending entry with a snapshot of it.
+     * 4. Return a new BookResponseDTO built from the snapshot.
+     * @param id Long
+     * @return BookResponseDTO
+     */
+    @Override
+    public BookResponseDTO getBookResponseById(Long id) {
+        while (true) {
+            // The mapping function only hands back the pending future, the database call happens after the
+            // cache has released its bin lock.
+            CompletableFuture<CachedBook> pending = new CompletableFuture<>();
+            CompletableFuture<CachedBook> entry = cache.get(id, (key, executor) -> pending);
+            if (entry == pending) {
+                try {
+                    pending.complete(CachedBook.of(bookService.getBookResponseById(id)));
+                } catch (RuntimeException e) {
+                    // Cancelling drops the entry without Caffeine logging the failure, waiters load again
+                    pending.cancel(false);
+                    throw e;
+                }
+            }
+            try {
+                return entry.join().toResponseDTO();
+            } catch (CancellationException e) {
+                // The load this thread waited for failed, try again
+            }
+        }
+    }
+
+    /**
+     * Get many books by their IDs, cached books from the cache and the others with one query.
+     * Steps:
+     * 1. Take the books whose snapshot is in the cache, a load still in progress counts as a miss.
+     * 2. Get the missed books from the database in one call.
+     * 3. Return the books in the order of their IDs in the request, IDs without a book are left out.
+     * Books read in bulk are not added to the cache, only single reads populate it.
+     * @param ids List of Long
+     * @return List of BookResponseDTO
+     */
+    @Override
+    public List<BookResponseDTO> getBookResponsesByIds(List<Long> ids) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, BookResponseDTO> booksById = new HashMap<>();
+        List<Long> missedIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            CompletableFuture<CachedBook> entry = cache.getIfPresent(id);
+            if (entry != null && entry.isDone() && !entry.isCompletedExceptionally()) {
+                booksById.put(id, entry.join().toResponseDTO());
+            } else {
+                missedIds.add(id);
+            }
+        }
+        if (!missedIds.isEmpty()) {
+            bookService.getBookResponsesByIds(missedIds).forEach(book -> booksById.put(book.getId(), book));
+        }
+        return distinctIds.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public Book getBookByIsbn(String isbn) {
+        return bookService.getBookByIsbn(isbn);
+    }
+
+    @Override
+    public Page<Book> searchBooks(String query, Pageable pageable) {
+        return bookService.searchBooks(query, pageable);
+    }
+
+    @Override
+    public BookFacetIndex.Facets getBookFacets() {
+        return bookService.getBookFacets();
+    }
+
+    @Override
+    public Long getBookVersion(Long id) {
+        return bookService.getBookVersion(id);
+    }
+
+    @Override
+    public String getCatalogVersion() {
+        return bookService.getCatalogVersion();
+    }
+
+    @Override
+    public Book createBook(Book bookToBeSaved) {
+        return bookService.createBook(bookToBeSaved);
+    }
+
+    @Override
+    public List<Book> createBooks(List<Book> booksToBeSaved) {
+        return bookService.createBooks(booksToBeSaved);
+    }
+
+    @Override
+    public void restoreBooks(List<Book> booksToBeRestored) {
+        bookService.restoreBooks(booksToBeRestored);
+        cache.synchronous().invalidateAll();
+    }
+
+    @Override
+    public Book updateBook(Long id, Book book, Long expectedVersion) {
+        Book updatedBook = bookService.updateBook(id, book, expectedVersion);
+        cache.synchronous().invalidate(id);
+        return updatedBook;
+    }
+
+    @Override
+    public void patchBook(Long id, Book changes, Long expectedVersion) {
+        bookService.patchBook(id, changes, expectedVersion);
+        cache.synchronous().invalidate(id);
+    }
+
+    @Override
+    public void deleteBook(Long id, Long expectedVersion) {
+        bookService.deleteBook(id, expectedVersion);
+        cache.synchronous().invalidate(id);
+    }
+
+    /**
+     * Immutable snapshot of a BookResponseDTO, as held in the cache.
+     */
+    private record CachedBook(long id, String title, String author, String isbn, int publishedYear,
+                              String genre, long version) {
+
+        static CachedBook of(BookResponseDTO book) {
+            return new CachedBook(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+                    book.getPublishedYear(), book.getGenre(), book.getVersion());
+        }
+
+        BookResponseDTO toResponseDTO() {
+            return new BookResponseDTO(id, title, author, isbn, publishedYear, genre, version);
+        }
+    }
+}
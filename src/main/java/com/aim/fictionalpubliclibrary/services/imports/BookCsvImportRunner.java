@@ -0,0 +1,67 @@
+package com.aim.fictionalpubliclibrary.services.imports;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Runs a CSV import at startup when library.csv-import.file is set, e.g.
+ * java -jar fictional-public-library.jar --library.csv-import.file=catalog.csv
+ * --library.snapshot.file=data/books.snapshot --spring.main.web-application-type=none
+ * With library.csv-import.exit-when-done, the default, the application then exits: with status 0 if every
+ * row was imported, 1 if any was rejected. Exiting discards an in-memory database, so on one the application
+ * only exits when library.snapshot.file is set, the books are then saved to the snapshot at shutdown and
+ * restored by the next start. Otherwise it does not exit, so a web application keeps serving the imported books.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library.csv-import", name = "file")
+@Log4j2
+public class BookCsvImportRunner implements ApplicationRunner {
+
+    private final BookCsvImporter bookCsvImporter;
+    private final LibraryProperties.CsvImport csvImport;
+    private final LibraryProperties.Snapshot snapshot;
+    private final DataSourceProperties dataSourceProperties;
+    private final ConfigurableApplicationContext applicationContext;
+
+    public BookCsvImportRunner(BookCsvImporter bookCsvImporter, LibraryProperties libraryProperties,
+                               DataSourceProperties dataSourceProperties,
+                               ConfigurableApplicationContext applicationContext) {
+        this.bookCsvImporter = bookCsvImporter;
+        this.csvImport = libraryProperties.getCsvImport();
+        this.snapshot = libraryProperties.getSnapshot();
+        this.dataSourceProperties = dataSourceProperties;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Path file = Path.of(csvImport.getFile());
+        Path errorReport = csvImport.getErrorReport() != null
+                ? Path.of(csvImport.getErrorReport())
+                : file.resolveSibling(file.getFileName() + ".rejected.csv");
+        BookCsvImporter.ImportResult result = bookCsvImporter.importFile(file, errorReport);
+        if (csvImport.isExitWhenDone() && !keepsImportedBooks()) {
+            log.warn("Not exiting after the CSV import: the database {} is in memory and library.snapshot.file is "
+                    + "not set, the imported books would be lost", dataSourceProperties.getUrl());
+        } else if (csvImport.isExitWhenDone()) {
+            int exitCode = result.rejected() > 0 ? 1 : 0;
+            System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+        }
+    }
+
+    /** Whether the imported books outlive the application: in a persistent database, or saved to the snapshot. */
+    private boolean keepsImportedBooks() {
+        String url = dataSourceProperties.getUrl();
+        boolean inMemory = url == null || url.contains(":mem:");
+        return !inMemory || (snapshot.getFile() != null && snapshot.isSaveOnShutdown());
+    }
+}
@@ -0,0 +1,383 @@
+package com.aim.fictionalpubliclibrary.services.imports;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.exceptions.InvalidInputException;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+/**
+ * Imports books from a CSV file of any size, e.g. a catalog dump, without reading it onto the heap.
+ * The first line names the columns: title, author, isbn, publishedYear and genre, in any order, other columns
+ * are ignored. The rest of the file is cut into ranges of about library.csv-import.chunk-size, each ending at
+ * a line break, and the ranges are parsed in parallel on a ForkJoinPool, each from its own memory mapping.
+ * Every row goes through BookRequestDTO.validate, valid rows are written with createBooks in batches of
+ * library.csv-import.batch-size. When a batch fails, e.g. on an ISBN that already exists, its rows are
+ * written one by one so only the failing ones are rejected.
+ * Rejected rows are written to an error report with their line number and the reason. Each range streams its
+ * rejected rows to a temporary file as they happen, the files are merged into the report in file order at the
+ * end, so only counts are kept in memory however many rows are rejected.
+ * Each import logs its rows per second and the bytes allocated per row by the import threads.
+ */
+@Service
+@Log4j2
+public class BookCsvImporter {
+
+    /** Column of each field of the parser, by field index. */
+    private static final List<String> COLUMNS = List.of("title", "author", "isbn", "publishedYear", "genre");
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+
+    private final BookService bookService;
+    private final LibraryProperties.CsvImport csvImport;
+
+    public BookCsvImporter(BookService bookService, LibraryProperties libraryProperties) {
+        this.bookService = bookService;
+        this.csvImport = libraryProperties.getCsvImport();
+    }
+
+    /**
+     * Outcome of an import.
+     *
+     * @param rows number of non-empty rows read, header excluded
+     * @param imported number of books created
+     * @param rejected number of rows rejected, listed in the error report
+     * @param elapsed how long the import took
+     * @param allocatedBytes bytes allocated by the import threads, -1 if the JVM cannot tell
+     */
+    public record ImportResult(long rows, long imported, long rejected, Duration elapsed, long allocatedBytes) {
+
+        public double rowsPerSecond() {
+            return elapsed.isZero() ? rows : rows * 1e9 / elapsed.toNanos();
+        }
+
+        public long bytesAllocatedPerRow() {
+            return allocatedBytes < 0 || rows == 0 ? -1 : allocatedBytes / rows;
+        }
+    }
+
+    /** Rows of one range: where they start and end in the file. */
+    private record Range(long start, long end) {
+    }
+
+    /** What happened to the rows of one range, line numbers are counted from the start of the range. */
+    private static final class RangeResult {
+        private long lines;
+        private long rows;
+        private long imported;
+        private long rejected;
+        private long allocatedBytes;
+        /** Temporary file of the rejected rows, created at the first one. */
+        private Path rejections;
+        private DataOutputStream rejectionsOut;
+    }
+
+    /**
+     * Imports a CSV file.
+     * @param file the CSV file
+     * @param errorReport where the rejected rows are written, only created if a row is rejected
+     * @return ImportResult
+     * @throws InvalidInputException if the header does not name every column of a book
+     * @throws IOException if the file cannot be read or the report cannot be written
+     */
+    public ImportResult importFile(Path file, Path errorReport) throws IOException {
+        long start = System.nanoTime();
+        List<RangeResult> results = List.of();
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                long dataStart = nextLineStart(channel, 0, size);
+                int[] fieldOfColumn = readHeader(channel, dataStart);
+                List<Range> ranges = split(channel, dataStart, size);
+                // Created up front, so the temporary files of every range are deleted even if one fails
+                results = ranges.stream().map(range -> new RangeResult()).toList();
+                int parallelism = csvImport.getParallelism() > 0
+                        ? csvImport.getParallelism() : Runtime.getRuntime().availableProcessors();
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    List<RangeResult> rangeResults = results;
+                    List<ForkJoinTask<RangeResult>> tasks = IntStream.range(0, ranges.size())
+                            .mapToObj(i -> pool.submit(() ->
+                                    importRange(channel, fieldOfColumn, ranges.get(i), rangeResults.get(i))))
+                            .toList();
+                    tasks.forEach(ForkJoinTask::join);
+                } finally {
+                    // Waits for the ranges still running when one failed, before their files are deleted
+                    pool.close();
+                }
+            }
+            long rows = 0;
+            long imported = 0;
+            long rejected = 0;
+            long allocatedBytes = 0;
+            for (RangeResult result : results) {
+                rows += result.rows;
+                imported += result.imported;
+                rejected += result.rejected;
+                allocatedBytes = result.allocatedBytes < 0 || allocatedBytes < 0
+                        ? -1 : allocatedBytes + result.allocatedBytes;
+            }
+            if (rejected > 0) {
+                writeReport(errorReport, results);
+            }
+            ImportResult importResult = new ImportResult(rows, imported, rejected,
+                    Duration.ofNanos(System.nanoTime() - start), allocatedBytes);
+            log.info("Imported {} of {} rows from {} in {} ms: {} rows/s, {} bytes allocated per row, {} rejected{}",
+                    importResult.imported(), importResult.rows(), file, importResult.elapsed().toMillis(),
+                    Math.round(importResult.rowsPerSecond()), importResult.bytesAllocatedPerRow(),
+                    importResult.rejected(), rejected == 0 ? "" : " (see " + errorReport + ")");
+            return importResult;
+        } finally {
+            for (RangeResult result : results) {
+                if (result.rejections != null) {
+                    Files.deleteIfExists(result.rejections);
+                }
+            }
+        }
+    }
+
+    private RangeResult importRange(FileChannel channel, int[] fieldOfColumn, Range range, RangeResult result) {
+        try {
+            importRows(channel, fieldOfColumn, range, result);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            closeRejections(result);
+        }
+    }
+
+    private void importRows(FileChannel channel, int[] fieldOfColumn, Range range, RangeResult result)
+            throws IOException {
+        long allocatedBefore = allocatedBytes();
+        BookCsvParser parser = new BookCsvParser(channel.map(FileChannel.MapMode.READ_ONLY, range.start(),
+                range.end() - range.start()), fieldOfColumn);
+        int batchSize = csvImport.getBatchSize();
+        List<BookRequestDTO> batch = new ArrayList<>(batchSize);
+        long[] batchLines = new long[batchSize];
+        while (parser.next()) {
+            result.rows++;
+            String error = parser.error();
+            BookRequestDTO bookRequestDTO = null;
+            if (error == null) {
+                bookRequestDTO = parser.toRequest();
+                try {
+                    BookRequestDTO.validate(bookRequestDTO);
+                } catch (InvalidInputException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (error != null) {
+                reject(result, parser.line(), error, parser.rawRow());
+                continue;
+            }
+            batchLines[batch.size()] = parser.line();
+            batch.add(bookRequestDTO);
+            if (batch.size() == batchSize) {
+                write(batch, batchLines, result);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, batchLines, result);
+        }
+        result.lines = parser.line();
+        long allocatedAfter = allocatedBytes();
+        result.allocatedBytes = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+    }
+
+    private void write(List<BookRequestDTO> batch, long[] batchLines, RangeResult result) throws IOException {
+        try {
+            // Books are converted for every attempt, a failed one may have left IDs on the entities
+            bookService.createBooks(batch.stream().map(BookRequestDTO::toBook).toList());
+            result.imported += batch.size();
+            return;
+        } catch (RuntimeException e) {
+            log.debug("Import batch of {} books failed, writing them one by one", batch.size(), e);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            BookRequestDTO bookRequestDTO = batch.get(i);
+            try {
+                bookService.createBook(BookRequestDTO.toBook(bookRequestDTO));
+                result.imported++;
+            } catch (RuntimeException e) {
+                reject(result, batchLines[i], e.getMessage(), csvRow(bookRequestDTO));
+            }
+        }
+    }
+
+    /** Field of each column named by the header line, -1 for the columns that are not imported. */
+    private static int[] readHeader(FileChannel channel, long dataStart) throws IOException {
+        if (dataStart > MAX_HEADER_BYTES) {
+            throw new InvalidInputException("CSV header is longer than " + MAX_HEADER_BYTES + " bytes");
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) dataStart);
+        channel.read(bytes, 0);
+        String header = new String(bytes.array(), StandardCharsets.UTF_8).strip();
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        String[] columns = header.split(",", -1);
+        int[] fieldOfColumn = new int[columns.length];
+        boolean[] found = new boolean[BookCsvParser.FIELD_COUNT];
+        for (int i = 0; i < columns.length; i++) {
+            String column = columns[i].strip().replace("\"", "");
+            fieldOfColumn[i] = -1;
+            for (int field = 0; field < COLUMNS.size(); field++) {
+                if (!found[field] && COLUMNS.get(field).equalsIgnoreCase(column)) {
+                    fieldOfColumn[i] = field;
+                    found[field] = true;
+                }
+            }
+        }
+        List<String> missing = new ArrayList<>();
+        for (int field = 0; field < COLUMNS.size(); field++) {
+            if (!found[field]) {
+                missing.add(COLUMNS.get(field));
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new InvalidInputException("CSV header is missing columns: " + String.join(", ", missing));
+        }
+        return fieldOfColumn;
+    }
+
+    /** Cuts the rows into ranges of about chunk-size bytes, each ending right after a line break. */
+    private List<Range> split(FileChannel channel, long dataStart, long size) throws IOException {
+        long chunkSize = Math.max(1, csvImport.getChunkSize().toBytes());
+        List<Range> ranges = new ArrayList<>();
+        long start = dataStart;
+        while (start < size) {
+            long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize - 1, size);
+            ranges.add(new Range(start, end));
+            start = end;
+        }
+        return ranges;
+    }
+
+    /** Position right after the first line break at or after from, the file size if there is none. */
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(8192);
+        long position = from;
+        while (position < size) {
+            bytes.clear();
+            int read = channel.read(bytes, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (bytes.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /** Appends a rejected row to the temporary file of its range, creating it at the first one. */
+    private static void reject(RangeResult result, long line, String error, String row) throws IOException {
+        if (result.rejectionsOut == null) {
+            result.rejections = Files.createTempFile("book-import-", ".rejected");
+            result.rejectionsOut = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(result.rejections)));
+        }
+        result.rejectionsOut.writeLong(line);
+        writeString(result.rejectionsOut, error);
+        writeString(result.rejectionsOut, row);
+        result.rejected++;
+    }
+
+    private static void closeRejections(RangeResult result) {
+        if (result.rejectionsOut == null) {
+            return;
+        }
+        try {
+            result.rejectionsOut.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Merges the rejected rows of every range, in file order, into the error report. */
+    private static void writeReport(Path errorReport, List<RangeResult> results) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(errorReport, StandardCharsets.UTF_8)) {
+            writer.write("line,error,row");
+            writer.newLine();
+            // The header is line 1, the lines of each range follow those of the ranges before it
+            long firstLine = 1;
+            for (RangeResult result : results) {
+                if (result.rejections != null) {
+                    try (DataInputStream in = new DataInputStream(
+                            new BufferedInputStream(Files.newInputStream(result.rejections)))) {
+                        for (long i = 0; i < result.rejected; i++) {
+                            long line = firstLine + in.readLong();
+                            String error = readString(in);
+                            String row = readString(in);
+                            writer.write(line + "," + quote(error) + "," + quote(row));
+                            writer.newLine();
+                        }
+                    }
+                }
+                firstLine += result.lines;
+            }
+        }
+    }
+
+    /** Writes a string of any length, or null. */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static String csvRow(BookRequestDTO bookRequestDTO) {
+        return String.join(",", Arrays.asList(quote(bookRequestDTO.getTitle()), quote(bookRequestDTO.getAuthor()),
+                quote(bookRequestDTO.getIsbn()), Integer.toString(bookRequestDTO.getPublishedYear()),
+                quote(bookRequestDTO.getGenre())));
+    }
+
+    private static String quote(String value) {
+        return value == null ? "" : "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /** Bytes allocated so far by the calling thread, -1 if the JVM cannot tell. */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
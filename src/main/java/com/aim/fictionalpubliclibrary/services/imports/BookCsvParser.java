@@ -0,0 +1,219 @@
+package com.aim.fictionalpubliclibrary.services.imports;
+
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the rows of one range of a UTF-8 CSV file straight from its (memory-mapped) buffer.
+ * Fields follow RFC 4180: separated by commas, optionally quoted, with "" for a quote inside quotes.
+ * Only the columns of a book are decoded, the others are skipped over, and publishedYear is parsed
+ * without building a String. A row is one line, quoted fields cannot contain line breaks.
+ * Not thread-safe, each range gets its own parser.
+ */
+class BookCsvParser {
+
+    static final int TITLE = 0;
+    static final int AUTHOR = 1;
+    static final int ISBN = 2;
+    static final int PUBLISHED_YEAR = 3;
+    static final int GENRE = 4;
+    static final int FIELD_COUNT = 5;
+
+    private final ByteBuffer buffer;
+    private final int[] fieldOfColumn;
+    private final String[] values = new String[FIELD_COUNT];
+    private byte[] scratch = new byte[256];
+    private int position;
+    private int rowStart;
+    private int rowEnd;
+    private long line;
+    private int publishedYear;
+    private String error;
+
+    /**
+     * @param buffer the rows, from the first byte of a line to the end of a line or of the file
+     * @param fieldOfColumn field (TITLE...GENRE) of each column of the file, -1 for columns that are skipped
+     */
+    BookCsvParser(ByteBuffer buffer, int[] fieldOfColumn) {
+        this.buffer = buffer;
+        this.fieldOfColumn = fieldOfColumn;
+        this.position = buffer.position();
+    }
+
+    /**
+     * Reads the next row, skipping empty lines.
+     * @return false once every row was read
+     */
+    boolean next() {
+        int limit = buffer.limit();
+        while (position < limit) {
+            line++;
+            rowStart = position;
+            if (isLineEnd(position, limit)) {
+                skipLine(limit);
+                continue;
+            }
+            parseRow(limit);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Line of the current row, counted from 1 at the start of the range. Once every row was read,
+     * the number of lines of the range, including empty ones.
+     * @return long
+     */
+    long line() {
+        return line;
+    }
+
+    /**
+     * Why the current row could not be read, null if it was.
+     * @return String
+     */
+    String error() {
+        return error;
+    }
+
+    /**
+     * The current row as a BookRequestDTO, not validated yet.
+     * @return BookRequestDTO
+     */
+    BookRequestDTO toRequest() {
+        return BookRequestDTO.builder()
+                .title(values[TITLE])
+                .author(values[AUTHOR])
+                .isbn(values[ISBN])
+                .publishedYear(publishedYear)
+                .genre(values[GENRE])
+                .build();
+    }
+
+    /**
+     * The text of the current row, without its line break. Only meant for rejected rows, it copies the row.
+     * @return String
+     */
+    String rawRow() {
+        byte[] row = new byte[rowEnd - rowStart];
+        buffer.get(rowStart, row);
+        return new String(row, StandardCharsets.UTF_8);
+    }
+
+    private void parseRow(int limit) {
+        Arrays.fill(values, null);
+        publishedYear = 0;
+        error = null;
+        int column = 0;
+        while (true) {
+            int field = column < fieldOfColumn.length ? fieldOfColumn[column] : -1;
+            int length = buffer.get(position) == '"' ? readQuoted(limit, field >= 0) : readUnquoted(limit, field >= 0);
+            if (length < 0) {
+                skipLine(limit);
+                return;
+            }
+            if (field >= 0) {
+                store(field, length);
+            }
+            column++;
+            if (position >= limit || isLineEnd(position, limit)) {
+                skipLine(limit);
+                return;
+            }
+            if (buffer.get(position) != ',') {
+                error = "Unexpected character after a quoted field";
+                skipLine(limit);
+                return;
+            }
+            position++;
+            if (position >= limit) {
+                rowEnd = position;
+                return;
+            }
+        }
+    }
+
+    /** Reads an unquoted field, copying it to scratch if kept. Returns its length. */
+    private int readUnquoted(int limit, boolean keep) {
+        int start = position;
+        while (position < limit && buffer.get(position) != ',' && !isLineEnd(position, limit)) {
+            position++;
+        }
+        int length = position - start;
+        if (keep) {
+            ensureScratch(length);
+            buffer.get(start, scratch, 0, length);
+        }
+        return length;
+    }
+
+    /** Reads a quoted field, unescaping it to scratch if kept. Returns its length, -1 with error set if malformed. */
+    private int readQuoted(int limit, boolean keep) {
+        position++;
+        int length = 0;
+        while (position < limit) {
+            byte b = buffer.get(position++);
+            if (b == '"') {
+                if (position < limit && buffer.get(position) == '"') {
+                    position++;
+                } else {
+                    return length;
+                }
+            } else if (b == '\n') {
+                position--;
+                break;
+            }
+            if (keep) {
+                ensureScratch(length + 1);
+                scratch[length] = b;
+            }
+            length++;
+        }
+        error = "Unterminated quoted field";
+        return -1;
+    }
+
+    private void store(int field, int length) {
+        if (field != PUBLISHED_YEAR) {
+            values[field] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            return;
+        }
+        // Left at 0 when empty, validation then reports the missing year
+        int year = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = scratch[i];
+            if (b < '0' || b > '9' || i == 9) {
+                error = "Published year must be a positive integer";
+                return;
+            }
+            year = year * 10 + (b - '0');
+        }
+        publishedYear = year;
+    }
+
+    /** True at a \n, or at a \r followed by \n or by the end of the range. */
+    private boolean isLineEnd(int index, int limit) {
+        byte b = buffer.get(index);
+        return b == '\n' || (b == '\r' && (index + 1 == limit || buffer.get(index + 1) == '\n'));
+    }
+
+    /** Moves past the line break ending the current row, setting rowEnd to where the row text ends. */
+    private void skipLine(int limit) {
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        rowEnd = position > rowStart && buffer.get(position - 1) == '\r' ? position - 1 : position;
+        if (position < limit) {
+            position++;
+        }
+    }
+
+    private void ensureScratch(int length) {
+        if (length > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+        }
+    }
+}
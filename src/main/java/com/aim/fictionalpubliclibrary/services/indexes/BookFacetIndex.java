@@ -0,0 +1,180 @@
+package com.aim.fictionalpubliclibrary.services.indexes;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory book counts per genre, per author and per publishedYear decade.
+ * Each change updates at most two buckets per facet in O(1). The facet values of every book are kept,
+ * so an update moves the book out of its old buckets and a delete, which only knows the ID, can
+ * decrement the right ones. Changes to the same book are serialized per ID, counters are LongAdders,
+ * so writers never block readers. Books without a value for a facet are not counted in it.
+ * Changes are applied once committed, and two commits to the same book can be applied out of order: the
+ * version of every book is kept, a change older than the indexed version is ignored. A deleted book is
+ * remembered for library.indexes.tombstone-retention, so a late create or update of it is ignored too.
+ */
+@Component
+public class BookFacetIndex implements BookIndex {
+
+    private final Map<Long, FacetValues> indexedBooks = new ConcurrentHashMap<>();
+    private final BookTombstones removedBooks;
+    private final Map<String, LongAdder> genreCounts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> authorCounts = new ConcurrentHashMap<>();
+    private final Map<Integer, LongAdder> decadeCounts = new ConcurrentHashMap<>();
+
+    public BookFacetIndex(LibraryProperties libraryProperties) {
+        this.removedBooks = new BookTombstones(libraryProperties.getIndexes().getTombstoneRetention(),
+                Ticker.systemTicker());
+    }
+
+    /**
+     * Snapshot of the facet counts, buckets without books are left out.
+     *
+     * @param genres number of books per genre
+     * @param authors number of books per author
+     * @param decades number of books per decade, keyed by its first year (1960 for 1960-1969)
+     */
+    public record Facets(Map<String, Long> genres, Map<String, Long> authors, Map<Integer, Long> decades) {
+    }
+
+    /**
+     * Facet values of one indexed book, null when the book has no value for the facet, and the version
+     * they were read from.
+     */
+    private record FacetValues(String genre, String author, Integer decade, long version) {
+
+        static FacetValues of(Book book) {
+            return new FacetValues(book.getGenre(), book.getAuthor(), decadeOf(book.getPublishedYear()),
+                    book.getVersion());
+        }
+
+        /**
+         * The changes carry the version the patch produced.
+         */
+        FacetValues patchedWith(Book changes) {
+            return new FacetValues(
+                    changes.getGenre() != null ? changes.getGenre() : genre,
+                    changes.getAuthor() != null ? changes.getAuthor() : author,
+                    changes.getPublishedYear() != 0 ? decadeOf(changes.getPublishedYear()) : decade,
+                    changes.getVersion());
+        }
+    }
+
+    @Override
+    public void put(Book book) {
+        FacetValues values = FacetValues.of(book);
+        indexedBooks.compute(book.getId(), (id, previous) -> {
+            if (removedBooks.contains(id) || (previous != null && values.version() < previous.version())) {
+                return previous;
+            }
+            move(previous, values);
+            return values;
+        });
+    }
+
+    @Override
+    public void patch(long id, Book changes) {
+        indexedBooks.computeIfPresent(id, (key, previous) -> {
+            if (changes.getVersion() < previous.version()) {
+                return previous;
+            }
+            FacetValues values = previous.patchedWith(changes);
+            move(previous, values);
+            return values;
+        });
+    }
+
+    @Override
+    public void remove(long id) {
+        // Remembered first, so a put running concurrently either sees it or is removed right after
+        removedBooks.add(id);
+        indexedBooks.computeIfPresent(id, (key, previous) -> {
+            move(previous, null);
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        indexedBooks.clear();
+        removedBooks.clear();
+        genreCounts.clear();
+        authorCounts.clear();
+        decadeCounts.clear();
+    }
+
+    /**
+     * Reads the current counts. Each counter is read on its own, so a snapshot taken while books are
+     * changing may count a moving book in both or neither of its buckets for that instant.
+     * @return Facets
+     */
+    public Facets facets() {
+        return new Facets(snapshot(genreCounts), snapshot(authorCounts), snapshot(decadeCounts));
+    }
+
+    /**
+     * Number of indexed books.
+     * @return int
+     */
+    public int size() {
+        return indexedBooks.size();
+    }
+
+    /**
+     * Number of deleted books still remembered.
+     * @return long
+     */
+    long removedBooks() {
+        return removedBooks.size();
+    }
+
+    static Integer decadeOf(int publishedYear) {
+        return publishedYear == 0 ? null : Math.floorDiv(publishedYear, 10) * 10;
+    }
+
+    private void move(FacetValues from, FacetValues to) {
+        String fromGenre = from == null ? null : from.genre();
+        String toGenre = to == null ? null : to.genre();
+        if (!Objects.equals(fromGenre, toGenre)) {
+            add(genreCounts, fromGenre, -1);
+            add(genreCounts, toGenre, 1);
+        }
+        String fromAuthor = from == null ? null : from.author();
+        String toAuthor = to == null ? null : to.author();
+        if (!Objects.equals(fromAuthor, toAuthor)) {
+            add(authorCounts, fromAuthor, -1);
+            add(authorCounts, toAuthor, 1);
+        }
+        Integer fromDecade = from == null ? null : from.decade();
+        Integer toDecade = to == null ? null : to.decade();
+        if (!Objects.equals(fromDecade, toDecade)) {
+            add(decadeCounts, fromDecade, -1);
+            add(decadeCounts, toDecade, 1);
+        }
+    }
+
+    private static <K> void add(Map<K, LongAdder> counts, K key, int delta) {
+        if (key != null) {
+            counts.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+        }
+    }
+
+    private static <K> Map<K, Long> snapshot(Map<K, LongAdder> counts) {
+        Map<K, Long> snapshot = new HashMap<>();
+        counts.forEach((key, count) -> {
+            long sum = count.sum();
+            if (sum > 0) {
+                snapshot.put(key, sum);
+            }
+        });
+        return snapshot;
+    }
+}
@@ -0,0 +1,35 @@
+package com.aim.fictionalpubliclibrary.services.indexes;
+
+import com.aim.fictionalpubliclibrary.models.Book;
+
+/**
+ * In-memory structure derived from the books in the database.
+ * Implementations are built at startup and kept up to date by {@link BookIndexMaintainer}.
+ */
+public interface BookIndex {
+
+    /**
+     * Adds a book to the index, or replaces it if a book with the same ID is already indexed.
+     * @param book Book
+     */
+    void put(Book book);
+
+    /**
+     * Applies a partial update to an indexed book. Only the fields set on the changes are updated,
+     * following the conventions of {@link Book#updateBook}. Does nothing if the book is not indexed.
+     * @param id ID of the book
+     * @param changes Book holding the changed fields
+     */
+    void patch(long id, Book changes);
+
+    /**
+     * Removes a book from the index, does nothing if it is not indexed.
+     * @param id ID of the book
+     */
+    void remove(long id);
+
+    /**
+     * Removes every book from the index.
+     */
+    void clear();
+}
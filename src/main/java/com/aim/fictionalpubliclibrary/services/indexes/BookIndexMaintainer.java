@@ -0,0 +1,113 @@
+package com.aim.fictionalpubliclibrary.services.indexes;
+
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import com.aim.fictionalpubliclibrary.services.events.BookChangedEvent;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Builds every {@link BookIndex} from the database at startup and applies committed book changes to them.
+ * Changes that arrive while the indexes are being built are held back and replayed once the build is done,
+ * so a book deleted during the build does not stay in the indexes.
+ * The pending events are guarded by a ReentrantLock rather than a synchronized block, so listeners
+ * running on virtual threads do not pin their carrier thread while they wait.
+ */
+@Component
+@Log4j2
+public class BookIndexMaintainer implements ApplicationRunner {
+
+    private final BookService bookService;
+    private final List<BookIndex> bookIndexes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<BookChangedEvent> pendingEvents;
+    private volatile boolean built;
+
+    public BookIndexMaintainer(BookService bookService, List<BookIndex> bookIndexes) {
+        this.bookService = bookService;
+        this.bookIndexes = bookIndexes;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // Already built if the books were restored from a snapshot at startup
+        if (!built) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds every index with a single pass over the books in the database.
+     */
+    public void rebuild() {
+        rebuild(bookService::exportBooks);
+    }
+
+    /**
+     * Rebuilds every index from the books a source hands over, e.g. books being loaded into the database,
+     * which saves reading them back afterward.
+     * @param source called once, with the consumer to give every book to
+     */
+    public void rebuild(Consumer<Consumer<Book>> source) {
+        lock.lock();
+        try {
+            pendingEvents = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        long start = System.nanoTime();
+        long[] count = {0};
+        try {
+            bookIndexes.forEach(BookIndex::clear);
+            source.accept(book -> {
+                bookIndexes.forEach(bookIndex -> bookIndex.put(book));
+                count[0]++;
+            });
+        } finally {
+            lock.lock();
+            try {
+                pendingEvents.forEach(this::apply);
+                pendingEvents = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+        built = true;
+        log.info("Indexed {} books into {} indexes in {} ms", count[0], bookIndexes.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Applies a committed book change to every index.
+     * @param event BookChangedEvent
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.lock();
+        try {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        apply(event);
+    }
+
+    private void apply(BookChangedEvent event) {
+        switch (event.type()) {
+            case CREATED, UPDATED -> bookIndexes.forEach(bookIndex -> bookIndex.put(event.book()));
+            case PATCHED -> bookIndexes.forEach(bookIndex -> bookIndex.patch(event.id(), event.book()));
+            case DELETED -> bookIndexes.forEach(bookIndex -> bookIndex.remove(event.id()));
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.aim.fictionalpubliclibrary.services.indexes;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the words of book titles and author names.
+ * Text is case-folded and split on anything that is not a letter or a digit. Each word maps to a
+ * sorted array of book IDs per field. A query matches the books that contain every query word in
+ * their title or author. Matches are ranked by score, where a word found in the title counts 2, in
+ * the author counts 1 and in both counts 3, and then by ID.
+ * Changes are applied once committed, and two commits to the same book can be applied out of order: the
+ * version of every indexed book is kept, a change older than it is ignored. A deleted book is remembered
+ * for library.indexes.tombstone-retention, so a late create or update of it is ignored too.
+ */
+@Component
+public class BookSearchIndex implements BookIndex {
+
+    private static final int TITLE_WEIGHT = 2;
+    private static final int AUTHOR_WEIGHT = 1;
+    private static final String[] NO_TOKENS = new String[0];
+
+    private final Map<String, PostingList> titleIndex = new HashMap<>();
+    private final Map<String, PostingList> authorIndex = new HashMap<>();
+    private final Map<Long, IndexedBook> indexedBooks = new HashMap<>();
+    private final BookTombstones removedBooks;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public BookSearchIndex(LibraryProperties libraryProperties) {
+        this.removedBooks = new BookTombstones(libraryProperties.getIndexes().getTombstoneRetention(),
+                Ticker.systemTicker());
+    }
+
+    /**
+     * A page of ranked search results.
+     *
+     * @param totalHits number of books matching the query
+     * @param ids IDs of the books of the requested page, best match first
+     */
+    public record SearchHits(int totalHits, long[] ids) {
+    }
+
+    @Override
+    public void put(Book book) {
+        String[] titleTokens = tokenize(book.getTitle());
+        String[] authorTokens = tokenize(book.getAuthor());
+        lock.writeLock().lock();
+        try {
+            IndexedBook indexedBook = indexedBooks.get(book.getId());
+            if (removedBooks.contains(book.getId())
+                    || (indexedBook != null && book.getVersion() < indexedBook.version())) {
+                return;
+            }
+            removeUnlocked(book.getId());
+            indexUnlocked(book.getId(), new IndexedBook(titleTokens, authorTokens, book.getVersion()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-indexes the changed words, the changes carry the version the patch produced.
+     */
+    @Override
+    public void patch(long id, Book changes) {
+        String[] titleTokens = changes.getTitle() == null ? null : tokenize(changes.getTitle());
+        String[] authorTokens = changes.getAuthor() == null ? null : tokenize(changes.getAuthor());
+        lock.writeLock().lock();
+        try {
+            IndexedBook indexedBook = indexedBooks.get(id);
+            if (indexedBook == null || changes.getVersion() < indexedBook.version()) {
+                return;
+            }
+            if (titleTokens == null && authorTokens == null) {
+                indexedBooks.put(id, new IndexedBook(indexedBook.titleTokens(), indexedBook.authorTokens(),
+                        changes.getVersion()));
+                return;
+            }
+            removeUnlocked(id);
+            indexUnlocked(id, new IndexedBook(
+                    titleTokens == null ? indexedBook.titleTokens() : titleTokens,
+                    authorTokens == null ? indexedBook.authorTokens() : authorTokens,
+                    changes.getVersion()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removedBooks.add(id);
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            titleIndex.clear();
+            authorIndex.clear();
+            indexedBooks.clear();
+            removedBooks.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the books whose title or author contain every word of the query.
+     *
+     * @param query free text, words are matched case-insensitively
+     * @param offset number of ranked matches to skip
+     * @param limit maximum number of IDs to return
+     * @return the total number of matches and the IDs of the requested page
+     */
+    public SearchHits search(String query, int offset, int limit) {
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0) {
+            return new SearchHits(0, new long[0]);
+        }
+        lock.readLock().lock();
+        try {
+            PostingList[] titlePostings = new PostingList[tokens.length];
+            PostingList[] authorPostings = new PostingList[tokens.length];
+            int rarest = 0;
+            int rarestSize = Integer.MAX_VALUE;
+            for (int i = 0; i < tokens.length; i++) {
+                titlePostings[i] = titleIndex.getOrDefault(tokens[i], PostingList.EMPTY);
+                authorPostings[i] = authorIndex.getOrDefault(tokens[i], PostingList.EMPTY);
+                int size = titlePostings[i].size + authorPostings[i].size;
+                if (size < rarestSize) {
+                    rarest = i;
+                    rarestSize = size;
+                }
+            }
+            if (rarestSize == 0) {
+                return new SearchHits(0, new long[0]);
+            }
+            // Walk the candidates of the rarest word and keep those that contain every other word
+            long[] candidates = PostingList.union(titlePostings[rarest], authorPostings[rarest]);
+            long[] matches = new long[candidates.length];
+            int[] scores = new int[candidates.length];
+            int maxScore = tokens.length * (TITLE_WEIGHT + AUTHOR_WEIGHT);
+            int[] countByScore = new int[maxScore + 1];
+            int matchCount = 0;
+            for (long id : candidates) {
+                int score = 0;
+                for (int i = 0; i < tokens.length && score >= 0; i++) {
+                    int wordScore = (titlePostings[i].contains(id) ? TITLE_WEIGHT : 0)
+                            + (authorPostings[i].contains(id) ? AUTHOR_WEIGHT : 0);
+                    score = wordScore == 0 ? -1 : score + wordScore;
+                }
+                if (score > 0) {
+                    matches[matchCount] = id;
+                    scores[matchCount++] = score;
+                    countByScore[score]++;
+                }
+            }
+            return new SearchHits(matchCount, rankedPage(matches, scores, matchCount, countByScore, offset, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of indexed books.
+     * @return int
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return indexedBooks.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of deleted books still remembered.
+     * @return long
+     */
+    long removedBooks() {
+        return removedBooks.size();
+    }
+
+    /**
+     * Splits text into distinct, lower-cased words made of letters and digits.
+     * @param text String, may be null
+     * @return the words, in order of first appearance
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return NO_TOKENS;
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        String folded = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens.toArray(NO_TOKENS);
+    }
+
+    /**
+     * Orders the matches by descending score, then ascending ID, and cuts out one page.
+     * Matches are already in ID order, so a counting sort over the small score range keeps this linear.
+     */
+    private static long[] rankedPage(long[] matches, int[] scores, int matchCount, int[] countByScore,
+                                     int offset, int limit) {
+        if (offset >= matchCount || limit <= 0) {
+            return new long[0];
+        }
+        int[] firstPosition = new int[countByScore.length];
+        int position = 0;
+        for (int score = countByScore.length - 1; score > 0; score--) {
+            firstPosition[score] = position;
+            position += countByScore[score];
+        }
+        long[] page = new long[Math.min(limit, matchCount - offset)];
+        for (int i = 0; i < matchCount; i++) {
+            int rank = firstPosition[scores[i]]++;
+            if (rank >= offset && rank < offset + page.length) {
+                page[rank - offset] = matches[i];
+            }
+        }
+        return page;
+    }
+
+    private void indexUnlocked(long id, IndexedBook indexedBook) {
+        for (String token : indexedBook.titleTokens()) {
+            titleIndex.computeIfAbsent(token, key -> new PostingList()).add(id);
+        }
+        for (String token : indexedBook.authorTokens()) {
+            authorIndex.computeIfAbsent(token, key -> new PostingList()).add(id);
+        }
+        indexedBooks.put(id, indexedBook);
+    }
+
+    private void removeUnlocked(long id) {
+        IndexedBook indexedBook = indexedBooks.remove(id);
+        if (indexedBook == null) {
+            return;
+        }
+        removePostings(titleIndex, indexedBook.titleTokens(), id);
+        removePostings(authorIndex, indexedBook.authorTokens(), id);
+    }
+
+    private static void removePostings(Map<String, PostingList> index, String[] tokens, long id) {
+        for (String token : tokens) {
+            PostingList postingList = index.get(token);
+            if (postingList != null && postingList.remove(id) && postingList.size == 0) {
+                index.remove(token);
+            }
+        }
+    }
+
+    /**
+     * The words a book was indexed under, needed to remove it again, and the version they were read from.
+     */
+    private record IndexedBook(String[] titleTokens, String[] authorTokens, long version) {
+    }
+
+    /**
+     * Sorted, growable array of book IDs.
+     */
+    private static final class PostingList {
+
+        static final PostingList EMPTY = new PostingList();
+
+        private long[] ids = new long[2];
+        private int size;
+
+        void add(long id) {
+            // IDs are assigned in increasing order, so appending is the common case
+            if (size > 0 && ids[size - 1] >= id) {
+                int position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return;
+                }
+                insertAt(-position - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(long id) {
+            return size > 0 && Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void insertAt(int position, long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        static long[] union(PostingList first, PostingList second) {
+            long[] union = new long[first.size + second.size];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < first.size || j < second.size) {
+                if (j == second.size || (i < first.size && first.ids[i] < second.ids[j])) {
+                    union[n++] = first.ids[i++];
+                } else if (i == first.size || second.ids[j] < first.ids[i]) {
+                    union[n++] = second.ids[j++];
+                } else {
+                    union[n++] = first.ids[i++];
+                    j++;
+                }
+            }
+            return n == union.length ? union : Arrays.copyOf(union, n);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.aim.fictionalpubliclibrary.services.indexes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+
+/**
+ * IDs of recently deleted books, so an index can ignore a create or update of a book that was applied after
+ * its deletion. Changes reach the indexes right after their commit, or when a rebuild replays the changes
+ * held back during it, so a stale change can only arrive shortly after the delete: an ID is remembered for
+ * a retention period and then dropped, which keeps the set bounded by the deletes of that period.
+ * IDs are never reused, so a remembered ID never hides a new book.
+ */
+final class BookTombstones {
+
+    private final Cache<Long, Boolean> removedBooks;
+
+    BookTombstones(Duration retention, Ticker ticker) {
+        this.removedBooks = Caffeine.newBuilder()
+                .expireAfterWrite(retention)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    void add(long id) {
+        removedBooks.put(id, Boolean.TRUE);
+    }
+
+    boolean contains(long id) {
+        return removedBooks.getIfPresent(id) != null;
+    }
+
+    void clear() {
+        removedBooks.invalidateAll();
+    }
+
+    /**
+     * Number of remembered IDs, after dropping the expired ones.
+     * @return long
+     */
+    long size() {
+        removedBooks.cleanUp();
+        return removedBooks.estimatedSize();
+    }
+}
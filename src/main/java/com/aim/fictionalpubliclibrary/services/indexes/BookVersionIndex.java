@@ -0,0 +1,87 @@
+package com.aim.fictionalpubliclibrary.services.indexes;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version of every book and a version of the whole catalog, used to answer
+ * conditional requests without going to the database.
+ * The catalog version changes with every change applied to the index, and starts from a different
+ * prefix on every start, so a version handed out before a restart never matches after it.
+ * Changes are applied once committed, a request arriving in between can still see the previous values.
+ * Two commits to the same book can be applied out of order, a book only ever moves to a higher version,
+ * so the index still ends up with the version of the last commit. A deleted book is remembered for
+ * library.indexes.tombstone-retention, so a create or update of it applied after the delete does not
+ * bring its version back.
+ */
+@Component
+public class BookVersionIndex implements BookIndex {
+
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong changes = new AtomicLong();
+    private final BookTombstones removedBooks;
+
+    public BookVersionIndex(LibraryProperties libraryProperties) {
+        this.removedBooks = new BookTombstones(libraryProperties.getIndexes().getTombstoneRetention(),
+                Ticker.systemTicker());
+    }
+
+    @Override
+    public void put(Book book) {
+        versions.compute(book.getId(), (id, previous) -> {
+            if (removedBooks.contains(id)) {
+                return previous;
+            }
+            return previous == null ? book.getVersion() : Math.max(previous, book.getVersion());
+        });
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Moves an indexed book to the version of the changes, which carry the version the patch produced.
+     */
+    @Override
+    public void patch(long id, Book changes) {
+        versions.computeIfPresent(id, (key, previous) -> Math.max(previous, changes.getVersion()));
+        this.changes.incrementAndGet();
+    }
+
+    @Override
+    public void remove(long id) {
+        // Remembered first, so a put running concurrently either sees it or is removed right after
+        removedBooks.add(id);
+        versions.remove(id);
+        changes.incrementAndGet();
+    }
+
+    @Override
+    public void clear() {
+        versions.clear();
+        removedBooks.clear();
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Version of a book.
+     * @param id ID of the book
+     * @return Long, null if the book is not indexed
+     */
+    public Long version(long id) {
+        return versions.get(id);
+    }
+
+    /**
+     * Opaque version of the catalog, different whenever any book was created, changed or deleted since.
+     * @return String
+     */
+    public String catalogVersion() {
+        return epoch + "." + changes.get();
+    }
+}
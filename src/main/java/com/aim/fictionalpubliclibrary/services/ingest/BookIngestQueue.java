@@ -0,0 +1,222 @@
+package com.aim.fictionalpubliclibrary.services.ingest;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.exceptions.ResourceNotFoundException;
+import com.aim.fictionalpubliclibrary.exceptions.TooManyRequestsException;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind path for creating books: requests are queued and answered right away with a ticket,
+ * a single writer thread creates the queued books later.
+ * The writer takes every book waiting in the queue, up to library.ingest.max-batch-size, and creates them
+ * with one createBooks call, so a burst costs one transaction and one commit per group instead of one per
+ * book. When a group fails, e.g. on a duplicate ISBN, its books are created one by one so only the failing
+ * ones fail. The queue is bounded, when it is full new books are rejected with TooManyRequestsException.
+ * The queue size is published as "library.ingest.queue.size" and the group sizes as "library.ingest.batch.size".
+ * On shutdown, new books are rejected and the books already queued are written before the writer exits.
+ */
+@Service
+@Log4j2
+public class BookIngestQueue implements SmartLifecycle {
+
+    static final String QUEUE_GAUGE = "library.ingest.queue.size";
+    static final String BATCH_SUMMARY = "library.ingest.batch.size";
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+    private static final long POLL_MILLIS = 100;
+
+    private final BookService bookService;
+    private final BlockingQueue<PendingBook> queue;
+    private final int maxBatchSize;
+    private final Duration shutdownTimeout;
+    private final Cache<String, Ticket> tickets;
+    private final DistributionSummary batchSizes;
+    private volatile boolean accepting = true;
+    private volatile boolean running;
+    private Thread writer;
+
+    public BookIngestQueue(BookService bookService, LibraryProperties libraryProperties, MeterRegistry meterRegistry) {
+        this.bookService = bookService;
+        LibraryProperties.Ingest ingest = libraryProperties.getIngest();
+        this.queue = new ArrayBlockingQueue<>(ingest.getQueueCapacity());
+        this.maxBatchSize = ingest.getMaxBatchSize();
+        this.shutdownTimeout = ingest.getShutdownTimeout();
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterWrite(ingest.getTicketRetention())
+                .maximumSize(ingest.getMaxTickets())
+                .build();
+        Gauge.builder(QUEUE_GAUGE, queue, BlockingQueue::size)
+                .description("Books waiting to be written by the ingest writer")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder(BATCH_SUMMARY)
+                .description("Books written per ingest transaction")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Outcome of a queued book.
+     */
+    public enum Status {
+        PENDING,
+        CREATED,
+        FAILED
+    }
+
+    /**
+     * State of a queued book.
+     *
+     * @param id the ticket ID
+     * @param status where the book is
+     * @param bookId ID of the created book, null unless CREATED
+     * @param error why the book was not created, null unless FAILED
+     */
+    public record Ticket(String id, Status status, Long bookId, String error) {
+    }
+
+    private record PendingBook(String ticketId, BookRequestDTO bookRequestDTO) {
+    }
+
+    /**
+     * Queues a validated book to be created by the writer.
+     * @param bookRequestDTO BookRequestDTO
+     * @return the PENDING Ticket
+     * @throws TooManyRequestsException if the queue is full or shutting down
+     */
+    public Ticket submit(BookRequestDTO bookRequestDTO) {
+        if (!accepting) {
+            throw new TooManyRequestsException("Book ingestion is shutting down", RETRY_AFTER);
+        }
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), Status.PENDING, null, null);
+        tickets.put(ticket.id(), ticket);
+        if (!queue.offer(new PendingBook(ticket.id(), bookRequestDTO))) {
+            tickets.invalidate(ticket.id());
+            throw new TooManyRequestsException("Book ingestion queue is full", RETRY_AFTER);
+        }
+        return ticket;
+    }
+
+    /**
+     * Looks up a ticket.
+     * @param ticketId String
+     * @return Ticket
+     * @throws ResourceNotFoundException if the ticket is unknown or expired
+     */
+    public Ticket getTicket(String ticketId) {
+        Ticket ticket = tickets.getIfPresent(ticketId);
+        if (ticket == null) {
+            throw new ResourceNotFoundException("Ticket", "id", ticketId);
+        }
+        return ticket;
+    }
+
+    /**
+     * Writes the next group of queued books, waiting up to the timeout for the first one.
+     * @return number of books taken from the queue, 0 if none arrived in time
+     */
+    int writeNextBatch(long timeout, TimeUnit unit) throws InterruptedException {
+        PendingBook first = queue.poll(timeout, unit);
+        if (first == null) {
+            return 0;
+        }
+        List<PendingBook> batch = new ArrayList<>(Math.min(maxBatchSize, queue.size() + 1));
+        batch.add(first);
+        queue.drainTo(batch, maxBatchSize - 1);
+        write(batch);
+        return batch.size();
+    }
+
+    private void write(List<PendingBook> batch) {
+        batchSizes.record(batch.size());
+        List<Book> created;
+        try {
+            // Books are converted for every attempt, a failed one may have left IDs on the entities
+            created = bookService.createBooks(batch.stream()
+                    .map(pendingBook -> BookRequestDTO.toBook(pendingBook.bookRequestDTO()))
+                    .toList());
+        } catch (RuntimeException e) {
+            log.debug("Ingest batch of {} books failed, writing them one by one", batch.size(), e);
+            batch.forEach(this::writeAlone);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i).ticketId(), created.get(i).getId());
+        }
+    }
+
+    private void writeAlone(PendingBook pendingBook) {
+        try {
+            complete(pendingBook.ticketId(),
+                    bookService.createBook(BookRequestDTO.toBook(pendingBook.bookRequestDTO())).getId());
+        } catch (RuntimeException e) {
+            tickets.put(pendingBook.ticketId(), new Ticket(pendingBook.ticketId(), Status.FAILED, null, e.getMessage()));
+        }
+    }
+
+    private void complete(String ticketId, long bookId) {
+        tickets.put(ticketId, new Ticket(ticketId, Status.CREATED, bookId, null));
+    }
+
+    private void runWriter() {
+        while (running || !queue.isEmpty()) {
+            try {
+                writeNextBatch(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Ingest writer failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        accepting = true;
+        running = true;
+        writer = Thread.ofPlatform().name("book-ingest-writer").start(this::runWriter);
+    }
+
+    @Override
+    public void stop() {
+        accepting = false;
+        running = false;
+        try {
+            writer.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("{} queued books were not written before shutdown", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after the web server, so requests accepted while it drains are still written.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
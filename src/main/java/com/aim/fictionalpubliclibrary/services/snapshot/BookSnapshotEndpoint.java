@@ -0,0 +1,34 @@
+package com.aim.fictionalpubliclibrary.services.snapshot;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Actuator endpoint saving the catalog to its snapshot on demand: POST /actuator/snapshot.
+ * Available when library.snapshot.file is set and "snapshot" is in management.endpoints.web.exposure.include.
+ */
+@Component
+@Endpoint(id = "snapshot")
+@ConditionalOnProperty(prefix = "library.snapshot", name = "file")
+public class BookSnapshotEndpoint {
+
+    private final BookSnapshotService bookSnapshotService;
+
+    public BookSnapshotEndpoint(BookSnapshotService bookSnapshotService) {
+        this.bookSnapshotService = bookSnapshotService;
+    }
+
+    /**
+     * Saves every book to the snapshot file.
+     * @return the number of books saved, the size of the file and how long it took
+     * @throws IOException if the snapshot cannot be written
+     */
+    @WriteOperation
+    public BookSnapshotService.SnapshotResult save() throws IOException {
+        return bookSnapshotService.save();
+    }
+}
@@ -0,0 +1,263 @@
+package com.aim.fictionalpubliclibrary.services.snapshot;
+
+import com.aim.fictionalpubliclibrary.models.Book;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary format of book snapshots, numbers are big-endian:
+ * <pre>
+ * header   int magic ("FPLB"), short format version
+ * book     int length of the rest of the record, long id, long version, long createdAt, long lastModifiedAt,
+ *          int publishedYear, then title, author, isbn and genre, each as an int length and its UTF-8 bytes
+ * end      int 0, long number of books
+ * trailer  int CRC32C of every byte before it
+ * </pre>
+ * Dates are epoch milliseconds, Long.MIN_VALUE for null, and a null string has length -1.
+ * isbn13 is not stored, setIsbn derives it again. The record length lets a later version append fields
+ * that this reader skips.
+ */
+final class BookSnapshotFormat {
+
+    static final int MAGIC = 0x46504C42;
+    static final short VERSION = 1;
+
+    private static final int HEADER_BYTES = Integer.BYTES + Short.BYTES;
+    private static final int END_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int TRAILER_BYTES = Integer.BYTES;
+    private static final int FIXED_RECORD_BYTES = 4 * Long.BYTES + Integer.BYTES + 4 * Integer.BYTES;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BookSnapshotFormat() {
+    }
+
+    /**
+     * Writes books to a snapshot file, replacing its content. Not thread-safe.
+     */
+    static final class Writer implements Closeable {
+
+        private final CRC32C checksum = new CRC32C();
+        private final DataOutputStream out;
+        private long count;
+
+        Writer(Path file) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Files.newOutputStream(file), checksum), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+        }
+
+        void write(Book book) throws IOException {
+            byte[] title = encode(book.getTitle());
+            byte[] author = encode(book.getAuthor());
+            byte[] isbn = encode(book.getIsbn());
+            byte[] genre = encode(book.getGenre());
+            out.writeInt(FIXED_RECORD_BYTES + length(title) + length(author) + length(isbn) + length(genre));
+            out.writeLong(book.getId());
+            out.writeLong(book.getVersion());
+            out.writeLong(book.getCreatedAt() == null ? NULL_DATE : book.getCreatedAt().getTime());
+            out.writeLong(book.getLastModifiedAt() == null ? NULL_DATE : book.getLastModifiedAt().getTime());
+            out.writeInt(book.getPublishedYear());
+            writeString(title);
+            writeString(author);
+            writeString(isbn);
+            writeString(genre);
+            count++;
+        }
+
+        /**
+         * Writes the end of the snapshot and its checksum, the file is complete once this returns.
+         * @return number of books written
+         */
+        long finish() throws IOException {
+            out.writeInt(0);
+            out.writeLong(count);
+            // Pushes every byte through the checksum before reading it
+            out.flush();
+            out.writeInt((int) checksum.getValue());
+            out.flush();
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private void writeString(byte[] value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            out.writeInt(value.length);
+            out.write(value);
+        }
+
+        private static byte[] encode(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static int length(byte[] value) {
+            return value == null ? 0 : value.length;
+        }
+    }
+
+    /**
+     * Reads the books of a snapshot file, in the order they were written. The checksum of the whole file is
+     * verified when the reader is opened, before any book is returned. Not thread-safe.
+     */
+    static final class Reader implements Iterator<Book>, Closeable {
+
+        private final Path file;
+        private final DataInputStream in;
+        private byte[] record = new byte[256];
+        private long count;
+        private Book next;
+
+        /**
+         * @throws IOException if the file cannot be read, is not a snapshot, or is truncated or corrupt
+         */
+        Reader(Path file) throws IOException {
+            this.file = file;
+            verifyChecksum(file);
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException(file + " is not a book snapshot");
+                }
+                short version = in.readShort();
+                if (version != VERSION) {
+                    throw new IOException(file + " has unsupported snapshot format version " + version);
+                }
+                advance();
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        /**
+         * @throws UncheckedIOException if the following record cannot be read
+         */
+        @Override
+        public Book next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Book book = next;
+            try {
+                advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return book;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void advance() throws IOException {
+            int length = in.readInt();
+            if (length == 0) {
+                long expected = in.readLong();
+                if (expected != count) {
+                    throw new IOException(file + " ends after " + count + " books but says it holds " + expected);
+                }
+                next = null;
+                return;
+            }
+            if (length < FIXED_RECORD_BYTES) {
+                throw new IOException(file + " has a book record of " + length + " bytes");
+            }
+            if (length > record.length) {
+                record = Arrays.copyOf(record, Math.max(length, record.length * 2));
+            }
+            in.readFully(record, 0, length);
+            ByteBuffer buffer = ByteBuffer.wrap(record, 0, length);
+            Book book = new Book();
+            book.setId(buffer.getLong());
+            book.setVersion(buffer.getLong());
+            book.setCreatedAt(readDate(buffer));
+            book.setLastModifiedAt(readDate(buffer));
+            book.setPublishedYear(buffer.getInt());
+            book.setTitle(readString(buffer));
+            book.setAuthor(readString(buffer));
+            book.setIsbn(readString(buffer));
+            book.setGenre(readString(buffer));
+            next = book;
+            count++;
+        }
+
+        private static Date readDate(ByteBuffer buffer) {
+            long millis = buffer.getLong();
+            return millis == NULL_DATE ? null : new Date(millis);
+        }
+
+        private String readString(ByteBuffer buffer) throws IOException {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            if (length > buffer.remaining()) {
+                throw new IOException(file + " has a string running past the end of its book record");
+            }
+            String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+
+        private static void verifyChecksum(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < HEADER_BYTES + END_BYTES + TRAILER_BYTES) {
+                    throw new IOException(file + " is too short to be a book snapshot");
+                }
+                CRC32C checksum = new CRC32C();
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE * 16);
+                long position = 0;
+                long checkedSize = size - TRAILER_BYTES;
+                while (position < checkedSize) {
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), checkedSize - position));
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException(file + " was truncated while reading it");
+                    }
+                    buffer.flip();
+                    checksum.update(buffer);
+                    position += read;
+                }
+                ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+                if (channel.read(trailer, checkedSize) != TRAILER_BYTES
+                        || trailer.getInt(0) != (int) checksum.getValue()) {
+                    throw new IOException(file + " is corrupt, its checksum does not match its content");
+                }
+            }
+        }
+    }
+}
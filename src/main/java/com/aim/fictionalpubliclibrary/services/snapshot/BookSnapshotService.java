@@ -0,0 +1,207 @@
+package com.aim.fictionalpubliclibrary.services.snapshot;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import com.aim.fictionalpubliclibrary.services.indexes.BookIndexMaintainer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the catalog across restarts of the in-memory database in a binary snapshot file, see
+ * {@link BookSnapshotFormat}. At startup, before the web server accepts requests, the snapshot is loaded
+ * into the database with its IDs and versions, so ETags and links to books survive the restart, and into
+ * the in-memory indexes, which are then not built again from the database before the application reports ready.
+ * At shutdown, after the web server and the ingest queue are stopped, the catalog is saved again;
+ * it can also be saved on demand through the "snapshot" actuator endpoint.
+ * A snapshot is written to a temporary file moved over the previous one, so a crash while saving leaves
+ * the previous snapshot intact. A snapshot that fails its checksum stops the startup, rather than the
+ * application starting empty and overwriting it at shutdown.
+ * Enabled by setting library.snapshot.file.
+ */
+@Service
+@Log4j2
+@ConditionalOnProperty(prefix = "library.snapshot", name = "file")
+public class BookSnapshotService implements SmartLifecycle {
+
+    private final BookService bookService;
+    private final BookIndexMaintainer bookIndexMaintainer;
+    private final Path file;
+    private final boolean restoreOnStartup;
+    private final boolean saveOnShutdown;
+    private final int batchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean running;
+
+    public BookSnapshotService(BookService bookService, BookIndexMaintainer bookIndexMaintainer,
+                               LibraryProperties libraryProperties) {
+        this.bookService = bookService;
+        this.bookIndexMaintainer = bookIndexMaintainer;
+        LibraryProperties.Snapshot snapshot = libraryProperties.getSnapshot();
+        this.file = Path.of(snapshot.getFile());
+        this.restoreOnStartup = snapshot.isRestoreOnStartup();
+        this.saveOnShutdown = snapshot.isSaveOnShutdown();
+        this.batchSize = snapshot.getBatchSize();
+    }
+
+    /**
+     * Outcome of a save or a restore.
+     *
+     * @param file the snapshot file
+     * @param books number of books saved or restored
+     * @param bytes size of the snapshot file
+     * @param elapsedMillis how long it took
+     */
+    public record SnapshotResult(String file, long books, long bytes, long elapsedMillis) {
+    }
+
+    /**
+     * Saves every book to the snapshot file, replacing the previous snapshot.
+     * Steps:
+     * 1. Stream the books from the database into a temporary file next to the snapshot.
+     * 2. Write the number of books and the checksum.
+     * 3. Move the temporary file over the snapshot.
+     * @return SnapshotResult
+     * @throws IOException if the snapshot cannot be written
+     */
+    public SnapshotResult save() throws IOException {
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            Path absolute = file.toAbsolutePath();
+            Files.createDirectories(absolute.getParent());
+            Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+            long books;
+            try (BookSnapshotFormat.Writer writer = new BookSnapshotFormat.Writer(temporary)) {
+                bookService.exportBooks(book -> {
+                    try {
+                        writer.write(book);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                books = writer.finish();
+            } catch (UncheckedIOException e) {
+                Files.deleteIfExists(temporary);
+                throw e.getCause();
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            SnapshotResult result = new SnapshotResult(file.toString(), books, Files.size(absolute),
+                    (System.nanoTime() - start) / 1_000_000);
+            log.info("Saved {} books to snapshot {} ({} bytes) in {} ms", result.books(), result.file(),
+                    result.bytes(), result.elapsedMillis());
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads the books of the snapshot file into the database.
+     * Steps:
+     * 1. Verify the checksum of the whole file.
+     * 2. Insert the books with their IDs, versions and timestamps, one transaction per library.snapshot.batch-size
+     *    books, so the database does not hold a whole catalog of uncommitted rows.
+     * 3. Build the in-memory indexes from the same books, rather than from the database afterward.
+     * @return SnapshotResult
+     * @throws IOException if the snapshot cannot be read, or is truncated or corrupt
+     * @throws org.springframework.dao.DataIntegrityViolationException if the database already has some of the books
+     */
+    public SnapshotResult restore() throws IOException {
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            long[] books = {0};
+            try (BookSnapshotFormat.Reader reader = new BookSnapshotFormat.Reader(file)) {
+                bookIndexMaintainer.rebuild(index -> {
+                    List<Book> batch = new ArrayList<>(batchSize);
+                    while (reader.hasNext()) {
+                        Book book = reader.next();
+                        index.accept(book);
+                        batch.add(book);
+                        if (batch.size() == batchSize || !reader.hasNext()) {
+                            bookService.restoreBooks(batch);
+                            books[0] += batch.size();
+                            batch.clear();
+                        }
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            SnapshotResult result = new SnapshotResult(file.toString(), books[0], Files.size(file),
+                    (System.nanoTime() - start) / 1_000_000);
+            log.info("Restored {} books from snapshot {} ({} bytes) in {} ms", result.books(), result.file(),
+                    result.bytes(), result.elapsedMillis());
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Restores the snapshot, if there is one and the database has no books yet.
+     * @throws UncheckedIOException if the snapshot cannot be restored, which stops the startup
+     */
+    @Override
+    public void start() {
+        running = true;
+        if (!restoreOnStartup) {
+            return;
+        }
+        if (!Files.exists(file)) {
+            log.info("No book snapshot at {}, starting with the books already in the database", file);
+            return;
+        }
+        if (!bookService.getBookResponsesAfter(0, 1).isEmpty()) {
+            log.warn("The database already has books, not restoring snapshot {}", file);
+            return;
+        }
+        try {
+            restore();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot restore book snapshot " + file, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (!saveOnShutdown) {
+            return;
+        }
+        try {
+            save();
+        } catch (IOException | RuntimeException e) {
+            log.error("Cannot save book snapshot {} at shutdown", file, e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after the web server and the ingest queue, so the catalog is restored before
+     * the first request and saved after the last write.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+}
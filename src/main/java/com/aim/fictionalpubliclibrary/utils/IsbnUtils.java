@@ -0,0 +1,86 @@
+package com.aim.fictionalpubliclibrary.utils;
+
+/**
+ * Helpers for validating ISBNs and converting them to their canonical ISBN-13 form.
+ */
+public final class IsbnUtils {
+
+    private IsbnUtils() {
+    }
+
+    /**
+     * Converts an ISBN-10 or ISBN-13 to its canonical ISBN-13 form.
+     * Hyphens and spaces are ignored, an ISBN-10 gets the "978" prefix and a new check digit.
+     *
+     * @param isbn the ISBN to convert, may be null
+     * @return the 13 digits of the ISBN-13, or null if the input is not a valid ISBN
+     */
+    public static String toIsbn13(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(13);
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c != '-' && c != ' ') {
+                digits.append(c);
+            }
+        }
+        if (digits.length() == 10) {
+            return isValidIsbn10(digits) ? isbn10ToIsbn13(digits) : null;
+        }
+        if (digits.length() == 13) {
+            return isValidIsbn13(digits) ? digits.toString() : null;
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a string is a valid ISBN-10 or ISBN-13.
+     *
+     * @param isbn the ISBN to check, may be null
+     * @return true if the ISBN has a valid length, digits and check digit
+     */
+    public static boolean isValid(String isbn) {
+        return toIsbn13(isbn) != null;
+    }
+
+    private static boolean isValidIsbn10(CharSequence digits) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = digits.charAt(i);
+            int value;
+            if (c >= '0' && c <= '9') {
+                value = c - '0';
+            } else if (i == 9 && (c == 'X' || c == 'x')) {
+                value = 10;
+            } else {
+                return false;
+            }
+            sum += value * (10 - i);
+        }
+        return sum % 11 == 0;
+    }
+
+    private static boolean isValidIsbn13(CharSequence digits) {
+        for (int i = 0; i < 13; i++) {
+            if (digits.charAt(i) < '0' || digits.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return isbn13CheckDigit(digits) == digits.charAt(12) - '0';
+    }
+
+    private static String isbn10ToIsbn13(CharSequence isbn10) {
+        StringBuilder isbn13 = new StringBuilder(13).append("978").append(isbn10, 0, 9);
+        return isbn13.append(isbn13CheckDigit(isbn13)).toString();
+    }
+
+    private static int isbn13CheckDigit(CharSequence digits) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
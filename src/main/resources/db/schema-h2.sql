@@ -0,0 +1,19 @@
+-- Schema of the fast-start profile, where Hibernate does not generate it (see application-fast-start.properties).
+-- Must match the entity mappings, FastStartSchemaTest validates it against them.
+-- IF NOT EXISTS keeps the script harmless on a database that already has the schema.
+CREATE SEQUENCE IF NOT EXISTS book_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS book (
+    id               BIGINT       NOT NULL,
+    version          BIGINT       NOT NULL,
+    created_at       TIMESTAMP(6),
+    last_modified_at TIMESTAMP(6),
+    title            VARCHAR(255),
+    author           VARCHAR(255),
+    isbn             VARCHAR(255),
+    isbn13           VARCHAR(255),
+    published_year   INTEGER      NOT NULL,
+    genre            VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT ux_book_isbn13 UNIQUE (isbn13)
+);
@@ -0,0 +1,117 @@
+package com.aim.fictionalpubliclibrary.benchmarks;
+
+import com.aim.fictionalpubliclibrary.FictionalPublicLibraryApplication;
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.repositories.BookRepository;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import com.aim.fictionalpubliclibrary.services.indexes.BookIndexMaintainer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows inserted per second through BookService against the in-memory H2 database, in process and without HTTP:
+ * one createBooks call per batchSize books (one transaction, flushed as JDBC batches of
+ * library.batch.chunk-size) against batchSize createBook calls (one transaction and one INSERT each).
+ * The score is calls of the benchmark method per second, each inserting batchSize books. The rows inserted
+ * per second are reported as the "rows" secondary result, which is the number to compare across batch sizes.
+ * The table is emptied and the in-memory indexes rebuilt after each iteration, so every iteration starts
+ * from the same catalog size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookBatchInsertBenchmark {
+
+    @Param({"1", "50", "500", "5000"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private BookRepository bookRepository;
+    private BookIndexMaintainer bookIndexMaintainer;
+    private long nextSequence;
+
+    /**
+     * Rows inserted, reported by JMH per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FictionalPublicLibraryApplication.class)
+                .web(WebApplicationType.NONE)
+                // Command line arguments, so they take precedence over application.properties
+                .run("--logging.level.root=warn",
+                        "--logging.level.com.aim=warn",
+                        "--spring.h2.console.enabled=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.autoconfigure.exclude="
+                                + "org.springframework.boot.devtools.autoconfigure.DevToolsDataSourceAutoConfiguration");
+        bookService = context.getBean(BookService.class);
+        bookRepository = context.getBean(BookRepository.class);
+        bookIndexMaintainer = context.getBean(BookIndexMaintainer.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void emptyCatalog() {
+        bookRepository.deleteAllInBatch();
+        bookIndexMaintainer.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Book> createBooks(Rows rows) {
+        List<Book> created = bookService.createBooks(nextBooks());
+        rows.rows += created.size();
+        return created;
+    }
+
+    @Benchmark
+    public void createBookOneByOne(Rows rows, Blackhole blackhole) {
+        for (Book book : nextBooks()) {
+            blackhole.consume(bookService.createBook(book));
+            rows.rows++;
+        }
+    }
+
+    private List<Book> nextBooks() {
+        List<Book> books = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            BookRequestDTO book = BookFixtures.book(nextSequence++);
+            books.add(BookRequestDTO.toBook(book));
+        }
+        return books;
+    }
+}
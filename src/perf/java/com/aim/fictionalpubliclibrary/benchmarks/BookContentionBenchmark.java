@@ -0,0 +1,139 @@
+package com.aim.fictionalpubliclibrary.benchmarks;
+
+import com.aim.fictionalpubliclibrary.FictionalPublicLibraryApplication;
+import com.aim.fictionalpubliclibrary.controllers.BookController;
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.exceptions.PreconditionFailedException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent writers updating the same few books through BookController, in process and against the
+ * in-memory H2 database. Each write reads the book's ETag and sends it back in If-Match, a writer that
+ * loses the race gets 412 and retries with a fresh ETag, so the score counts successful writes only.
+ * hotBooks sets the contention: with 1 every writer fights for the same row.
+ * The conflicts and retries per trial are reported as the "conflicts" secondary result.
+ * patchBlind is the unconditional PATCH (last writer wins) for comparison.
+ * Writer count defaults to 4 threads, -t on the JMH command line changes it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class BookContentionBenchmark {
+
+    @Param({"1", "64"})
+    public int hotBooks;
+
+    private ConfigurableApplicationContext context;
+    private BookController bookController;
+    // No conditional headers, reads always return the book and its current ETag
+    private final WebRequest webRequest = new ServletWebRequest(new MockHttpServletRequest());
+    private long firstId;
+    private JsonNode patch;
+
+    /**
+     * Lost races of one writer thread, summed by JMH over the threads.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Conflicts {
+        public long conflicts;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(FictionalPublicLibraryApplication.class)
+                .web(WebApplicationType.NONE)
+                // Command line arguments, so they take precedence over application.properties
+                .run("--logging.level.root=warn",
+                        "--logging.level.com.aim=warn",
+                        "--spring.h2.console.enabled=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.autoconfigure.exclude="
+                                + "org.springframework.boot.devtools.autoconfigure.DevToolsDataSourceAutoConfiguration");
+        bookController = context.getBean(BookController.class);
+
+        List<BookRequestDTO> books = new ArrayList<>(hotBooks);
+        for (int i = 0; i < hotBooks; i++) {
+            books.add(BookFixtures.book(i));
+        }
+        firstId = bookController.createBooks(books).getBody().get(0).getId();
+        patch = context.getBean(ObjectMapper.class).readTree("{\"genre\":\"Contended\"}");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object putWithIfMatch(Conflicts conflicts) {
+        long id = hotId();
+        // Hot book i was seeded from sequence i, keeping its ISBN avoids duplicate conflicts
+        BookRequestDTO changes = BookFixtures.book(id - firstId).toBuilder()
+                .title("Title " + ThreadLocalRandom.current().nextInt())
+                .build();
+        while (true) {
+            String eTag = bookController.getBookById(id, webRequest).getHeaders().getETag();
+            try {
+                return bookController.updateBook(id, changes, eTag);
+            } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+                conflicts.conflicts++;
+            }
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> patchWithIfMatch(Conflicts conflicts) {
+        long id = hotId();
+        while (true) {
+            String eTag = bookController.getBookById(id, webRequest).getHeaders().getETag();
+            try {
+                return bookController.patchBook(id, patch, eTag);
+            } catch (PreconditionFailedException e) {
+                conflicts.conflicts++;
+            }
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> patchBlind() {
+        return bookController.patchBook(hotId(), patch, null);
+    }
+
+    private long hotId() {
+        return firstId + ThreadLocalRandom.current().nextInt(hotBooks);
+    }
+}
@@ -0,0 +1,108 @@
+package com.aim.fictionalpubliclibrary.benchmarks;
+
+import com.aim.fictionalpubliclibrary.FictionalPublicLibraryApplication;
+import com.aim.fictionalpubliclibrary.controllers.BookController;
+import com.aim.fictionalpubliclibrary.dtos.BookPageDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end BookController calls against the in-memory H2 database, in process and without HTTP.
+ * Each trial boots the application context, seeds the catalog through the batch create path and
+ * shuts the context down afterwards.
+ * Batch against single inserts and DTO projection against entity reads are measured at the service and
+ * repository level by {@link BookBatchInsertBenchmark} and {@link BookProjectionBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookControllerBenchmark {
+
+    @Param({"10000"})
+    public int catalogSize;
+
+    @Param({"true", "false"})
+    public String cacheEnabled;
+
+    private ConfigurableApplicationContext context;
+    private BookController bookController;
+    // No conditional headers, every call goes all the way to the service
+    private final WebRequest webRequest = new ServletWebRequest(new MockHttpServletRequest());
+    private long firstId;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FictionalPublicLibraryApplication.class)
+                .web(WebApplicationType.NONE)
+                // Command line arguments, so they take precedence over application.properties
+                .run("--logging.level.root=warn",
+                        "--logging.level.com.aim=warn",
+                        "--spring.h2.console.enabled=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.autoconfigure.exclude="
+                                + "org.springframework.boot.devtools.autoconfigure.DevToolsDataSourceAutoConfiguration",
+                        "--library.cache.enabled=" + cacheEnabled);
+        bookController = context.getBean(BookController.class);
+
+        List<BookRequestDTO> books = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            books.add(BookFixtures.book(i));
+        }
+        firstId = bookController.createBooks(books).getBody().get(0).getId();
+        nextSequence.set(catalogSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<BookResponseDTO> getBookById() {
+        return bookController.getBookById(firstId + ThreadLocalRandom.current().nextInt(catalogSize), webRequest);
+    }
+
+    @Benchmark
+    public ResponseEntity<BookPageDTO> getBooksPage() {
+        // Key-set page of the default size starting at a random position in the catalog
+        long after = firstId - 1 + ThreadLocalRandom.current().nextInt(catalogSize);
+        return bookController.getAllBooks(BookPageDTO.encodeCursor(after), null, webRequest);
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> createAndDeleteBook() {
+        BookRequestDTO book = BookFixtures.book(nextSequence.getAndIncrement());
+        Long id = bookController.createBook(book).getBody().getId();
+        return bookController.deleteBook(id, null);
+    }
+}
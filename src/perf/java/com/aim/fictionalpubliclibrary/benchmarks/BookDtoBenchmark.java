@@ -0,0 +1,73 @@
+package com.aim.fictionalpubliclibrary.benchmarks;
+
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.models.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request conversions and validation on the create, read and update paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookDtoBenchmark {
+
+    private BookRequestDTO bookRequestDTO;
+    private Book book;
+    private Book changes;
+
+    @Setup
+    public void setUp() {
+        bookRequestDTO = BookRequestDTO.builder()
+                .title("The Left Hand of Darkness")
+                .author("Ursula K. Le Guin")
+                .isbn("978-0-441-47812-5")
+                .publishedYear(1969)
+                .genre("Science Fiction")
+                .build();
+        book = BookRequestDTO.toBook(bookRequestDTO);
+        book.setId(42L);
+        changes = new Book();
+        changes.setTitle("The Dispossessed");
+        changes.setPublishedYear(1974);
+    }
+
+    @Benchmark
+    public BookRequestDTO validate() {
+        BookRequestDTO.validate(bookRequestDTO);
+        return bookRequestDTO;
+    }
+
+    @Benchmark
+    public Book toBook() {
+        return BookRequestDTO.toBook(bookRequestDTO);
+    }
+
+    @Benchmark
+    public BookResponseDTO fromBook() {
+        return BookResponseDTO.fromBook(book);
+    }
+
+    @Benchmark
+    public void updateBook(Blackhole blackhole) {
+        // Merge into a fresh copy, merging into the same instance again would skip the field writes
+        Book target = BookRequestDTO.toBook(bookRequestDTO);
+        blackhole.consume(Book.updateBook(target, changes));
+    }
+}
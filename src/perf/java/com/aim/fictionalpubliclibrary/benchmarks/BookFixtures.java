@@ -0,0 +1,46 @@
+package com.aim.fictionalpubliclibrary.benchmarks;
+
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+
+/**
+ * Deterministic book data for benchmarks and load tests.
+ * Every sequence number maps to its own valid ISBN-13, so seeded and created books never collide
+ * on the unique ISBN index.
+ */
+public final class BookFixtures {
+
+    private static final String[] GENRES = {"Fantasy", "Science Fiction", "Mystery", "History", "Poetry",
+            "Biography", "Romance", "Horror"};
+
+    private BookFixtures() {
+    }
+
+    /**
+     * Builds a valid book request for the given sequence number.
+     * @param sequence a number in [0, 1_000_000_000)
+     * @return BookRequestDTO
+     */
+    public static BookRequestDTO book(long sequence) {
+        return BookRequestDTO.builder()
+                .title("Title " + sequence)
+                .author("Author " + (sequence % 997))
+                .isbn(isbn13(sequence))
+                .publishedYear(1900 + (int) (sequence % 125))
+                .genre(GENRES[(int) (sequence % GENRES.length)])
+                .build();
+    }
+
+    /**
+     * Builds the ISBN-13 979 + sequence (zero padded to 9 digits) + check digit.
+     * @param sequence a number in [0, 1_000_000_000)
+     * @return ISBN-13 without hyphens
+     */
+    public static String isbn13(long sequence) {
+        String digits = "979" + String.format("%09d", sequence);
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+}
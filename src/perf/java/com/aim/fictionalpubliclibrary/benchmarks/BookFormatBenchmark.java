@@ -0,0 +1,87 @@
+package com.aim.fictionalpubliclibrary.benchmarks;
+
+import com.aim.fictionalpubliclibrary.config.BookProtobufHttpMessageConverter;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding a list of books with the message converter of each format the API negotiates,
+ * configured as Spring MVC configures them. The encoded size of the list is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookFormatBenchmark {
+
+    private static final Type BOOK_LIST = new ParameterizedTypeReference<List<BookResponseDTO>>() { }.getType();
+
+    @Param({"json", "cbor", "smile", "protobuf"})
+    public String format;
+
+    @Param({"1000", "100000"})
+    public int bookCount;
+
+    private GenericHttpMessageConverter<Object> converter;
+    private MediaType mediaType;
+    private List<BookResponseDTO> books;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        switch (format) {
+            case "json" -> converter = new MappingJackson2HttpMessageConverter();
+            case "cbor" -> converter = new MappingJackson2CborHttpMessageConverter();
+            case "smile" -> converter = new MappingJackson2SmileHttpMessageConverter();
+            case "protobuf" -> converter = new BookProtobufHttpMessageConverter();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        mediaType = converter.getSupportedMediaTypes().get(0);
+        books = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            books.add(new BookResponseDTO((long) i + 1, "Title " + i, "Author " + (i % 97),
+                    BookFixtures.isbn13(i), 1900 + i % 125, "Genre " + (i % 12), 0L));
+        }
+        encoded = encode();
+        System.out.printf("%n%s, %d books: %d bytes (%.1f per book)%n", format, bookCount, encoded.length,
+                (double) encoded.length / bookCount);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(books, BOOK_LIST, mediaType, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return converter.read(BOOK_LIST, null, new MockHttpInputMessage(encoded));
+    }
+}
@@ -0,0 +1,129 @@
+package com.aim.fictionalpubliclibrary.benchmarks;
+
+import com.aim.fictionalpubliclibrary.FictionalPublicLibraryApplication;
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.repositories.BookRepository;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of GET /v1/books/{id} and GET /v1/books against the in-memory H2 database: the JPQL constructor
+ * expressions that select straight into BookResponseDTO (findResponseById, findResponsePageAfter) against
+ * loading managed Book entities and copying them with BookResponseDTO.fromBook, which is what those
+ * endpoints did before. Each call runs in a read-only transaction, like the service methods.
+ * The second-level and query caches are off, so every call reaches the database.
+ * Run with -prof gc to compare the bytes allocated per call (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookProjectionBenchmark {
+
+    private static final String ENTITY_PAGE_QUERY = "SELECT b FROM Book b WHERE b.id > :afterId ORDER BY b.id";
+
+    @Param({"10000"})
+    public int catalogSize;
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransaction;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FictionalPublicLibraryApplication.class)
+                .web(WebApplicationType.NONE)
+                // Command line arguments, so they take precedence over application.properties
+                .run("--logging.level.root=warn",
+                        "--logging.level.com.aim=warn",
+                        "--spring.h2.console.enabled=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.autoconfigure.exclude="
+                                + "org.springframework.boot.devtools.autoconfigure.DevToolsDataSourceAutoConfiguration",
+                        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                        "--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        bookRepository = context.getBean(BookRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+
+        List<Book> books = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            books.add(BookRequestDTO.toBook(BookFixtures.book(i)));
+        }
+        firstId = context.getBean(BookService.class).createBooks(books).get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BookResponseDTO byIdProjection() {
+        long id = randomId();
+        return readOnlyTransaction.execute(status -> bookRepository.findResponseById(id).orElseThrow());
+    }
+
+    @Benchmark
+    public BookResponseDTO byIdEntity() {
+        long id = randomId();
+        return readOnlyTransaction.execute(status ->
+                BookResponseDTO.fromBook(bookRepository.findById(id).orElseThrow()));
+    }
+
+    @Benchmark
+    public List<BookResponseDTO> pageProjection() {
+        long after = randomId() - 1;
+        return readOnlyTransaction.execute(status ->
+                bookRepository.findResponsePageAfter(after, Limit.of(pageSize)));
+    }
+
+    @Benchmark
+    public List<BookResponseDTO> pageEntity() {
+        long after = randomId() - 1;
+        return readOnlyTransaction.execute(status -> entityManager.createQuery(ENTITY_PAGE_QUERY, Book.class)
+                .setParameter("afterId", after)
+                .setMaxResults(pageSize)
+                .getResultStream()
+                .map(BookResponseDTO::fromBook)
+                .toList());
+    }
+
+    private long randomId() {
+        return firstId + ThreadLocalRandom.current().nextInt(catalogSize);
+    }
+}
@@ -0,0 +1,95 @@
+package com.aim.fictionalpubliclibrary.benchmarks;
+
+import com.aim.fictionalpubliclibrary.FictionalPublicLibraryApplication;
+import com.aim.fictionalpubliclibrary.controllers.BookController;
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the request log line on the request path: a cached getBookById call with the log line written
+ * synchronously or through the async appender, logged on every request or sampled.
+ * The console output goes to target/request-logging-benchmark.log instead of the JMH output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestLoggingBenchmark {
+
+    private static final int CATALOG_SIZE = 1_000;
+
+    @Param({"CONSOLE", "ASYNC_CONSOLE"})
+    public String appender;
+
+    @Param({"1.0", "0.1"})
+    public String sampleRate;
+
+    private ConfigurableApplicationContext context;
+    private BookController bookController;
+    // No conditional headers, every call goes all the way to the service
+    private final WebRequest webRequest = new ServletWebRequest(new MockHttpServletRequest());
+    private PrintStream originalOut;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws FileNotFoundException {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new FileOutputStream("target/request-logging-benchmark.log"), true));
+        context = new SpringApplicationBuilder(FictionalPublicLibraryApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.h2.console.enabled=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.autoconfigure.exclude="
+                                + "org.springframework.boot.devtools.autoconfigure.DevToolsDataSourceAutoConfiguration",
+                        "--library.logging.appender=" + appender,
+                        "--library.logging.sample-rates.getBookById=" + sampleRate);
+        bookController = context.getBean(BookController.class);
+
+        List<BookRequestDTO> books = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            books.add(BookFixtures.book(i));
+        }
+        firstId = bookController.createBooks(books).getBody().get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public ResponseEntity<BookResponseDTO> getBookById() {
+        return bookController.getBookById(firstId + ThreadLocalRandom.current().nextInt(CATALOG_SIZE), webRequest);
+    }
+}
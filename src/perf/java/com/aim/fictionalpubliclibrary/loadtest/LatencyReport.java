@@ -0,0 +1,182 @@
+package com.aim.fictionalpubliclibrary.loadtest;
+
+import com.aim.fictionalpubliclibrary.loadtest.LoadTestConfig.Operation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Latency histograms and outcome counters of a load test run, per operation.
+ * Latencies are recorded in microseconds from the time a request was scheduled to start, so a server
+ * that falls behind shows up in the percentiles instead of silently lowering the request rate.
+ */
+public class LatencyReport {
+
+    private final LoadTestConfig config;
+    private final Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+
+    public LatencyReport(LoadTestConfig config) {
+        this.config = config;
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * Records a response.
+     * @param operation the operation sent
+     * @param latencyNanos time from the scheduled start to the end of the response
+     * @param status HTTP status of the response
+     */
+    public void recordResponse(Operation operation, long latencyNanos, int status) {
+        OperationStats stats = operations.get(operation);
+        stats.histogram.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        stats.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+        if (status >= 400) {
+            stats.errors.increment();
+        }
+    }
+
+    /**
+     * Records a request that got no response, e.g. a refused connection or a timeout.
+     * @param operation the operation sent
+     */
+    public void recordFailure(Operation operation) {
+        operations.get(operation).failures.increment();
+    }
+
+    /**
+     * Records a request that was never sent because too many requests were waiting for a response.
+     * @param operation the operation not sent
+     */
+    public void recordDropped(Operation operation) {
+        operations.get(operation).dropped.increment();
+    }
+
+    /**
+     * Prints one line per operation that was sent, and a total line.
+     * @param out PrintStream
+     */
+    public void print(PrintStream out) {
+        out.printf("%-8s %10s %8s %8s %8s %12s %10s %10s %10s %10s%n", "op", "requests", "errors", "failed",
+                "dropped", "throughput/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        operations.forEach((operation, stats) -> {
+            if (stats.requests() > 0) {
+                printLine(out, operation.name().toLowerCase(), stats.histogram, stats.errors.sum(),
+                        stats.failures.sum(), stats.dropped.sum());
+            }
+        });
+        printLine(out, "total", total(), sum(stats -> stats.errors.sum()), sum(stats -> stats.failures.sum()),
+                sum(stats -> stats.dropped.sum()));
+    }
+
+    /**
+     * Writes the configuration and results as JSON, for comparing runs between builds.
+     * @param path Path of the summary file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeJson(Path path) throws IOException {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("rate", config.rate());
+        settings.put("warmupSeconds", config.warmup().toMillis() / 1000.0);
+        settings.put("durationSeconds", config.duration().toMillis() / 1000.0);
+        settings.put("books", config.books());
+        settings.put("mix", config.mix());
+        settings.put("maxInFlight", config.maxInFlight());
+        settings.put("appArguments", config.appArguments());
+        summary.put("config", settings);
+        summary.put("total", results(total(), sum(stats -> stats.errors.sum()), sum(stats -> stats.failures.sum()),
+                sum(stats -> stats.dropped.sum()), null));
+        Map<String, Object> perOperation = new LinkedHashMap<>();
+        operations.forEach((operation, stats) -> {
+            if (stats.requests() > 0) {
+                Map<String, Long> statuses = new TreeMap<>();
+                stats.statuses.forEach((status, count) -> statuses.put(String.valueOf(status), count.sum()));
+                perOperation.put(operation.name().toLowerCase(), results(stats.histogram, stats.errors.sum(),
+                        stats.failures.sum(), stats.dropped.sum(), statuses));
+            }
+        });
+        summary.put("operations", perOperation);
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), summary);
+    }
+
+    private void printLine(PrintStream out, String name, Histogram histogram, long errors, long failures,
+                           long dropped) {
+        out.printf("%-8s %10d %8d %8d %8d %12.1f %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(),
+                errors, failures, dropped, throughput(histogram, errors), millis(histogram, 50),
+                millis(histogram, 99), millis(histogram, 99.9), histogram.getMaxValue() / 1000.0);
+    }
+
+    private Map<String, Object> results(Histogram histogram, long errors, long failures, long dropped,
+                                        Map<String, Long> statuses) {
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("requests", histogram.getTotalCount());
+        results.put("errors", errors);
+        results.put("failed", failures);
+        results.put("dropped", dropped);
+        results.put("throughputPerSecond", throughput(histogram, errors));
+        if (statuses != null) {
+            results.put("statuses", statuses);
+        }
+        Map<String, Double> latency = new LinkedHashMap<>();
+        latency.put("mean", histogram.getTotalCount() == 0 ? 0 : histogram.getMean() / 1000.0);
+        latency.put("p50", millis(histogram, 50));
+        latency.put("p90", millis(histogram, 90));
+        latency.put("p99", millis(histogram, 99));
+        latency.put("p999", millis(histogram, 99.9));
+        latency.put("max", histogram.getMaxValue() / 1000.0);
+        results.put("latencyMillis", latency);
+        return results;
+    }
+
+    /** Successful responses per second of the recorded window. */
+    private double throughput(Histogram histogram, long errors) {
+        return (histogram.getTotalCount() - errors) * 1000.0 / config.duration().toMillis();
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private Histogram total() {
+        Histogram total = new Histogram(3);
+        operations.values().forEach(stats -> total.add(stats.histogram));
+        return total;
+    }
+
+    private long sum(ToLongFunction<OperationStats> counter) {
+        return operations.values().stream().mapToLong(counter).sum();
+    }
+
+    private static final class OperationStats {
+        // Auto-resizing, so one pathological response cannot overflow the histogram
+        private final Histogram histogram = new ConcurrentHistogram(3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+
+        long requests() {
+            return histogram.getTotalCount() + failures.sum() + dropped.sum();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.aim.fictionalpubliclibrary.loadtest;
+
+import com.aim.fictionalpubliclibrary.FictionalPublicLibraryApplication;
+import com.aim.fictionalpubliclibrary.benchmarks.BookFixtures;
+import com.aim.fictionalpubliclibrary.dtos.BookPageDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.loadtest.LoadTestConfig.Operation;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model HTTP load test of /v1/books.
+ * Boots the application on a random port with its H2 database, seeds the catalog, then starts requests
+ * at a fixed rate whatever the response times are, each on its own virtual thread. Prints latency
+ * percentiles and throughput per operation and writes them as JSON (target/loadtest-summary.json by default).
+ * <p>
+ * mvn -Pperf -DskipTests test-compile exec:exec@load-test -Dload.args="--rate=1000 --duration=60s"
+ * <p>
+ * See {@link LoadTestConfig} for the settings. Application settings can be passed along, e.g.
+ * --spring.threads.virtual.enabled=true, to compare configurations under the same load.
+ */
+public class LoadTest {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestConfig config;
+    private final String baseUrl;
+    private final long[] bookIds;
+    private final Queue<Long> deletableIds;
+    private final AtomicLong nextSequence;
+    private final Operation[] operationWheel;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LatencyReport report;
+
+    LoadTest(LoadTestConfig config, String baseUrl, long[] bookIds, Queue<Long> deletableIds, long nextSequence) {
+        this.config = config;
+        this.baseUrl = baseUrl;
+        this.bookIds = bookIds;
+        this.deletableIds = deletableIds;
+        this.nextSequence = new AtomicLong(nextSequence);
+        this.operationWheel = operationWheel(config);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.report = new LatencyReport(config);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        // DevTools would relaunch main in a restart class loader, it only honours this as a system property
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> appArguments = new ArrayList<>(List.of("--server.port=0", "--logging.level.root=warn",
+                "--logging.level.com.aim=warn",
+                "--spring.autoconfigure.exclude="
+                        + "org.springframework.boot.devtools.autoconfigure.DevToolsDataSourceAutoConfiguration"));
+        appArguments.addAll(config.appArguments());
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FictionalPublicLibraryApplication.class)
+                .run(appArguments.toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            BookService bookService = context.getBean(BookService.class);
+
+            // Reads and updates target the seeded books, deletes take books nobody else touches
+            long[] bookIds = seed(bookService, 0, config.books());
+            long deleteShare = config.mix().getOrDefault(Operation.DELETE, 0);
+            long totalWeight = config.mix().values().stream().mapToInt(Integer::intValue).sum();
+            int deletable = (int) Math.min(Integer.MAX_VALUE, config.totalRequests() * deleteShare / totalWeight + 1);
+            Queue<Long> deletableIds = new ConcurrentLinkedQueue<>();
+            for (long id : seed(bookService, config.books(), deletable)) {
+                deletableIds.add(id);
+            }
+            System.out.printf("Seeded %d books, %d more for deletes, sending %d requests/s for %s after %s warmup%n",
+                    config.books(), deletable, config.rate(), config.duration(), config.warmup());
+
+            LoadTest loadTest = new LoadTest(config, "http://localhost:" + port + "/v1/books", bookIds,
+                    deletableIds, (long) config.books() + deletable);
+            loadTest.run();
+            loadTest.report.print(System.out);
+            Path output = Path.of(config.output());
+            loadTest.report.writeJson(output);
+            System.out.println("Summary written to " + output.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Starts the requests on schedule and waits for the last responses.
+     */
+    void run() throws InterruptedException {
+        long periodNanos = TimeUnit.SECONDS.toNanos(1);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long recordFrom = start + config.warmup().toNanos();
+        long total = config.totalRequests();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < total; i++) {
+                // Start times are fixed up front, a slow server does not push later requests back
+                long scheduledStart = start + i * periodNanos / config.rate();
+                long wait = scheduledStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Operation operation = operationWheel[ThreadLocalRandom.current().nextInt(operationWheel.length)];
+                boolean recorded = scheduledStart >= recordFrom;
+                if (inFlight.get() >= config.maxInFlight()) {
+                    if (recorded) {
+                        report.recordDropped(operation);
+                    }
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        send(operation, scheduledStart, recorded);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        }
+    }
+
+    private void send(Operation operation, long scheduledStart, boolean recorded) {
+        try {
+            HttpRequest request = request(operation);
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            long latency = System.nanoTime() - scheduledStart;
+            if (operation == Operation.CREATE && response.statusCode() == 201) {
+                deletableIds.add(objectMapper.readTree(response.body()).get("id").asLong());
+            }
+            if (recorded) {
+                report.recordResponse(operation, latency, response.statusCode());
+            }
+        } catch (IOException e) {
+            if (recorded) {
+                report.recordFailure(operation);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpRequest request(Operation operation) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(bookIds.length);
+        return switch (operation) {
+            case GET -> newRequest(baseUrl + "/" + bookIds[index]).GET().build();
+            case LIST -> newRequest(baseUrl + "?limit=50&after=" + BookPageDTO.encodeCursor(bookIds[index] - 1))
+                    .GET().build();
+            case CREATE -> newRequest(baseUrl).header("Content-Type", "application/json")
+                    .POST(json(BookFixtures.book(nextSequence.getAndIncrement()))).build();
+            case UPDATE -> {
+                // Seeded book i was built from sequence i, keeping its ISBN avoids duplicate conflicts
+                BookRequestDTO book = BookFixtures.book(index).toBuilder().title("Revised " + random.nextInt()).build();
+                yield newRequest(baseUrl + "/" + bookIds[index]).header("Content-Type", "application/json")
+                        .PUT(json(book)).build();
+            }
+            case DELETE -> {
+                Long id = deletableIds.poll();
+                // Nothing left to delete, a missing id still exercises the not found path
+                yield newRequest(baseUrl + "/" + (id != null ? id : Long.MAX_VALUE)).DELETE().build();
+            }
+        };
+    }
+
+    private HttpRequest.Builder newRequest(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(REQUEST_TIMEOUT);
+    }
+
+    private HttpRequest.BodyPublisher json(BookRequestDTO book) throws IOException {
+        return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(book));
+    }
+
+    private static long[] seed(BookService bookService, long firstSequence, int count) {
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(BookRequestDTO.toBook(BookFixtures.book(firstSequence + i)));
+        }
+        return bookService.createBooks(books).stream().mapToLong(Book::getId).toArray();
+    }
+
+    private static Operation[] operationWheel(LoadTestConfig config) {
+        List<Operation> wheel = new ArrayList<>();
+        config.mix().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                wheel.add(operation);
+            }
+        });
+        return wheel.toArray(Operation[]::new);
+    }
+}
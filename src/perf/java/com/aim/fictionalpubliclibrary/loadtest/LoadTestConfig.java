@@ -0,0 +1,117 @@
+package com.aim.fictionalpubliclibrary.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, parsed from --name=value arguments.
+ * Arguments starting with --spring., --server., --library., --management. or --logging. are not load test
+ * settings, they are passed on to the application under test.
+ *
+ * @param rate          requests started per second, independent of how fast responses come back
+ * @param warmup        time at the start of the run whose requests are sent but not recorded
+ * @param duration      recorded time after the warmup
+ * @param books         number of books seeded before the run
+ * @param mix           relative weight of each operation
+ * @param maxInFlight   requests allowed to wait for a response at once, requests over it are counted as dropped
+ * @param output        path of the JSON summary
+ * @param appArguments  arguments for the application under test
+ */
+public record LoadTestConfig(int rate, Duration warmup, Duration duration, int books,
+                             Map<Operation, Integer> mix, int maxInFlight, String output,
+                             List<String> appArguments) {
+
+    private static final List<String> APP_PREFIXES = List.of("--spring.", "--server.", "--library.",
+            "--management.", "--logging.");
+
+    /**
+     * Parses the arguments, every setting has a default.
+     * @param args e.g. --rate=500 --duration=30s --mix=get:70,list:15,create:5,update:5,delete:5
+     * @return LoadTestConfig
+     * @throws IllegalArgumentException on an unknown setting or a malformed value
+     */
+    public static LoadTestConfig parse(String[] args) {
+        int rate = 500;
+        Duration warmup = Duration.ofSeconds(5);
+        Duration duration = Duration.ofSeconds(30);
+        int books = 10_000;
+        Map<Operation, Integer> mix = parseMix("get:70,list:15,create:5,update:5,delete:5");
+        int maxInFlight = 10_000;
+        String output = "target/loadtest-summary.json";
+        List<String> appArguments = new ArrayList<>();
+
+        for (String arg : args) {
+            if (APP_PREFIXES.stream().anyMatch(arg::startsWith)) {
+                appArguments.add(arg);
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "rate" -> rate = Integer.parseInt(value);
+                case "warmup" -> warmup = parseDuration(value);
+                case "duration" -> duration = parseDuration(value);
+                case "books" -> books = Integer.parseInt(value);
+                case "mix" -> mix = parseMix(value);
+                case "max-in-flight" -> maxInFlight = Integer.parseInt(value);
+                case "output" -> output = value;
+                default -> throw new IllegalArgumentException("Unknown setting: " + name);
+            }
+        }
+        if (rate <= 0 || books <= 0 || maxInFlight <= 0 || duration.isZero()) {
+            throw new IllegalArgumentException("rate, books, max-in-flight and duration must be positive");
+        }
+        return new LoadTestConfig(rate, warmup, duration, books, mix, maxInFlight, output, appArguments);
+    }
+
+    /**
+     * Number of requests the run starts, warmup included.
+     * @return long
+     */
+    public long totalRequests() {
+        return (warmup.toMillis() + duration.toMillis()) * rate / 1000;
+    }
+
+    private static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value.endsWith("s") ? value.substring(0, value.length() - 1) : value));
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight in mix but got: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights cannot be negative: " + entry);
+            }
+            mix.put(Operation.valueOf(parts[0].trim().toUpperCase()), weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Mix needs at least one operation with a positive weight");
+        }
+        return mix;
+    }
+
+    /**
+     * Requests the load test can send.
+     */
+    public enum Operation {
+        GET, LIST, CREATE, UPDATE, DELETE
+    }
+}
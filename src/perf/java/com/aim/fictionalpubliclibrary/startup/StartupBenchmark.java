@@ -0,0 +1,265 @@
+package com.aim.fictionalpubliclibrary.startup;
+
+import com.aim.fictionalpubliclibrary.benchmarks.BookFixtures;
+import com.aim.fictionalpubliclibrary.startup.StartupBenchmarkConfig.Mode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Measures how long the application takes to serve its first book, in each startup mode.
+ * Every start is a new JVM on a free port, timed from launching the process: first to any HTTP response,
+ * then to the first successful GET /v1/books/{id} of a book created as soon as the server answers.
+ * Each mode is started once unrecorded, so every mode finds the jars in the file cache, then the recorded
+ * starts go round the modes, so a noisy moment of the machine does not land on a single mode.
+ * Prints the median, min and max per mode and writes them as JSON (target/startup-benchmark.json by default),
+ * the output of every start is kept in target/startup-benchmark.
+ * <p>
+ * mvn -Pfast-start -DskipTests package
+ * mvn -Pperf -DskipTests test-compile exec:exec@startup-benchmark -Dstartup.args="--runs=10"
+ * <p>
+ * See {@link StartupBenchmarkConfig} for the settings.
+ */
+public class StartupBenchmark {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+    private static final Path LOG_DIRECTORY = Path.of("target", "startup-benchmark");
+
+    private final StartupBenchmarkConfig config;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    StartupBenchmark(StartupBenchmarkConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Timings of one start, in milliseconds from launching the process.
+     */
+    record Start(long firstResponseMillis, long firstGetMillis) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        StartupBenchmarkConfig config = StartupBenchmarkConfig.parse(args);
+        StartupBenchmark benchmark = new StartupBenchmark(config);
+        for (Mode mode : config.modes()) {
+            benchmark.checkArtifacts(mode);
+        }
+        Files.createDirectories(LOG_DIRECTORY);
+
+        for (Mode mode : config.modes()) {
+            System.out.printf("Warming up %s%n", mode.label());
+            benchmark.start(mode, "warmup");
+        }
+        Map<Mode, List<Start>> starts = new EnumMap<>(Mode.class);
+        for (int run = 1; run <= config.runs(); run++) {
+            for (Mode mode : config.modes()) {
+                Start start = benchmark.start(mode, String.valueOf(run));
+                starts.computeIfAbsent(mode, key -> new ArrayList<>()).add(start);
+                System.out.printf("Run %d %-10s first response %6d ms, first GET %6d ms%n", run, mode.label(),
+                        start.firstResponseMillis(), start.firstGetMillis());
+            }
+        }
+        benchmark.print(starts, System.out);
+        Path output = Path.of(config.output());
+        benchmark.writeJson(starts, output);
+        System.out.println("Summary written to " + output.toAbsolutePath());
+    }
+
+    /**
+     * Starts the application, waits for its first book and stops it.
+     */
+    Start start(Mode mode, String run) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = command(mode, port);
+        Path log = LOG_DIRECTORY.resolve(mode.label() + "-" + run + ".log");
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        String baseUrl = "http://localhost:" + port + "/v1/books";
+        long launched = System.nanoTime();
+        long deadline = launched + config.timeout().toNanos();
+        Process process = builder.start();
+        try {
+            // No book has ID 0, a 404 is the server answering
+            awaitResponse(process, newRequest(baseUrl + "/0").GET().build(), deadline, log);
+            long firstResponse = System.nanoTime();
+            byte[] book = objectMapper.writeValueAsBytes(BookFixtures.book(0));
+            HttpResponse<String> created = awaitResponse(process, newRequest(baseUrl)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(book)).build(), deadline, log);
+            if (created.statusCode() != 201) {
+                throw new IllegalStateException(mode.label() + " answered " + created.statusCode()
+                        + " to creating a book, see " + log);
+            }
+            long id = objectMapper.readTree(created.body()).get("id").asLong();
+            HttpResponse<String> read = awaitResponse(process, newRequest(baseUrl + "/" + id).GET().build(),
+                    deadline, log);
+            if (read.statusCode() != 200) {
+                throw new IllegalStateException(mode.label() + " answered " + read.statusCode()
+                        + " to reading book " + id + ", see " + log);
+            }
+            long firstGet = System.nanoTime();
+            return new Start(TimeUnit.NANOSECONDS.toMillis(firstResponse - launched),
+                    TimeUnit.NANOSECONDS.toMillis(firstGet - launched));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * The java command of a mode. Every mode but the default runs with the fast-start profile, which the AOT
+     * build was generated for.
+     */
+    List<String> command(Mode mode, int port) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(config.jvmArguments());
+        String jar = config.jar();
+        switch (mode) {
+            case DEFAULT -> {
+            }
+            case LAZY -> command.add("-Dspring.profiles.active=fast-start");
+            case AOT -> command.addAll(List.of("-Dspring.aot.enabled=true", "-Dspring.profiles.active=fast-start"));
+            case FAST_START -> {
+                command.addAll(List.of("-XX:SharedArchiveFile=" + archive(), "-Xlog:cds=error",
+                        "-Dspring.aot.enabled=true", "-Dspring.profiles.active=fast-start"));
+                jar = extractedJar().toString();
+            }
+        }
+        command.addAll(List.of("-jar", jar, "--server.port=" + port));
+        return command;
+    }
+
+    private void checkArtifacts(Mode mode) {
+        List<Path> required = new ArrayList<>(List.of(Path.of(config.jar())));
+        if (mode == Mode.FAST_START) {
+            required.addAll(List.of(extractedJar(), archive()));
+        }
+        for (Path path : required) {
+            if (!Files.exists(path)) {
+                throw new IllegalStateException(path + " is missing for mode " + mode.label()
+                        + ", build it with: mvn -Pfast-start -DskipTests package");
+            }
+        }
+    }
+
+    private Path extractedJar() {
+        return Path.of(config.fastStartDir()).resolve(Path.of(config.jar()).getFileName());
+    }
+
+    private Path archive() {
+        return Path.of(config.fastStartDir(), "application.jsa");
+    }
+
+    /**
+     * Sends the request until the server accepts the connection.
+     */
+    private HttpResponse<String> awaitResponse(Process process, HttpRequest request, long deadline, Path log)
+            throws IOException, InterruptedException {
+        while (true) {
+            try {
+                return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (ConnectException e) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The application exited with " + process.exitValue()
+                            + " before answering, see " + log);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("The application did not answer within " + config.timeout()
+                            + ", see " + log);
+                }
+                Thread.sleep(POLL_INTERVAL);
+            }
+        }
+    }
+
+    private HttpRequest.Builder newRequest(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(config.timeout());
+    }
+
+    private void print(Map<Mode, List<Start>> starts, PrintStream out) {
+        out.printf("%-10s %6s %18s %18s %18s %18s%n", "mode", "runs", "response p50 ms", "response min-max",
+                "first GET p50 ms", "first GET min-max");
+        starts.forEach((mode, modeStarts) -> {
+            long[] responses = sorted(modeStarts, Start::firstResponseMillis);
+            long[] gets = sorted(modeStarts, Start::firstGetMillis);
+            out.printf("%-10s %6d %18d %18s %18d %18s%n", mode.label(), modeStarts.size(), median(responses),
+                    responses[0] + "-" + responses[responses.length - 1], median(gets),
+                    gets[0] + "-" + gets[gets.length - 1]);
+        });
+    }
+
+    private void writeJson(Map<Mode, List<Start>> starts, Path path) throws IOException {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("runs", config.runs());
+        settings.put("jar", config.jar());
+        settings.put("fastStartDir", config.fastStartDir());
+        settings.put("jvmArguments", config.jvmArguments());
+        settings.put("javaVersion", Runtime.version().toString());
+        settings.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        summary.put("config", settings);
+        Map<String, Object> modes = new LinkedHashMap<>();
+        starts.forEach((mode, modeStarts) -> {
+            Map<String, Object> results = new LinkedHashMap<>();
+            results.put("command", String.join(" ", command(mode, 0)));
+            results.put("firstResponseMillis", stats(sorted(modeStarts, Start::firstResponseMillis)));
+            results.put("firstGetMillis", stats(sorted(modeStarts, Start::firstGetMillis)));
+            modes.put(mode.label(), results);
+        });
+        summary.put("modes", modes);
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), summary);
+    }
+
+    private static Map<String, Object> stats(long[] millis) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("median", median(millis));
+        stats.put("min", millis[0]);
+        stats.put("max", millis[millis.length - 1]);
+        stats.put("sorted", millis);
+        return stats;
+    }
+
+    private static long[] sorted(List<Start> starts, ToLongFunction<Start> timing) {
+        return starts.stream().mapToLong(timing).sorted().toArray();
+    }
+
+    private static long median(long[] sorted) {
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.aim.fictionalpubliclibrary.startup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Settings of a startup benchmark run, parsed from --name=value arguments.
+ *
+ * @param modes          startup modes to measure, in order
+ * @param runs           measured starts per mode
+ * @param timeout        how long a start may take before the run fails
+ * @param jar            the executable jar, built by mvn -Pfast-start package
+ * @param fastStartDir   the extracted jar and its AppCDS archive, built by the same command
+ * @param jvmArguments   JVM options added to every start, e.g. -Xmx512m, separated by spaces
+ * @param output         path of the JSON summary
+ */
+public record StartupBenchmarkConfig(List<Mode> modes, int runs, Duration timeout, String jar, String fastStartDir,
+                                     List<String> jvmArguments, String output) {
+
+    /**
+     * Parses the arguments, every setting has a default.
+     * @param args e.g. --runs=5 --modes=default,fast-start --jvm-args="-Xmx512m"
+     * @return StartupBenchmarkConfig
+     * @throws IllegalArgumentException on an unknown setting or a malformed value
+     */
+    public static StartupBenchmarkConfig parse(String[] args) {
+        List<Mode> modes = List.of(Mode.values());
+        int runs = 5;
+        Duration timeout = Duration.ofSeconds(120);
+        String jar = "target/fictional-public-library-0.0.1-SNAPSHOT.jar";
+        String fastStartDir = "target/fast-start";
+        List<String> jvmArguments = new ArrayList<>();
+        String output = "target/startup-benchmark.json";
+
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "modes" -> modes = Arrays.stream(value.split(",")).map(String::trim).map(Mode::parse).toList();
+                case "runs" -> runs = Integer.parseInt(value);
+                case "timeout" -> timeout = Duration.ofSeconds(Long.parseLong(value.replaceFirst("s$", "")));
+                case "jar" -> jar = value;
+                case "fast-start-dir" -> fastStartDir = value;
+                case "jvm-args" -> jvmArguments = Arrays.stream(value.trim().split("\\s+"))
+                        .filter(option -> !option.isEmpty()).toList();
+                case "output" -> output = value;
+                default -> throw new IllegalArgumentException("Unknown setting: " + name);
+            }
+        }
+        if (runs <= 0 || modes.isEmpty() || timeout.isZero()) {
+            throw new IllegalArgumentException("runs and timeout must be positive and modes cannot be empty");
+        }
+        return new StartupBenchmarkConfig(modes, runs, timeout, jar, fastStartDir, jvmArguments, output);
+    }
+
+    /**
+     * Ways to start the application, each adds one technique to the one before it.
+     */
+    public enum Mode {
+        /** The executable jar as built by default. */
+        DEFAULT,
+        /** The fast-start Spring profile: lazy beans, no JDBC metadata lookup, schema from a script. */
+        LAZY,
+        /** The profile with the bean definitions generated by Spring AOT at build time. */
+        AOT,
+        /** AOT from the extracted jar, with the classes of the training run mapped from the AppCDS archive. */
+        FAST_START;
+
+        static Mode parse(String value) {
+            return valueOf(value.toUpperCase().replace('-', '_'));
+        }
+
+        String label() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.aim.fictionalpubliclibrary.config;
+
+import com.aim.fictionalpubliclibrary.dtos.BookPageDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookSearchResultDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookProtobufHttpMessageConverterTest {
+
+    private static final Type RESPONSE_LIST = new ParameterizedTypeReference<List<BookResponseDTO>>() { }.getType();
+    private static final Type REQUEST_LIST = new ParameterizedTypeReference<List<BookRequestDTO>>() { }.getType();
+
+    private final BookProtobufHttpMessageConverter converter = new BookProtobufHttpMessageConverter();
+
+    @Test
+    void write_WhenListOfBooks_RoundTripsThroughBookListMessage() throws IOException {
+        // Arrange
+        List<BookResponseDTO> books = List.of(
+                new BookResponseDTO(1L, "Dune", "Frank Herbert", "9780441013593", 1965, "Science Fiction", 3L),
+                new BookResponseDTO(2L, "Emma", "Jane Austen", null, 1815, "Classic", 0L));
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        // Act
+        converter.write(books, RESPONSE_LIST, BookProtobufHttpMessageConverter.APPLICATION_PROTOBUF, outputMessage);
+        @SuppressWarnings("unchecked")
+        List<BookResponseDTO> read = (List<BookResponseDTO>) converter.read(RESPONSE_LIST, null,
+                new MockHttpInputMessage(outputMessage.getBodyAsBytes()));
+
+        // Assert
+        assertEquals("application/x-protobuf", outputMessage.getHeaders().getContentType().toString());
+        assertEquals(2, read.size());
+        assertEquals("Dune", read.get(0).getTitle());
+        assertEquals(1965, read.get(0).getPublishedYear());
+        assertEquals(2L, read.get(1).getId());
+        assertNull(read.get(1).getIsbn());
+        // The version is not part of the representation
+        assertEquals(0L, read.get(0).getVersion());
+    }
+
+    @Test
+    void read_WhenBookRequestList_ReturnsBookRequestDTOs() throws IOException {
+        // Arrange
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(List.of(BookRequestDTO.builder().title("Dune").publishedYear(1965).build()), REQUEST_LIST,
+                BookProtobufHttpMessageConverter.APPLICATION_PROTOBUF, outputMessage);
+
+        // Act
+        Object read = converter.read(REQUEST_LIST, null, new MockHttpInputMessage(outputMessage.getBodyAsBytes()));
+
+        // Assert
+        assertEquals(List.of(BookRequestDTO.builder().title("Dune").publishedYear(1965).build()), read);
+    }
+
+    @Test
+    void canWrite_WhenTypeHasNoMessage_ReturnsFalse() {
+        // Act & Assert
+        assertTrue(converter.canWrite(BookPageDTO.class, BookPageDTO.class,
+                BookProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+        assertTrue(converter.canWrite(RESPONSE_LIST, List.class, null));
+        assertFalse(converter.canWrite(BookSearchResultDTO.class, BookSearchResultDTO.class,
+                BookProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+        assertFalse(converter.canWrite(List.class, List.class, BookProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+    }
+}
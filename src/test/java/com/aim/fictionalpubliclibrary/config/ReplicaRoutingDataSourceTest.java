@@ -0,0 +1,118 @@
+package com.aim.fictionalpubliclibrary.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and the replica, each holding its own name,
+ * so every query tells which one it ran on.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final DriverManagerDataSource primary = h2("routing_primary");
+    private final DriverManagerDataSource replica = h2("routing_replica");
+    private SimpleMeterRegistry meterRegistry;
+    private LibraryProperties.Replica settings;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        settings = new LibraryProperties.Replica();
+        settings.setReadYourWritesWindow(Duration.ZERO);
+        for (String name : new String[] {"primary", "replica"}) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(name.equals("primary") ? primary : replica);
+            jdbcTemplate.execute("CREATE TABLE marker (name VARCHAR(20))");
+            jdbcTemplate.update("INSERT INTO marker VALUES (?)", name);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(primary).execute("DROP TABLE marker");
+        new JdbcTemplate(replica).execute("DROP TABLE marker");
+    }
+
+    @Test
+    void getConnection_WhenTransactionIsReadOnly_UsesReplica() {
+        // Arrange
+        DataSource dataSource = routing(replica);
+
+        // Act
+        String readOnly = inTransaction(dataSource, true);
+        String readWrite = inTransaction(dataSource, false);
+        String withoutTransaction = new JdbcTemplate(dataSource).queryForObject("SELECT name FROM marker", String.class);
+
+        // Assert
+        assertEquals("replica", readOnly);
+        assertEquals("primary", readWrite);
+        assertEquals("primary", withoutTransaction);
+        assertEquals(1.0, meterRegistry.get(ReplicaRoutingDataSource.CONNECTION_COUNTER)
+                .tag("target", "replica").counter().count());
+    }
+
+    @Test
+    void getConnection_WhenReadFollowsWriteWithinWindow_UsesPrimary() {
+        // Arrange
+        settings.setReadYourWritesWindow(Duration.ofMinutes(1));
+        DataSource dataSource = routing(replica);
+        String beforeWrite = inTransaction(dataSource, true);
+
+        // Act
+        inTransaction(dataSource, false);
+        String afterWrite = inTransaction(dataSource, true);
+
+        // Assert
+        assertEquals("replica", beforeWrite);
+        assertEquals("primary", afterWrite);
+    }
+
+    @Test
+    void getConnection_WhenReplicaIsDown_FallsBackToPrimaryAndStopsTryingIt() throws SQLException {
+        // Arrange
+        DataSource downReplica = mock(DataSource.class);
+        when(downReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        DataSource dataSource = routing(downReplica);
+
+        // Act
+        String first = inTransaction(dataSource, true);
+        String second = inTransaction(dataSource, true);
+
+        // Assert
+        assertEquals("primary", first);
+        assertEquals("primary", second);
+        verify(downReplica, times(1)).getConnection();
+        assertEquals(1.0, meterRegistry.get(ReplicaRoutingDataSource.FAILURE_COUNTER).counter().count());
+    }
+
+    private DataSource routing(DataSource replicaDataSource) {
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, replicaDataSource,
+                settings, meterRegistry);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private static String inTransaction(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT name FROM marker", String.class));
+    }
+
+    private static DriverManagerDataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
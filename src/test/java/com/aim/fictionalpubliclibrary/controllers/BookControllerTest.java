@@ -1,26 +1,67 @@
 package com.aim.fictionalpubliclibrary.controllers;
 
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.dtos.BookFacetsDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookLookupDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookPageDTO;
 import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
 import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.dtos.BookSearchResultDTO;
+import com.aim.fictionalpubliclibrary.dtos.IngestTicketDTO;
+import com.aim.fictionalpubliclibrary.exceptions.GlobalExceptionHandler;
+import com.aim.fictionalpubliclibrary.exceptions.InvalidInputException;
+import com.aim.fictionalpubliclibrary.exceptions.PreconditionFailedException;
+import com.aim.fictionalpubliclibrary.logging.RequestLogSampler;
 import com.aim.fictionalpubliclibrary.models.Book;
 import com.aim.fictionalpubliclibrary.services.BookService;
+import com.aim.fictionalpubliclibrary.services.changes.BookChangeFeed;
+import com.aim.fictionalpubliclibrary.services.indexes.BookFacetIndex;
+import com.aim.fictionalpubliclibrary.services.ingest.BookIngestQueue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 
 @ExtendWith(MockitoExtension.class)
 class BookControllerTest {
@@ -28,6 +69,21 @@ class BookControllerTest {
     @Mock
     private BookService bookService;
 
+    @Mock
+    private BookIngestQueue bookIngestQueue;
+
+    @Mock
+    private BookChangeFeed bookChangeFeed;
+
+    @Spy
+    private LibraryProperties libraryProperties = new LibraryProperties();
+
+    @Spy
+    private ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Spy
+    private RequestLogSampler requestLogSampler = new RequestLogSampler(new LibraryProperties());
+
     @InjectMocks
     private BookController bookController;
 
@@ -36,6 +92,7 @@ class BookControllerTest {
     private BookResponseDTO bookResponseDTO;
     private List<Book> bookList;
     private final Long bookId = 1L;
+    private final WebRequest webRequest = new ServletWebRequest(new MockHttpServletRequest());
 
     @BeforeEach
     void setUp() {
@@ -44,7 +101,7 @@ class BookControllerTest {
         book.setId(bookId);
         book.setTitle("Test Book");
         book.setAuthor("Test Author");
-        book.setIsbn("1234567890");
+        book.setIsbn("0306406152");
         book.setPublishedYear(2023);
         book.setGenre("Fiction");
 
@@ -52,7 +109,7 @@ class BookControllerTest {
         bookRequestDTO = BookRequestDTO.builder()
                 .title("Test Book")
                 .author("Test Author")
-                .isbn("1234567890")
+                .isbn("0306406152")
                 .publishedYear(2023)
                 .genre("Fiction")
                 .build();
@@ -63,7 +120,7 @@ class BookControllerTest {
                 .id(bookId)
                 .title("Test Book")
                 .author("Test Author")
-                .isbn("1234567890")
+                .isbn("0306406152")
                 .publishedYear(2023)
                 .genre("Fiction")
                 .build();
@@ -76,24 +133,146 @@ class BookControllerTest {
     @Test
     void getAllBooks_WhenBooksExist_ReturnsOkResponse() {
         // Arrange
-        when(bookService.getAllBooks()).thenReturn(bookList);
+        when(bookService.getBookResponsesAfter(0L, 50)).thenReturn(List.of(bookResponseDTO));
 
-        try (MockedStatic<BookResponseDTO> mockedStatic = mockStatic(BookResponseDTO.class)) {
-            mockedStatic.when(() -> BookResponseDTO.fromBook(any(Book.class))).thenReturn(bookResponseDTO);
+        // Act
+        ResponseEntity<BookPageDTO> response = bookController.getAllBooks(null, null, webRequest);
 
-            // Act
-            ResponseEntity<List<BookResponseDTO>> response = bookController.getAllBooks();
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(1, response.getBody().getBooks().size());
+        assertEquals(bookId, response.getBody().getBooks().get(0).getId());
+        assertEquals("Test Book", response.getBody().getBooks().get(0).getTitle());
+        // Fewer books than the page size means this is the last page
+        assertNull(response.getBody().getNextCursor());
+
+        verify(bookService, times(1)).getBookResponsesAfter(0L, 50);
+    }
 
-            // Assert
-            assertEquals(HttpStatus.OK, response.getStatusCode());
-            assertNotNull(response.getBody());
-            assertEquals(1, response.getBody().size());
-            assertEquals(bookId, response.getBody().get(0).getId());
-            assertEquals("Test Book", response.getBody().get(0).getTitle());
+    @Test
+    void getAllBooks_WhenPageIsFull_ReturnsNextCursor() {
+        // Arrange
+        when(bookService.getBookResponsesAfter(0L, 1)).thenReturn(List.of(bookResponseDTO));
 
-            verify(bookService, times(1)).getAllBooks();
-            mockedStatic.verify(() -> BookResponseDTO.fromBook(any(Book.class)), times(1));
-        }
+        // Act
+        ResponseEntity<BookPageDTO> response = bookController.getAllBooks(null, 1, webRequest);
+
+        // Assert
+        assertNotNull(response.getBody());
+        assertEquals(BookPageDTO.encodeCursor(bookId), response.getBody().getNextCursor());
+        assertEquals(bookId, BookPageDTO.decodeCursor(response.getBody().getNextCursor()));
+    }
+
+    @Test
+    void getAllBooks_WhenLimitExceedsMaximum_CapsPageSize() {
+        // Arrange
+        String cursor = BookPageDTO.encodeCursor(bookId);
+        when(bookService.getBookResponsesAfter(bookId, 500)).thenReturn(new ArrayList<>());
+
+        // Act
+        ResponseEntity<BookPageDTO> response = bookController.getAllBooks(cursor, 100_000, webRequest);
+
+        // Assert
+        assertNotNull(response.getBody());
+        assertTrue(response.getBody().getBooks().isEmpty());
+        assertNull(response.getBody().getNextCursor());
+        verify(bookService, times(1)).getBookResponsesAfter(bookId, 500);
+    }
+
+    @Test
+    void getAllBooks_WhenCatalogIsUnchanged_ReturnsNotModifiedWithoutQuerying() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/books");
+        request.addHeader("If-None-Match", "\"catalog-abc.42\"");
+        when(bookService.getCatalogVersion()).thenReturn("abc.42");
+
+        // Act
+        ResponseEntity<BookPageDTO> response = bookController.getAllBooks(null, null,
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"catalog-abc.42\"", response.getHeaders().getETag());
+        verify(bookService, never()).getBookResponsesAfter(anyLong(), anyInt());
+    }
+
+    @Test
+    void getBooksByIds_WhenSomeIdsAreMissing_ListsThemAfterTheBooksFound() {
+        // Arrange
+        when(bookService.getBookResponsesByIds(List.of(5L, 1L, 9L, 5L))).thenReturn(List.of(bookResponseDTO));
+
+        // Act
+        ResponseEntity<BookLookupDTO> response = bookController.getBooksByIds(List.of(5L, 1L, 9L, 5L), webRequest);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(bookResponseDTO), response.getBody().getBooks());
+        assertEquals(List.of(5L, 9L), response.getBody().getMissingIds());
+    }
+
+    @Test
+    void lookupBooksByIds_WhenTooManyIds_ThrowsInvalidInputException() {
+        // Arrange
+        libraryProperties.getLookup().setMaxSize(2);
+
+        // Act & Assert
+        assertThrows(InvalidInputException.class, () -> bookController.lookupBooksByIds(List.of(1L, 2L, 3L)));
+        assertThrows(InvalidInputException.class, () -> bookController.lookupBooksByIds(List.of()));
+        verify(bookService, never()).getBookResponsesByIds(any());
+    }
+
+    @Test
+    void getAllBooks_WhenCursorIsMalformed_ThrowsInvalidInputException() {
+        // Act & Assert
+        assertThrows(InvalidInputException.class, () -> bookController.getAllBooks("not-a-cursor!", null, webRequest));
+        verify(bookService, never()).getBookResponsesAfter(anyLong(), anyInt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportBooks_WhenBooksExist_WritesOneJsonObjectPerLine() throws Exception {
+        // Arrange
+        Book secondBook = new Book();
+        secondBook.setId(2L);
+        secondBook.setTitle("Second Book");
+        doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            consumer.accept(book);
+            consumer.accept(secondBook);
+            return null;
+        }).when(bookService).exportBooks(any(Consumer.class));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = bookController.exportBooks(webRequest);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertNotNull(response.getBody());
+        response.getBody().writeTo(outputStream);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("Test Book", objectMapper.readTree(lines[0]).get("title").asText());
+        assertEquals(2L, objectMapper.readTree(lines[1]).get("id").asLong());
+        assertTrue(outputStream.toString(StandardCharsets.UTF_8).endsWith("\n"));
+    }
+
+    @Test
+    void exportBooks_WhenStreamed_UsesTheExportTimeoutInsteadOfTheDefault() throws Exception {
+        // Arrange
+        libraryProperties.getExport().setTimeout(Duration.ofMinutes(90));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(bookController)
+                .setAsyncRequestTimeout(30_000)
+                .build();
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/v1/books/export")).andReturn();
+
+        // Assert
+        assertTrue(result.getRequest().isAsyncStarted());
+        assertEquals(Duration.ofMinutes(90).toMillis(), result.getRequest().getAsyncContext().getTimeout());
     }
 
     @Test
@@ -124,64 +303,338 @@ class BookControllerTest {
         }
     }
 
+    @Test
+    void createBookAsync_WhenBookRequestIsValid_ReturnsAcceptedTicket() {
+        // Arrange
+        when(bookIngestQueue.submit(bookRequestDTO))
+                .thenReturn(new BookIngestQueue.Ticket("ticket-1", BookIngestQueue.Status.PENDING, null, null));
+
+        // Act
+        ResponseEntity<IngestTicketDTO> response = bookController.createBookAsync(bookRequestDTO);
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("/v1/books/async/ticket-1", response.getHeaders().getLocation().toString());
+        assertEquals("ticket-1", response.getBody().getTicketId());
+        assertEquals("PENDING", response.getBody().getStatus());
+        verify(bookService, never()).createBook(any(Book.class));
+    }
+
+    @Test
+    void createBookAsync_WhenBookRequestIsInvalid_DoesNotQueueIt() {
+        // Arrange
+        BookRequestDTO missingTitle = bookRequestDTO.toBuilder().title(null).build();
+
+        // Act & Assert
+        assertThrows(InvalidInputException.class, () -> bookController.createBookAsync(missingTitle));
+        verifyNoInteractions(bookIngestQueue);
+    }
+
+    @Test
+    void getIngestTicket_WhenBookWasCreated_ReturnsBookId() {
+        // Arrange
+        when(bookIngestQueue.getTicket("ticket-1"))
+                .thenReturn(new BookIngestQueue.Ticket("ticket-1", BookIngestQueue.Status.CREATED, bookId, null));
+
+        // Act
+        ResponseEntity<IngestTicketDTO> response = bookController.getIngestTicket("ticket-1");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("CREATED", response.getBody().getStatus());
+        assertEquals(bookId, response.getBody().getBookId());
+    }
+
+    @Test
+    void getBookChanges_WhenLastEventIdIsSent_SubscribesAfterIt() {
+        // Arrange
+        SseEmitter emitter = new SseEmitter();
+        when(bookChangeFeed.subscribe(42L)).thenReturn(emitter);
+
+        // Act
+        SseEmitter response = bookController.getBookChanges("42");
+
+        // Assert
+        assertSame(emitter, response);
+    }
+
+    @Test
+    void getBookChanges_WhenLastEventIdIsNotANumber_ThrowsInvalidInputException() {
+        // Act & Assert
+        assertThrows(InvalidInputException.class, () -> bookController.getBookChanges("abc"));
+        verifyNoInteractions(bookChangeFeed);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createBooks_WhenAllBooksAreValid_ReturnsCreatedResponse() {
+        // Arrange
+        when(bookService.createBooks(any(List.class))).thenReturn(bookList);
+
+        // Act
+        ResponseEntity<List<BookResponseDTO>> response = bookController.createBooks(List.of(bookRequestDTO));
+
+        // Assert
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(1, response.getBody().size());
+        assertEquals(bookId, response.getBody().get(0).getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createBooks_WhenSomeBooksAreInvalid_ReportsEveryInvalidItem() {
+        // Arrange
+        BookRequestDTO missingTitle = bookRequestDTO.toBuilder().title(null).build();
+        BookRequestDTO missingGenre = bookRequestDTO.toBuilder().genre("").build();
+
+        // Act & Assert
+        InvalidInputException exception = assertThrows(InvalidInputException.class,
+                () -> bookController.createBooks(List.of(bookRequestDTO, missingTitle, missingGenre)));
+        assertEquals("Item 1: Title is required; Item 2: Genre is required", exception.getMessage());
+        verify(bookService, never()).createBooks(any(List.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createBooksFromNdjson_WhenLinesAreValid_CreatesEveryBook() throws Exception {
+        // Arrange
+        String body = objectMapper.writeValueAsString(bookRequestDTO) + "\n"
+                + objectMapper.writeValueAsString(bookRequestDTO) + "\n";
+        when(bookService.createBooks(any(List.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        ResponseEntity<List<BookResponseDTO>> response = bookController.createBooksFromNdjson(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(2, response.getBody().size());
+        assertEquals("Test Book", response.getBody().get(1).getTitle());
+    }
+
     @Test
     void getBookById_WhenBookExists_ReturnsOkResponse() {
         // Arrange
-        when(bookService.getBookById(bookId)).thenReturn(book);
+        bookResponseDTO.setVersion(7L);
+        when(bookService.getBookResponseById(bookId)).thenReturn(bookResponseDTO);
 
-        try (MockedStatic<BookResponseDTO> mockedStatic = mockStatic(BookResponseDTO.class)) {
-            mockedStatic.when(() -> BookResponseDTO.fromBook(any(Book.class))).thenReturn(bookResponseDTO);
+        // Act
+        ResponseEntity<BookResponseDTO> response = bookController.getBookById(bookId, webRequest);
 
-            // Act
-            ResponseEntity<BookResponseDTO> response = bookController.getBookById(bookId);
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(bookId, response.getBody().getId());
+        assertEquals("Test Book", response.getBody().getTitle());
+        assertEquals("\"1-7\"", response.getHeaders().getETag());
 
-            // Assert
-            assertEquals(HttpStatus.OK, response.getStatusCode());
-            assertNotNull(response.getBody());
-            assertEquals(bookId, response.getBody().getId());
-            assertEquals("Test Book", response.getBody().getTitle());
+        verify(bookService, times(1)).getBookResponseById(bookId);
+    }
 
-            verify(bookService, times(1)).getBookById(bookId);
-            mockedStatic.verify(() -> BookResponseDTO.fromBook(any(Book.class)), times(1));
-        }
+    @Test
+    void getBookById_WhenIfNoneMatchIsCurrent_ReturnsNotModifiedWithoutLoadingTheBook() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/books/1");
+        request.addHeader("If-None-Match", "\"1-7\"");
+        when(bookService.getBookVersion(bookId)).thenReturn(7L);
+
+        // Act
+        ResponseEntity<BookResponseDTO> response = bookController.getBookById(bookId,
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(bookService, never()).getBookResponseById(anyLong());
+    }
+
+    @Test
+    void getBookById_WhenIfNoneMatchIsOutdated_ReturnsTheBookWithItsNewETag() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/books/1");
+        request.addHeader("If-None-Match", "\"1-7\"");
+        bookResponseDTO.setVersion(8L);
+        when(bookService.getBookVersion(bookId)).thenReturn(8L);
+        when(bookService.getBookResponseById(bookId)).thenReturn(bookResponseDTO);
+
+        // Act
+        ResponseEntity<BookResponseDTO> response = bookController.getBookById(bookId,
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"1-8\"", response.getHeaders().getETag());
+        assertEquals("Test Book", response.getBody().getTitle());
+    }
+
+    @Test
+    void getBookByIsbn_WhenBookExists_ReturnsOkResponse() {
+        // Arrange
+        when(bookService.getBookByIsbn("0-306-40615-2")).thenReturn(book);
+
+        // Act
+        ResponseEntity<BookResponseDTO> response = bookController.getBookByIsbn("0-306-40615-2");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(bookId, response.getBody().getId());
+        verify(bookService, times(1)).getBookByIsbn("0-306-40615-2");
+    }
+
+    @Test
+    void searchBooks_WhenBooksMatch_ReturnsOkResponse() {
+        // Arrange
+        when(bookService.searchBooks("test", PageRequest.of(1, 5)))
+                .thenReturn(new PageImpl<>(bookList, PageRequest.of(1, 5), 6));
+
+        // Act
+        ResponseEntity<BookSearchResultDTO> response = bookController.searchBooks("test", 1, 5, webRequest);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(6, response.getBody().getTotalHits());
+        assertEquals(1, response.getBody().getPage());
+        assertEquals(bookId, response.getBody().getBooks().get(0).getId());
+    }
+
+    @Test
+    void getBookFacets_WhenLimitIsSet_ReturnsLargestBucketsFirst() {
+        // Arrange
+        when(bookService.getBookFacets()).thenReturn(new BookFacetIndex.Facets(
+                Map.of("Poetry", 1L, "Fantasy", 5L, "Mystery", 3L),
+                Map.of("Tolkien", 2L, "Christie", 3L),
+                Map.of(1960, 4L, 1930, 1L, 2000, 2L)));
+
+        // Act
+        ResponseEntity<BookFacetsDTO> response = bookController.getBookFacets(2, webRequest);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of("Fantasy", "Mystery"), List.copyOf(response.getBody().getGenres().keySet()));
+        assertEquals(List.of("Christie", "Tolkien"), List.copyOf(response.getBody().getAuthors().keySet()));
+        assertEquals(List.of(1930, 1960, 2000), List.copyOf(response.getBody().getDecades().keySet()));
+        assertThrows(InvalidInputException.class, () -> bookController.getBookFacets(0, webRequest));
     }
 
     @Test
     void updateBook_WhenBookExists_ReturnsOkResponse() {
         // Arrange
-        when(bookService.updateBook(eq(bookId), any(Book.class))).thenReturn(book);
+        book.setVersion(4L);
+        when(bookService.updateBook(eq(bookId), any(Book.class), isNull())).thenReturn(book);
 
         try (MockedStatic<BookRequestDTO> mockedStaticRequest = mockStatic(BookRequestDTO.class);
              MockedStatic<BookResponseDTO> mockedStaticResponse = mockStatic(BookResponseDTO.class)) {
 
+            mockedStaticRequest.when(() -> BookRequestDTO.validate(any(BookRequestDTO.class))).then(invocation -> null);
             mockedStaticRequest.when(() -> BookRequestDTO.toBook(any(BookRequestDTO.class))).thenReturn(book);
             mockedStaticResponse.when(() -> BookResponseDTO.fromBook(any(Book.class))).thenReturn(bookResponseDTO);
 
             // Act
-            ResponseEntity<BookResponseDTO> response = bookController.updateBook(bookId, bookRequestDTO);
+            ResponseEntity<BookResponseDTO> response = bookController.updateBook(bookId, bookRequestDTO, null);
 
             // Assert
             assertEquals(HttpStatus.OK, response.getStatusCode());
             assertNotNull(response.getBody());
             assertEquals(bookId, response.getBody().getId());
             assertEquals("Test Book", response.getBody().getTitle());
+            assertEquals("\"1-4\"", response.getHeaders().getETag());
 
-            verify(bookService, times(1)).updateBook(eq(bookId), any(Book.class));
+            verify(bookService, times(1)).updateBook(eq(bookId), any(Book.class), isNull());
+            mockedStaticRequest.verify(() -> BookRequestDTO.validate(any(BookRequestDTO.class)), times(1));
             mockedStaticRequest.verify(() -> BookRequestDTO.toBook(any(BookRequestDTO.class)), times(1));
             mockedStaticResponse.verify(() -> BookResponseDTO.fromBook(any(Book.class)), times(1));
         }
     }
 
+    @Test
+    void updateBook_WhenIsbnIsInvalid_Returns400WithoutUpdating() throws Exception {
+        // Arrange: the check digit of 0306406152 is 2
+        String body = objectMapper.writeValueAsString(bookRequestDTO.toBuilder().isbn("0306406153").build());
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(bookController)
+                .setControllerAdvice(new GlobalExceptionHandler(new SimpleMeterRegistry()))
+                .build();
+
+        // Act
+        MockHttpServletResponse response = mockMvc.perform(put("/v1/books/{id}", bookId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn().getResponse();
+
+        // Assert
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getContentAsString().contains("ISBN must be a valid ISBN-10 or ISBN-13"));
+        verify(bookService, never()).updateBook(anyLong(), any(Book.class), any());
+    }
+
+    @Test
+    void patchBook_WhenPatchIsValid_ReturnsNoContentResponse() throws Exception {
+        // Arrange
+        JsonNode patch = objectMapper.readTree("{\"title\":\"Patched Title\",\"publishedYear\":2001}");
+
+        // Act
+        ResponseEntity<Void> response = bookController.patchBook(bookId, patch, "\"1-3\"");
+
+        // Assert
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(bookService, times(1)).patchBook(eq(bookId), argThat(changes ->
+                "Patched Title".equals(changes.getTitle())
+                        && changes.getPublishedYear() == 2001
+                        && changes.getAuthor() == null
+                        && changes.getIsbn() == null), eq(3L));
+    }
+
+    @Test
+    void patchBook_WhenPatchRemovesOrAddsFields_ThrowsInvalidInputException() throws Exception {
+        // Arrange
+        JsonNode removesTitle = objectMapper.readTree("{\"title\":null}");
+        JsonNode unknownField = objectMapper.readTree("{\"publisher\":\"Acme\"}");
+        JsonNode invalidIsbn = objectMapper.readTree("{\"isbn\":\"1234567890\"}");
+        JsonNode empty = objectMapper.readTree("{}");
+
+        // Act & Assert
+        InvalidInputException exception = assertThrows(InvalidInputException.class,
+                () -> bookController.patchBook(bookId, removesTitle, null));
+        assertEquals("title cannot be removed", exception.getMessage());
+        assertThrows(InvalidInputException.class, () -> bookController.patchBook(bookId, unknownField, null));
+        assertThrows(InvalidInputException.class, () -> bookController.patchBook(bookId, invalidIsbn, null));
+        assertThrows(InvalidInputException.class, () -> bookController.patchBook(bookId, empty, null));
+        verify(bookService, never()).patchBook(anyLong(), any(Book.class), any());
+    }
+
     @Test
     void deleteBook_WhenBookExists_ReturnsNoContentResponse() {
         // Arrange
-        doNothing().when(bookService).deleteBook(bookId);
+        doNothing().when(bookService).deleteBook(bookId, null);
+
+        // Act
+        ResponseEntity<Void> response = bookController.deleteBook(bookId, "*");
+
+        // Assert
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(bookService, times(1)).deleteBook(bookId, null);
+    }
 
+    @Test
+    void deleteBook_WhenIfMatchHoldsTheBookETag_PassesItsVersion() {
         // Act
-        ResponseEntity<Void> response = bookController.deleteBook(bookId);
+        ResponseEntity<Void> response = bookController.deleteBook(bookId, " \"1-12\" ");
 
         // Assert
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
-        verify(bookService, times(1)).deleteBook(bookId);
+        verify(bookService, times(1)).deleteBook(bookId, 12L);
+    }
+
+    @Test
+    void deleteBook_WhenIfMatchCanNeverMatch_ThrowsPreconditionFailedException() {
+        // Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> bookController.deleteBook(bookId, "\"2-12\""));
+        assertThrows(PreconditionFailedException.class, () -> bookController.deleteBook(bookId, "W/\"1-12\""));
+        assertThrows(PreconditionFailedException.class, () -> bookController.deleteBook(bookId, "\"1-\""));
+        assertThrows(PreconditionFailedException.class, () -> bookController.deleteBook(bookId, "\"1-x\""));
+        verify(bookService, never()).deleteBook(anyLong(), any());
     }
 }
@@ -0,0 +1,144 @@
+package com.aim.fictionalpubliclibrary.exceptions;
+
+import com.aim.fictionalpubliclibrary.dtos.ErrorDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobalExceptionHandlerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private GlobalExceptionHandler globalExceptionHandler;
+    private WebRequest request;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        globalExceptionHandler = new GlobalExceptionHandler(meterRegistry);
+        request = new ServletWebRequest(new MockHttpServletRequest("GET", "/v1/books/1"));
+    }
+
+    @Test
+    void handleResourceNotFoundException_WhenCalled_Returns404AndCountsError() {
+        // Act
+        ResponseEntity<ErrorDTO> response = globalExceptionHandler.handleResourceNotFoundException(
+                new ResourceNotFoundException("Book", "id", 1L), request);
+        globalExceptionHandler.handleResourceNotFoundException(
+                new ResourceNotFoundException("Book", "id", 2L), request);
+
+        // Assert
+        assertEquals(404, response.getStatusCode().value());
+        assertEquals("uri=/v1/books/1", response.getBody().getDetails());
+        assertEquals(2.0, meterRegistry.get(GlobalExceptionHandler.ERROR_COUNTER)
+                .tag("status", "404").tag("exception", "ResourceNotFoundException").counter().count());
+    }
+
+    @Test
+    void handleGenericException_WhenCalled_Returns500AndCountsErrorByStatus() {
+        // Act
+        ResponseEntity<ErrorDTO> response = globalExceptionHandler.handleGenericException(
+                new IllegalStateException("boom"), request);
+        globalExceptionHandler.handleInvalidInputException(new InvalidInputException("bad"), request);
+
+        // Assert
+        assertEquals(500, response.getStatusCode().value());
+        assertEquals(1.0, meterRegistry.get(GlobalExceptionHandler.ERROR_COUNTER)
+                .tag("status", "500").counter().count());
+        assertEquals(1.0, meterRegistry.get(GlobalExceptionHandler.ERROR_COUNTER)
+                .tag("status", "400").counter().count());
+    }
+
+    @Test
+    void handleTooManyRequestsException_WhenCalled_Returns429WithRetryAfter() {
+        // Act
+        ResponseEntity<ErrorDTO> response = globalExceptionHandler.handleTooManyRequestsException(
+                new TooManyRequestsException("Book ingestion queue is full", Duration.ofMillis(1500)), request);
+        ResponseEntity<ErrorDTO> belowOneSecond = globalExceptionHandler.handleTooManyRequestsException(
+                new TooManyRequestsException("Book ingestion queue is full", Duration.ofMillis(10)), request);
+
+        // Assert
+        assertEquals(429, response.getStatusCode().value());
+        assertEquals("Book ingestion queue is full", response.getBody().getMessage());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("1", belowOneSecond.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(2.0, meterRegistry.get(GlobalExceptionHandler.ERROR_COUNTER)
+                .tag("status", "429").counter().count());
+    }
+
+    @Test
+    void handleOptimisticLockingFailureException_WhenCalled_Returns412() {
+        // Act
+        ResponseEntity<ErrorDTO> response = globalExceptionHandler.handleOptimisticLockingFailureException(
+                new OptimisticLockingFailureException("Row was updated or deleted by another transaction"), request);
+        globalExceptionHandler.handlePreconditionFailedException(
+                new PreconditionFailedException("Book", "id", 1L), request);
+
+        // Assert
+        assertEquals(412, response.getStatusCode().value());
+        assertEquals("The resource was changed by another request", response.getBody().getMessage());
+        assertEquals(2.0, meterRegistry.get(GlobalExceptionHandler.ERROR_COUNTER)
+                .tag("status", "412").counters().stream().mapToDouble(counter -> counter.count()).sum());
+    }
+
+    @Test
+    void handleDataIntegrityViolationException_WhenIsbnIndexIsViolated_Returns409LikeTheDuplicateCheck() {
+        // Arrange
+        DataIntegrityViolationException ex = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement",
+                        new SQLException("Unique index or primary key violation"), "PUBLIC.UX_BOOK_ISBN13_INDEX_1"));
+
+        // Act
+        ResponseEntity<ErrorDTO> response = globalExceptionHandler.handleDataIntegrityViolationException(ex, request);
+
+        // Assert
+        assertEquals(409, response.getStatusCode().value());
+        assertEquals("Book already exists with isbn", response.getBody().getMessage());
+        assertEquals(1.0, meterRegistry.get(GlobalExceptionHandler.ERROR_COUNTER)
+                .tag("status", "409").tag("exception", "DuplicateResourceException").counter().count());
+    }
+
+    @Test
+    void handleDataIntegrityViolationException_WhenOnlyTheDriverNamesTheIsbnIndex_Returns409() {
+        // Arrange: Hibernate could not extract the constraint name, the H2 message still carries it
+        DataIntegrityViolationException ex = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement",
+                        new SQLException("Unique index or primary key violation: \"PUBLIC.UX_BOOK_ISBN13_INDEX_1 ON "
+                                + "PUBLIC.BOOK(ISBN13 NULLS FIRST) VALUES ( /* 7 */ '9780306406157' )\""), null));
+
+        // Act
+        ResponseEntity<ErrorDTO> response = globalExceptionHandler.handleDataIntegrityViolationException(ex, request);
+
+        // Assert
+        assertEquals(409, response.getStatusCode().value());
+        assertEquals("Book already exists with isbn", response.getBody().getMessage());
+    }
+
+    @Test
+    void handleDataIntegrityViolationException_WhenAnotherConstraintIsViolated_Returns500() {
+        // Arrange
+        DataIntegrityViolationException ex = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement",
+                        new SQLException("NULL not allowed for column \"TITLE\""), null));
+
+        // Act
+        ResponseEntity<ErrorDTO> response = globalExceptionHandler.handleDataIntegrityViolationException(ex, request);
+
+        // Assert
+        assertEquals(500, response.getStatusCode().value());
+        assertEquals(1.0, meterRegistry.get(GlobalExceptionHandler.ERROR_COUNTER)
+                .tag("status", "500").tag("exception", "DataIntegrityViolationException").counter().count());
+    }
+}
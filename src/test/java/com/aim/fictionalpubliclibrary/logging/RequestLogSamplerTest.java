@@ -0,0 +1,45 @@
+package com.aim.fictionalpubliclibrary.logging;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestLogSamplerTest {
+
+    @Test
+    void sample_WhenEndpointHasNoRate_UsesDefaultRate() {
+        // Arrange
+        LibraryProperties libraryProperties = new LibraryProperties();
+        libraryProperties.getLogging().setDefaultSampleRate(0.0);
+        libraryProperties.getLogging().setSampleRates(Map.of("createBook", 1.0));
+        RequestLogSampler requestLogSampler = new RequestLogSampler(libraryProperties);
+
+        // Act & Assert
+        for (int i = 0; i < 100; i++) {
+            assertTrue(requestLogSampler.sample("createBook"));
+            assertFalse(requestLogSampler.sample("getBookById"));
+        }
+    }
+
+    @Test
+    void sample_WhenRateIsFractional_LogsAboutThatShareOfRequests() {
+        // Arrange
+        LibraryProperties libraryProperties = new LibraryProperties();
+        libraryProperties.getLogging().setSampleRates(Map.of("getBookById", 0.1));
+        RequestLogSampler requestLogSampler = new RequestLogSampler(libraryProperties);
+
+        // Act
+        int logged = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (requestLogSampler.sample("getBookById")) {
+                logged++;
+            }
+        }
+
+        // Assert
+        assertTrue(logged > 700 && logged < 1300, "logged " + logged + " of 10000");
+    }
+}
@@ -0,0 +1,97 @@
+package com.aim.fictionalpubliclibrary.repositories;
+
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.models.Book;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Second-level and query cache of the repository. The caches only serve what committed transactions left
+ * in them, so every repository call here runs in its own transaction instead of one rolled back per test.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookRepositoryCacheTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void findById_WhenBookWasLoadedBefore_IsServedFromSecondLevelCache() {
+        // Arrange
+        long id = bookRepository.save(book("Cached")).getId();
+        bookRepository.findById(id);
+        CacheRegionStatistics statistics = regionStatistics(Book.CACHE_REGION);
+        long hits = statistics.getHitCount();
+
+        // Act
+        Optional<Book> found = bookRepository.findById(id);
+
+        // Assert
+        assertTrue(found.isPresent());
+        assertEquals("Cached", found.get().getTitle());
+        assertEquals(hits + 1, statistics.getHitCount());
+    }
+
+    @Test
+    void findResponseById_WhenQueryRanBefore_IsServedFromQueryCache() {
+        // Arrange
+        long id = bookRepository.save(book("Cached")).getId();
+        bookRepository.findResponseById(id);
+        CacheRegionStatistics statistics = regionStatistics(BookRepository.QUERY_CACHE_REGION);
+        long hits = statistics.getHitCount();
+
+        // Act
+        Optional<BookResponseDTO> found = bookRepository.findResponseById(id);
+
+        // Assert
+        assertTrue(found.isPresent());
+        assertEquals("Cached", found.get().getTitle());
+        assertEquals(hits + 1, statistics.getHitCount());
+    }
+
+    @Test
+    void findResponseById_WhenBookChangedAfterQueryRan_ReturnsChangedBook() {
+        // Arrange
+        Book book = bookRepository.save(book("Before"));
+        bookRepository.findResponseById(book.getId());
+        book.setTitle("After");
+
+        // Act
+        bookRepository.save(book);
+        Optional<BookResponseDTO> found = bookRepository.findResponseById(book.getId());
+
+        // Assert
+        assertTrue(found.isPresent());
+        assertEquals("After", found.get().getTitle());
+    }
+
+    private static Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        return book;
+    }
+
+    private CacheRegionStatistics regionStatistics(String region) {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics().getCacheRegionStatistics(region);
+    }
+}
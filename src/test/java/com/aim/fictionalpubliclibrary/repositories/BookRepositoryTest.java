@@ -1,13 +1,20 @@
 package com.aim.fictionalpubliclibrary.repositories;
 
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
 import com.aim.fictionalpubliclibrary.models.Book;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -127,4 +134,258 @@ class BookRepositoryTest {
         // Assert
         assertNull(entityManager.find(Book.class, bookId));
     }
+
+    @Test
+    void findResponsePageAfter_WhenBooksExist_ReturnsNextPageInIdOrder() {
+        // Arrange
+        long[] ids = new long[3];
+        for (int i = 0; i < ids.length; i++) {
+            Book book = new Book();
+            book.setTitle("Paged Book " + i);
+            book.setAuthor("Paged Author");
+            book.setIsbn("000000000" + i);
+            book.setPublishedYear(2000 + i);
+            book.setGenre("Fiction");
+            ids[i] = entityManager.persistAndFlush(book).getId();
+        }
+
+        // Act
+        List<BookResponseDTO> firstPage = bookRepository.findResponsePageAfter(0L, Limit.of(2));
+        List<BookResponseDTO> secondPage = bookRepository.findResponsePageAfter(firstPage.get(1).getId(), Limit.of(2));
+
+        // Assert
+        assertEquals(2, firstPage.size());
+        assertEquals(ids[0], firstPage.get(0).getId());
+        assertEquals(ids[1], firstPage.get(1).getId());
+        assertEquals(1, secondPage.size());
+        assertEquals(ids[2], secondPage.get(0).getId());
+        assertEquals("Paged Book 2", secondPage.get(0).getTitle());
+    }
+
+    @Test
+    void findResponseById_WhenBookExists_ReturnsProjection() {
+        // Arrange
+        Book book = new Book();
+        book.setTitle("Projected Book");
+        book.setAuthor("Projected Author");
+        book.setIsbn("0306406152");
+        book.setPublishedYear(2001);
+        book.setGenre("Fiction");
+        long id = entityManager.persistAndFlush(book).getId();
+        entityManager.clear();
+
+        // Act
+        Optional<BookResponseDTO> found = bookRepository.findResponseById(id);
+
+        // Assert
+        assertTrue(found.isPresent());
+        assertEquals(BookResponseDTO.fromBook(book), found.get());
+        assertTrue(bookRepository.findResponseById(id + 1).isEmpty());
+    }
+
+    @Test
+    void findResponsesByIdIn_WhenSomeIdsExist_ReturnsOnlyThoseBooks() {
+        // Arrange
+        Book first = new Book();
+        first.setTitle("First");
+        Book second = new Book();
+        second.setTitle("Second");
+        long firstId = entityManager.persist(first).getId();
+        long secondId = entityManager.persist(second).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<BookResponseDTO> found = bookRepository.findResponsesByIdIn(List.of(secondId, firstId, secondId + 100));
+
+        // Assert
+        assertEquals(2, found.size());
+        assertEquals(Set.of("First", "Second"),
+                Set.copyOf(found.stream().map(BookResponseDTO::getTitle).toList()));
+    }
+
+    @Test
+    void findByIsbn13_WhenBookWasSavedWithIsbn10_ReturnsBook() {
+        // Arrange
+        Book book = new Book();
+        book.setTitle("ISBN Book");
+        book.setAuthor("ISBN Author");
+        book.setIsbn("0-306-40615-2");
+        book.setPublishedYear(1999);
+        book.setGenre("Reference");
+        entityManager.persistAndFlush(book);
+
+        // Act
+        Optional<Book> foundBook = bookRepository.findByIsbn13("9780306406157");
+
+        // Assert
+        assertTrue(foundBook.isPresent());
+        assertEquals("0-306-40615-2", foundBook.get().getIsbn());
+        assertTrue(bookRepository.existsByIsbn13("9780306406157"));
+        assertEquals(List.of("9780306406157"),
+                bookRepository.findExistingIsbn13s(List.of("9780306406157", "9780131103627")));
+    }
+
+    @Test
+    void save_WhenIsbn13AlreadyExists_ViolatesUniqueIndex() {
+        // Arrange
+        Book book = new Book();
+        book.setTitle("Original");
+        book.setIsbn("0306406152");
+        entityManager.persistAndFlush(book);
+
+        Book duplicate = new Book();
+        duplicate.setTitle("Duplicate");
+        duplicate.setIsbn("978-0-306-40615-7");
+
+        // Act & Assert
+        assertThrows(ConstraintViolationException.class, () -> entityManager.persistAndFlush(duplicate));
+    }
+
+    @Test
+    void saveAndFlush_WhenIsbn13AlreadyExists_ThrowsDataIntegrityViolationOnTheIsbnIndex() {
+        // Arrange
+        Book book = new Book();
+        book.setTitle("Original");
+        book.setIsbn("0306406152");
+        bookRepository.saveAndFlush(book);
+
+        Book duplicate = new Book();
+        duplicate.setTitle("Duplicate");
+        duplicate.setIsbn("978-0-306-40615-7");
+
+        // Act
+        DataIntegrityViolationException ex = assertThrows(DataIntegrityViolationException.class,
+                () -> bookRepository.saveAndFlush(duplicate));
+
+        // Assert
+        assertTrue(ex.getMessage().toLowerCase(Locale.ROOT).contains(Book.ISBN13_UNIQUE_INDEX));
+    }
+
+    @Test
+    void patchBook_WhenOnlySomeFieldsChange_UpdatesOnlyThoseColumns() {
+        // Arrange
+        Book book = new Book();
+        book.setTitle("Original Title");
+        book.setAuthor("Original Author");
+        book.setIsbn("0306406152");
+        book.setPublishedYear(1999);
+        book.setGenre("Reference");
+        Long id = entityManager.persistAndFlush(book).getId();
+        entityManager.clear();
+
+        Book changes = new Book();
+        changes.setTitle("Patched Title");
+        changes.setIsbn("9780131103627");
+
+        // Act
+        int updated = bookRepository.patchBook(id, changes, null);
+        int missing = bookRepository.patchBook(id + 1000, changes, null);
+        entityManager.clear();
+
+        // Assert
+        assertEquals(1, updated);
+        assertEquals(0, missing);
+        Book patched = entityManager.find(Book.class, id);
+        assertEquals("Patched Title", patched.getTitle());
+        assertEquals("Original Author", patched.getAuthor());
+        assertEquals(1999, patched.getPublishedYear());
+        assertEquals("9780131103627", patched.getIsbn13());
+        assertEquals(1L, patched.getVersion());
+        assertTrue(bookRepository.existsByIsbn13AndIdNot("9780131103627", id + 1));
+        assertFalse(bookRepository.existsByIsbn13AndIdNot("9780131103627", id));
+    }
+
+    @Test
+    void patchBook_WhenExpectedVersionIsStale_UpdatesNothing() {
+        // Arrange
+        Book book = new Book();
+        book.setTitle("Original Title");
+        Long id = entityManager.persistAndFlush(book).getId();
+        entityManager.clear();
+        Book changes = new Book();
+        changes.setTitle("Patched Title");
+
+        // Act
+        int first = bookRepository.patchBook(id, changes, 0L);
+        int stale = bookRepository.patchBook(id, changes, 0L);
+        entityManager.clear();
+
+        // Assert
+        assertEquals(1, first);
+        assertEquals(0, stale);
+        assertEquals(Optional.of(1L), bookRepository.findVersionById(id));
+    }
+
+    @Test
+    void deleteBookByIdAndVersion_WhenVersionIsStale_DeletesNothing() {
+        // Arrange
+        Book book = new Book();
+        book.setTitle("Versioned");
+        Long id = entityManager.persistAndFlush(book).getId();
+        book.setTitle("Versioned again");
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        int stale = bookRepository.deleteBookByIdAndVersion(id, 0L);
+        int current = bookRepository.deleteBookByIdAndVersion(id, 1L);
+
+        // Assert
+        assertEquals(0, stale);
+        assertEquals(1, current);
+        assertFalse(bookRepository.existsById(id));
+    }
+
+    @Test
+    void deleteBookById_WhenBookExists_DeletesWithoutLoading() {
+        // Arrange
+        Book book = new Book();
+        book.setTitle("To Delete");
+        Long id = entityManager.persistAndFlush(book).getId();
+        entityManager.clear();
+
+        // Act & Assert
+        assertEquals(1, bookRepository.deleteBookById(id));
+        assertEquals(0, bookRepository.deleteBookById(id));
+        assertNull(entityManager.find(Book.class, id));
+    }
+
+    @Test
+    void insertBooks_WhenBooksHaveIds_KeepsTheirIdsVersionsAndTimestamps() {
+        // Arrange
+        Book book = new Book();
+        book.setId(500_000L);
+        book.setVersion(3L);
+        book.setCreatedAt(new Date(1_000_000L));
+        book.setLastModifiedAt(new Date(2_000_000L));
+        book.setTitle("Restored Title");
+        book.setIsbn("0306406152");
+        book.setPublishedYear(1999);
+
+        // Act
+        bookRepository.insertBooks(List.of(book));
+        entityManager.clear();
+
+        // Assert
+        Book restored = entityManager.find(Book.class, 500_000L);
+        assertEquals("Restored Title", restored.getTitle());
+        assertEquals(3L, restored.getVersion());
+        assertEquals(1_000_000L, restored.getCreatedAt().getTime());
+        assertEquals(2_000_000L, restored.getLastModifiedAt().getTime());
+        assertEquals("9780306406157", restored.getIsbn13());
+        assertEquals(1999, restored.getPublishedYear());
+    }
+
+    @Test
+    void restartIdSequenceAfter_WhenCalled_NextBlockOfIdsStartsAfterTheGivenId() {
+        // Act
+        bookRepository.restartIdSequenceAfter(700_000L);
+
+        // Assert
+        // The pooled optimizer hands out the 50 IDs up to each sequence value
+        Number next = (Number) entityManager.getEntityManager()
+                .createNativeQuery("SELECT NEXT VALUE FOR book_seq").getSingleResult();
+        assertEquals(700_050L, next.longValue());
+    }
 }
@@ -0,0 +1,51 @@
+package com.aim.fictionalpubliclibrary.repositories;
+
+import com.aim.fictionalpubliclibrary.models.Book;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The fast-start profile creates the schema from db/schema-h2.sql instead of letting Hibernate generate it,
+ * Hibernate validates here that the script matches the entity mappings.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+@ActiveProfiles("fast-start")
+class FastStartSchemaTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Test
+    void save_WhenSchemaComesFromScript_StoresAndReadsBook() {
+        // Arrange
+        Book book = new Book();
+        book.setTitle("Dune");
+        book.setAuthor("Frank Herbert");
+        book.setIsbn("9780441013593");
+        book.setPublishedYear(1965);
+        book.setGenre("Science Fiction");
+
+        // Act
+        Book savedBook = bookRepository.saveAndFlush(book);
+        entityManager.clear();
+
+        // Assert
+        Book foundBook = bookRepository.findById(savedBook.getId()).orElseThrow();
+        assertEquals("Dune", foundBook.getTitle());
+        assertEquals("9780441013593", foundBook.getIsbn13());
+        assertEquals(0L, foundBook.getVersion());
+        assertNotNull(foundBook.getCreatedAt());
+        assertEquals(List.of(foundBook.getId()),
+                bookRepository.findAll().stream().map(Book::getId).toList());
+    }
+}
@@ -0,0 +1,170 @@
+package com.aim.fictionalpubliclibrary.services.changes;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.controllers.BookController;
+import com.aim.fictionalpubliclibrary.exceptions.TooManyRequestsException;
+import com.aim.fictionalpubliclibrary.logging.RequestLogSampler;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import com.aim.fictionalpubliclibrary.services.events.BookChangedEvent;
+import com.aim.fictionalpubliclibrary.services.ingest.BookIngestQueue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Drives the feed through the controller, so subscribers are real asynchronous SSE responses
+ * whose content can be read once the dispatcher has sent the changes.
+ */
+class BookChangeFeedTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private SimpleMeterRegistry meterRegistry;
+    private LibraryProperties libraryProperties;
+    private BookChangeFeed feed;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        libraryProperties = new LibraryProperties();
+        libraryProperties.getChanges().setReplaySize(2);
+        libraryProperties.getChanges().setMaxSubscribers(2);
+        feed = new BookChangeFeed(objectMapper, libraryProperties, meterRegistry);
+        feed.start();
+        mockMvc = MockMvcBuilders.standaloneSetup(new BookController(mock(BookService.class), libraryProperties,
+                objectMapper, new RequestLogSampler(libraryProperties), mock(BookIngestQueue.class), feed)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.stop();
+    }
+
+    @Test
+    void subscribe_WhenBooksChange_SendsEachChangeWithIncreasingSequence() throws Exception {
+        // Arrange
+        MvcResult subscription = subscribe(null);
+
+        // Act
+        feed.onBookChanged(BookChangedEvent.created(book(1L, "Created")));
+        feed.onBookChanged(BookChangedEvent.deleted(1L));
+        feed.awaitDispatched();
+
+        // Assert
+        String body = subscription.getResponse().getContentAsString();
+        List<Long> ids = eventIds(body);
+        assertEquals(2, ids.size());
+        assertEquals(ids.get(0) + 1, ids.get(1));
+        assertTrue(body.contains("\"type\":\"CREATED\",\"bookId\":1,\"book\":{\"id\":1,\"title\":\"Created\""));
+        assertTrue(body.contains("\"type\":\"DELETED\",\"bookId\":1,\"book\":null"));
+        assertEquals(2.0, meterRegistry.get(BookChangeFeed.EVENTS_COUNTER).counter().count());
+    }
+
+    @Test
+    void subscribe_WhenLastEventIdIsBuffered_ReplaysOnlyTheLaterChanges() throws Exception {
+        // Arrange
+        MvcResult first = subscribe(null);
+        feed.onBookChanged(BookChangedEvent.created(book(1L, "First")));
+        feed.onBookChanged(BookChangedEvent.created(book(2L, "Second")));
+        feed.awaitDispatched();
+        List<Long> ids = eventIds(first.getResponse().getContentAsString());
+
+        // Act
+        MvcResult resumed = subscribe(ids.get(0));
+        feed.awaitDispatched();
+
+        // Assert
+        String body = resumed.getResponse().getContentAsString();
+        assertEquals(List.of(ids.get(1)), eventIds(body));
+        assertTrue(body.contains("\"title\":\"Second\""));
+        assertFalse(body.contains("\"title\":\"First\""));
+    }
+
+    @Test
+    void subscribe_WhenLastEventIdIsNoLongerBuffered_SendsReset() throws Exception {
+        // Arrange
+        MvcResult first = subscribe(null);
+        for (long id = 1; id <= 3; id++) {
+            feed.onBookChanged(BookChangedEvent.created(book(id, "Book " + id)));
+        }
+        feed.awaitDispatched();
+        List<Long> ids = eventIds(first.getResponse().getContentAsString());
+
+        // Act
+        MvcResult resumed = subscribe(ids.get(0) - 1);
+        feed.awaitDispatched();
+
+        // Assert
+        String body = resumed.getResponse().getContentAsString();
+        assertTrue(body.contains("event:" + BookChangeFeed.RESET_EVENT));
+        assertEquals(List.of(ids.get(2)), eventIds(body));
+        assertFalse(body.contains("\"title\""));
+    }
+
+    @Test
+    void subscribe_WhenLastEventIdIsFromAnotherRun_SendsReset() throws Exception {
+        // Act
+        MvcResult resumed = subscribe(Long.MAX_VALUE);
+        feed.awaitDispatched();
+
+        // Assert
+        assertTrue(resumed.getResponse().getContentAsString().contains("event:" + BookChangeFeed.RESET_EVENT));
+    }
+
+    @Test
+    void subscribe_WhenMaxSubscribersReached_ThrowsTooManyRequestsException() {
+        // Arrange
+        feed.subscribe(null);
+        feed.subscribe(null);
+
+        // Act & Assert
+        assertThrows(TooManyRequestsException.class, () -> feed.subscribe(null));
+        assertEquals(2.0, meterRegistry.get(BookChangeFeed.SUBSCRIBERS_GAUGE).gauge().value());
+    }
+
+    @Test
+    void subscribe_WhenFeedIsStopped_ThrowsTooManyRequestsException() {
+        // Arrange
+        feed.stop();
+
+        // Act & Assert
+        assertThrows(TooManyRequestsException.class, () -> feed.subscribe(null));
+    }
+
+    private MvcResult subscribe(Long lastEventId) throws Exception {
+        MockHttpServletRequestBuilder requestBuilder = get("/v1/books/changes");
+        if (lastEventId != null) {
+            requestBuilder.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private static List<Long> eventIds(String body) {
+        return body.lines()
+                .filter(line -> line.startsWith("id:"))
+                .map(line -> Long.parseLong(line.substring(3)))
+                .toList();
+    }
+
+    private static Book book(long id, String title) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        return book;
+    }
+}
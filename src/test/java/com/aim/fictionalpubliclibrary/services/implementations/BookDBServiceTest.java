@@ -1,21 +1,42 @@
 package com.aim.fictionalpubliclibrary.services.implementations;
 
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.exceptions.DuplicateResourceException;
+import com.aim.fictionalpubliclibrary.exceptions.InvalidInputException;
+import com.aim.fictionalpubliclibrary.exceptions.PreconditionFailedException;
 import com.aim.fictionalpubliclibrary.exceptions.ResourceNotFoundException;
 import com.aim.fictionalpubliclibrary.models.Book;
 import com.aim.fictionalpubliclibrary.repositories.BookRepository;
+import com.aim.fictionalpubliclibrary.services.events.BookChangedEvent;
+import com.aim.fictionalpubliclibrary.services.indexes.BookFacetIndex;
+import com.aim.fictionalpubliclibrary.services.indexes.BookSearchIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.Session;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +45,21 @@ class BookDBServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private LibraryProperties libraryProperties = new LibraryProperties();
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private BookFacetIndex bookFacetIndex;
+
     @InjectMocks
     private BookDBService bookDBService;
 
@@ -46,29 +82,62 @@ class BookDBServiceTest {
     }
 
     @Test
-    void getAllBooks_WhenBooksExist_ReturnsAllBooks() {
+    void getBookResponsesAfter_WhenBooksExist_ReturnsPage() {
         // Arrange
-        when(bookRepository.findAll()).thenReturn(bookList);
+        when(bookRepository.findResponsePageAfter(0L, Limit.of(10))).thenReturn(List.of(BookResponseDTO.fromBook(book)));
 
         // Act
-        List<Book> result = bookDBService.getAllBooks();
+        List<BookResponseDTO> result = bookDBService.getBookResponsesAfter(0L, 10);
 
         // Assert
-        assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(bookId, result.get(0).getId());
-        assertEquals("Test Book", result.get(0).getTitle());
-        verify(bookRepository, times(1)).findAll();
+        verify(bookRepository, times(1)).findResponsePageAfter(0L, Limit.of(10));
+    }
+
+    @Test
+    void getBookResponsesAfter_WhenLimitIsNotPositive_ThrowsInvalidInputException() {
+        // Act & Assert
+        assertThrows(InvalidInputException.class, () -> bookDBService.getBookResponsesAfter(0L, 0));
+        verify(bookRepository, never()).findResponsePageAfter(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void exportBooks_WhenBooksExist_PassesEachBookAndDetachesIt() {
+        // Arrange
+        when(bookRepository.streamAllOrderById()).thenReturn(Stream.of(book));
+        List<Book> exported = new ArrayList<>();
+
+        // Act
+        bookDBService.exportBooks(exported::add);
+
+        // Assert
+        assertEquals(bookList, exported);
+        verify(entityManager, times(1)).detach(book);
     }
 
     @Test
-    void getAllBooks_WhenNoBooksExist_ThrowsResourceNotFoundException() {
+    void searchBooks_WhenIndexHasMatches_ReturnsBooksInRankOrder() {
         // Arrange
-        when(bookRepository.findAll()).thenReturn(new ArrayList<>());
+        Book otherBook = new Book();
+        otherBook.setId(2L);
+        when(bookSearchIndex.search("test", 0, 10))
+                .thenReturn(new BookSearchIndex.SearchHits(12, new long[]{2L, bookId}));
+        when(bookRepository.findAllById(List.of(2L, bookId))).thenReturn(List.of(book, otherBook));
 
+        // Act
+        Page<Book> result = bookDBService.searchBooks("test", PageRequest.of(0, 10));
+
+        // Assert
+        assertEquals(12, result.getTotalElements());
+        assertEquals(List.of(otherBook, book), result.getContent());
+    }
+
+    @Test
+    void searchBooks_WhenQueryIsBlank_ThrowsInvalidInputException() {
         // Act & Assert
-        assertThrows(ResourceNotFoundException.class, () -> bookDBService.getAllBooks());
-        verify(bookRepository, times(1)).findAll();
+        assertThrows(InvalidInputException.class, () -> bookDBService.searchBooks(" ", PageRequest.of(0, 10)));
+        verify(bookSearchIndex, never()).search(any(), anyInt(), anyInt());
     }
 
     @Test
@@ -86,6 +155,46 @@ class BookDBServiceTest {
         verify(bookRepository, times(1)).findById(bookId);
     }
 
+    @Test
+    void getBookResponseById_WhenBookExists_ReturnsProjection() {
+        // Arrange
+        when(bookRepository.findResponseById(bookId)).thenReturn(Optional.of(BookResponseDTO.fromBook(book)));
+
+        // Act
+        BookResponseDTO result = bookDBService.getBookResponseById(bookId);
+
+        // Assert
+        assertEquals(bookId, result.getId());
+        assertEquals("Test Book", result.getTitle());
+        verify(bookRepository, never()).findById(any());
+    }
+
+    @Test
+    void getBookResponsesByIds_WhenIdsSpanChunks_QueriesEachChunkOnceAndKeepsRequestOrder() {
+        // Arrange
+        libraryProperties.getLookup().setChunkSize(2);
+        when(bookRepository.findResponsesByIdIn(List.of(3L, 1L)))
+                .thenReturn(List.of(response(1L), response(3L)));
+        when(bookRepository.findResponsesByIdIn(List.of(7L)))
+                .thenReturn(List.of());
+
+        // Act
+        List<BookResponseDTO> result = bookDBService.getBookResponsesByIds(List.of(3L, 1L, 3L, 7L));
+
+        // Assert
+        assertEquals(List.of(3L, 1L), result.stream().map(BookResponseDTO::getId).toList());
+        verify(bookRepository, times(2)).findResponsesByIdIn(any());
+    }
+
+    @Test
+    void getBookResponseById_WhenBookDoesNotExist_ThrowsResourceNotFoundException() {
+        // Arrange
+        when(bookRepository.findResponseById(bookId)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> bookDBService.getBookResponseById(bookId));
+    }
+
     @Test
     void getBookById_WhenBookDoesNotExist_ThrowsResourceNotFoundException() {
         // Arrange
@@ -109,6 +218,116 @@ class BookDBServiceTest {
         assertEquals(bookId, result.getId());
         assertEquals("Test Book", result.getTitle());
         verify(bookRepository, times(1)).save(book);
+        verify(eventPublisher, times(1)).publishEvent(BookChangedEvent.created(book));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createBooks_WhenBooksAreValid_SavesThemInChunks() {
+        // Arrange
+        libraryProperties.getBatch().setChunkSize(2);
+        Session session = mock(Session.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        when(bookRepository.saveAll(any(List.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        List<Book> books = List.of(new Book(), new Book(), new Book());
+
+        // Act
+        List<Book> result = bookDBService.createBooks(books);
+
+        // Assert
+        assertEquals(books, result);
+        verify(session, times(1)).setJdbcBatchSize(2);
+        verify(bookRepository, times(1)).saveAll(books.subList(0, 2));
+        verify(bookRepository, times(1)).saveAll(books.subList(2, 3));
+        verify(bookRepository, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void restoreBooks_WhenBooksAreGiven_InsertsThemInChunksAndRestartsTheSequence() {
+        // Arrange
+        libraryProperties.getBatch().setChunkSize(2);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        jakarta.persistence.Cache cache = mock(jakarta.persistence.Cache.class);
+        Cache hibernateCache = mock(Cache.class);
+        when(entityManager.getEntityManagerFactory()).thenReturn(entityManagerFactory);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        when(cache.unwrap(Cache.class)).thenReturn(hibernateCache);
+        List<Book> books = new ArrayList<>();
+        for (long id : new long[] {7, 9, 8}) {
+            Book restored = new Book();
+            restored.setId(id);
+            books.add(restored);
+        }
+
+        // Act
+        bookDBService.restoreBooks(books);
+
+        // Assert
+        verify(bookRepository, times(1)).insertBooks(books.subList(0, 2));
+        verify(bookRepository, times(1)).insertBooks(books.subList(2, 3));
+        verify(bookRepository, times(1)).restartIdSequenceAfter(9L);
+        verify(hibernateCache, times(1)).evictAllRegions();
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createBooks_WhenIsbnIsRepeatedOrExists_ThrowsDuplicateResourceException() {
+        // Arrange
+        Book first = new Book();
+        first.setIsbn("0306406152");
+        Book repeated = new Book();
+        repeated.setIsbn("978-0-306-40615-7");
+        Book existing = new Book();
+        existing.setIsbn("9780131103627");
+        when(bookRepository.findExistingIsbn13s(any(List.class))).thenReturn(List.of("9780131103627"));
+
+        // Act & Assert
+        DuplicateResourceException exception = assertThrows(DuplicateResourceException.class,
+                () -> bookDBService.createBooks(List.of(first, repeated, existing)));
+        assertTrue(exception.getMessage().contains("9780306406157, 9780131103627"));
+        verify(bookRepository, never()).saveAll(any(List.class));
+    }
+
+    @Test
+    void getBookByIsbn_WhenIsbn10IsGiven_LooksUpIsbn13() {
+        // Arrange
+        when(bookRepository.findByIsbn13("9780306406157")).thenReturn(Optional.of(book));
+
+        // Act
+        Book result = bookDBService.getBookByIsbn("0-306-40615-2");
+
+        // Assert
+        assertEquals(bookId, result.getId());
+        verify(bookRepository, times(1)).findByIsbn13("9780306406157");
+    }
+
+    @Test
+    void getBookByIsbn_WhenIsbnIsInvalid_ThrowsInvalidInputException() {
+        // Act & Assert
+        assertThrows(InvalidInputException.class, () -> bookDBService.getBookByIsbn("0306406153"));
+        verify(bookRepository, never()).findByIsbn13(any());
+    }
+
+    @Test
+    void getBookByIsbn_WhenBookDoesNotExist_ThrowsResourceNotFoundException() {
+        // Arrange
+        when(bookRepository.findByIsbn13("9780306406157")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> bookDBService.getBookByIsbn("9780306406157"));
+    }
+
+    @Test
+    void createBook_WhenIsbnAlreadyExists_ThrowsDuplicateResourceException() {
+        // Arrange
+        book.setIsbn("0306406152");
+        when(bookRepository.existsByIsbn13("9780306406157")).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(DuplicateResourceException.class, () -> bookDBService.createBook(book));
+        verify(bookRepository, never()).save(any(Book.class));
     }
 
     @Test
@@ -118,11 +337,12 @@ class BookDBServiceTest {
         updatedBook.setTitle("Updated Title");
         updatedBook.setAuthor("Updated Author");
 
+        book.setVersion(2L);
         when(bookRepository.findById(bookId)).thenReturn(Optional.of(book));
-        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(bookRepository.saveAndFlush(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
-        Book result = bookDBService.updateBook(bookId, updatedBook);
+        Book result = bookDBService.updateBook(bookId, updatedBook, 2L);
 
         // Assert
         assertNotNull(result);
@@ -134,7 +354,21 @@ class BookDBServiceTest {
         assertEquals("Fiction", result.getGenre());
         
         verify(bookRepository, times(1)).findById(bookId);
-        verify(bookRepository, times(1)).save(any(Book.class));
+        verify(bookRepository, times(1)).saveAndFlush(any(Book.class));
+        verify(eventPublisher, times(1)).publishEvent(BookChangedEvent.updated(result));
+    }
+
+    @Test
+    void updateBook_WhenBookHasAnotherVersion_ThrowsPreconditionFailedException() {
+        // Arrange
+        book.setVersion(3L);
+        when(bookRepository.findById(bookId)).thenReturn(Optional.of(book));
+
+        // Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> bookDBService.updateBook(bookId, new Book(), 2L));
+
+        verify(bookRepository, never()).saveAndFlush(any(Book.class));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -143,35 +377,144 @@ class BookDBServiceTest {
         when(bookRepository.findById(bookId)).thenReturn(Optional.empty());
 
         // Act & Assert
-        assertThrows(ResourceNotFoundException.class, () -> bookDBService.updateBook(bookId, book));
+        assertThrows(ResourceNotFoundException.class, () -> bookDBService.updateBook(bookId, book, null));
         
         verify(bookRepository, times(1)).findById(bookId);
-        verify(bookRepository, never()).save(any(Book.class));
+        verify(bookRepository, never()).saveAndFlush(any(Book.class));
+    }
+
+    @Test
+    void getBookFacets_WhenCalled_ReturnsCountsFromIndexWithoutQueryingDatabase() {
+        // Arrange
+        BookFacetIndex.Facets facets = new BookFacetIndex.Facets(Map.of("Fantasy", 2L), Map.of("Tolkien", 2L),
+                Map.of(1950, 2L));
+        when(bookFacetIndex.facets()).thenReturn(facets);
+
+        // Act
+        BookFacetIndex.Facets result = bookDBService.getBookFacets();
+
+        // Assert
+        assertSame(facets, result);
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void patchBook_WhenBookExists_PatchesBookAndPublishesEvent() {
+        // Arrange
+        Book changes = new Book();
+        changes.setTitle("Patched Title");
+        when(bookRepository.patchBook(bookId, changes, null)).thenReturn(1);
+        when(bookRepository.findVersionById(bookId)).thenReturn(Optional.of(6L));
+
+        // Act
+        bookDBService.patchBook(bookId, changes, null);
+
+        // Assert
+        verify(bookRepository, times(1)).patchBook(bookId, changes, null);
+        verify(bookRepository, never()).findById(any());
+        verify(bookRepository, never()).existsByIsbn13AndIdNot(any(), anyLong());
+        verify(eventPublisher, times(1)).publishEvent(BookChangedEvent.patched(bookId, changes));
+        assertEquals(bookId, changes.getId());
+        assertEquals(6L, changes.getVersion());
+    }
+
+    @Test
+    void patchBook_WhenExpectedVersionMatches_StampsNextVersionWithoutReadingIt() {
+        // Arrange
+        Book changes = new Book();
+        changes.setTitle("Patched Title");
+        when(bookRepository.patchBook(bookId, changes, 5L)).thenReturn(1);
+
+        // Act
+        bookDBService.patchBook(bookId, changes, 5L);
+
+        // Assert
+        assertEquals(6L, changes.getVersion());
+        verify(bookRepository, never()).findVersionById(anyLong());
+        verify(eventPublisher, times(1)).publishEvent(BookChangedEvent.patched(bookId, changes));
+    }
+
+    @Test
+    void patchBook_WhenBookHasAnotherVersion_ThrowsPreconditionFailedException() {
+        // Arrange
+        Book changes = new Book();
+        changes.setTitle("Patched Title");
+        when(bookRepository.patchBook(bookId, changes, 5L)).thenReturn(0);
+        when(bookRepository.existsById(bookId)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> bookDBService.patchBook(bookId, changes, 5L));
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void patchBook_WhenBookDoesNotExist_ThrowsResourceNotFoundException() {
+        // Arrange
+        Book changes = new Book();
+        changes.setGenre("Poetry");
+        when(bookRepository.patchBook(bookId, changes, null)).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> bookDBService.patchBook(bookId, changes, null));
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void patchBook_WhenIsbnBelongsToAnotherBook_ThrowsDuplicateResourceException() {
+        // Arrange
+        Book changes = new Book();
+        changes.setIsbn("0306406152");
+        when(bookRepository.existsByIsbn13AndIdNot(changes.getIsbn13(), bookId)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(DuplicateResourceException.class, () -> bookDBService.patchBook(bookId, changes, null));
+
+        verify(bookRepository, never()).patchBook(anyLong(), any(Book.class), any());
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void deleteBook_WhenBookExists_DeletesBook() {
         // Arrange
-        when(bookRepository.findById(bookId)).thenReturn(Optional.of(book));
-        doNothing().when(bookRepository).delete(book);
+        when(bookRepository.deleteBookById(bookId)).thenReturn(1);
 
         // Act
-        bookDBService.deleteBook(bookId);
+        bookDBService.deleteBook(bookId, null);
 
         // Assert
-        verify(bookRepository, times(1)).findById(bookId);
-        verify(bookRepository, times(1)).delete(book);
+        verify(bookRepository, times(1)).deleteBookById(bookId);
+        verify(bookRepository, never()).findById(any());
+        verify(eventPublisher, times(1)).publishEvent(BookChangedEvent.deleted(bookId));
+    }
+
+    @Test
+    void deleteBook_WhenBookHasAnotherVersion_ThrowsPreconditionFailedException() {
+        // Arrange
+        when(bookRepository.deleteBookByIdAndVersion(bookId, 5L)).thenReturn(0);
+        when(bookRepository.existsById(bookId)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> bookDBService.deleteBook(bookId, 5L));
+
+        verify(bookRepository, never()).deleteBookById(anyLong());
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void deleteBook_WhenBookDoesNotExist_ThrowsResourceNotFoundException() {
         // Arrange
-        when(bookRepository.findById(bookId)).thenReturn(Optional.empty());
+        when(bookRepository.deleteBookById(bookId)).thenReturn(0);
 
         // Act & Assert
-        assertThrows(ResourceNotFoundException.class, () -> bookDBService.deleteBook(bookId));
-        
-        verify(bookRepository, times(1)).findById(bookId);
-        verify(bookRepository, never()).delete(any(Book.class));
+        assertThrows(ResourceNotFoundException.class, () -> bookDBService.deleteBook(bookId, null));
+
+        verify(bookRepository, times(1)).deleteBookById(bookId);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    private static BookResponseDTO response(long id) {
+        return BookResponseDTO.builder().id(id).title("Book " + id).build();
     }
 }
@@ -0,0 +1,193 @@
+package com.aim.fictionalpubliclibrary.services.implementations;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.exceptions.ResourceNotFoundException;
+import com.aim.fictionalpubliclibrary.models.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingBookServiceTest {
+
+    @Mock
+    private BookDBService bookDBService;
+
+    private MeterRegistry meterRegistry;
+    private CachingBookService cachingBookService;
+    private BookResponseDTO book;
+    private final Long bookId = 1L;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cachingBookService = new CachingBookService(bookDBService, new LibraryProperties(), meterRegistry);
+
+        book = BookResponseDTO.builder()
+                .id(bookId)
+                .title("Test Book")
+                .author("Test Author")
+                .isbn("0306406152")
+                .publishedYear(2023)
+                .genre("Fiction")
+                .build();
+    }
+
+    @Test
+    void getBookResponseById_WhenCalledTwice_ReadsDatabaseOnce() {
+        // Arrange
+        when(bookDBService.getBookResponseById(bookId)).thenReturn(book);
+
+        // Act
+        BookResponseDTO first = cachingBookService.getBookResponseById(bookId);
+        BookResponseDTO second = cachingBookService.getBookResponseById(bookId);
+
+        // Assert
+        assertEquals("Test Book", first.getTitle());
+        assertEquals("Test Book", second.getTitle());
+        verify(bookDBService, times(1)).getBookResponseById(bookId);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void getBookResponsesByIds_WhenSomeBooksAreCached_QueriesOnlyTheOthers() {
+        // Arrange
+        BookResponseDTO other = BookResponseDTO.builder().id(2L).title("Other Book").build();
+        when(bookDBService.getBookResponseById(bookId)).thenReturn(book);
+        when(bookDBService.getBookResponsesByIds(List.of(2L, 3L))).thenReturn(List.of(other));
+        cachingBookService.getBookResponseById(bookId);
+
+        // Act
+        List<BookResponseDTO> result = cachingBookService.getBookResponsesByIds(List.of(2L, 1L, 3L));
+
+        // Assert
+        assertEquals(List.of(2L, 1L), result.stream().map(BookResponseDTO::getId).toList());
+        verify(bookDBService, times(1)).getBookResponsesByIds(List.of(2L, 3L));
+    }
+
+    @Test
+    void getBookResponseById_WhenCallerMutatesResult_CachedSnapshotIsUnchanged() {
+        // Arrange
+        when(bookDBService.getBookResponseById(bookId)).thenReturn(book);
+
+        // Act
+        BookResponseDTO first = cachingBookService.getBookResponseById(bookId);
+        first.setTitle("Mutated");
+        book.setTitle("Mutated source");
+        BookResponseDTO second = cachingBookService.getBookResponseById(bookId);
+
+        // Assert
+        assertNotSame(first, second);
+        assertEquals("Test Book", second.getTitle());
+    }
+
+    @Test
+    void getBookResponseById_WhenBookDoesNotExist_ThrowsResourceNotFoundException() {
+        // Arrange
+        when(bookDBService.getBookResponseById(bookId)).thenThrow(new ResourceNotFoundException("Book", "id", bookId));
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> cachingBookService.getBookResponseById(bookId));
+    }
+
+    @Test
+    void getBookResponseById_WhenLoadFailed_RetriesOnNextCall() {
+        // Arrange
+        when(bookDBService.getBookResponseById(bookId))
+                .thenThrow(new ResourceNotFoundException("Book", "id", bookId))
+                .thenReturn(book);
+
+        // Act
+        assertThrows(ResourceNotFoundException.class, () -> cachingBookService.getBookResponseById(bookId));
+        BookResponseDTO result = cachingBookService.getBookResponseById(bookId);
+
+        // Assert
+        assertEquals(bookId, result.getId());
+        verify(bookDBService, times(2)).getBookResponseById(bookId);
+    }
+
+    @Test
+    void updateBook_WhenBookIsCached_InvalidatesEntry() {
+        // Arrange
+        Book updatedBook = new Book();
+        updatedBook.setId(bookId);
+        updatedBook.setTitle("Updated Title");
+        updatedBook.setVersion(2L);
+        when(bookDBService.getBookResponseById(bookId)).thenReturn(book, BookResponseDTO.fromBook(updatedBook));
+        when(bookDBService.updateBook(eq(bookId), any(Book.class), eq(1L))).thenReturn(updatedBook);
+        cachingBookService.getBookResponseById(bookId);
+
+        // Act
+        cachingBookService.updateBook(bookId, updatedBook, 1L);
+        BookResponseDTO result = cachingBookService.getBookResponseById(bookId);
+        BookResponseDTO cached = cachingBookService.getBookResponseById(bookId);
+
+        // Assert
+        assertEquals("Updated Title", result.getTitle());
+        assertEquals(2L, cached.getVersion());
+        verify(bookDBService, times(2)).getBookResponseById(bookId);
+    }
+
+    @Test
+    void patchBook_WhenBookIsCached_InvalidatesEntry() {
+        // Arrange
+        Book changes = new Book();
+        changes.setId(bookId);
+        changes.setTitle("Patched Title");
+        when(bookDBService.getBookResponseById(bookId)).thenReturn(book, BookResponseDTO.fromBook(changes));
+        cachingBookService.getBookResponseById(bookId);
+
+        // Act
+        cachingBookService.patchBook(bookId, changes, null);
+        BookResponseDTO result = cachingBookService.getBookResponseById(bookId);
+
+        // Assert
+        assertEquals("Patched Title", result.getTitle());
+        verify(bookDBService, times(1)).patchBook(bookId, changes, null);
+        verify(bookDBService, times(2)).getBookResponseById(bookId);
+    }
+
+    @Test
+    void deleteBook_WhenBookIsCached_InvalidatesEntry() {
+        // Arrange
+        when(bookDBService.getBookResponseById(bookId))
+                .thenReturn(book)
+                .thenThrow(new ResourceNotFoundException("Book", "id", bookId));
+        cachingBookService.getBookResponseById(bookId);
+
+        // Act
+        cachingBookService.deleteBook(bookId, null);
+
+        // Assert
+        verify(bookDBService, times(1)).deleteBook(bookId, null);
+        assertThrows(ResourceNotFoundException.class, () -> cachingBookService.getBookResponseById(bookId));
+    }
+
+    @Test
+    void restoreBooks_WhenBooksAreCached_InvalidatesEveryEntry() {
+        // Arrange
+        when(bookDBService.getBookResponseById(bookId)).thenReturn(book);
+        cachingBookService.getBookResponseById(bookId);
+        List<Book> books = List.of(new Book());
+
+        // Act
+        cachingBookService.restoreBooks(books);
+        cachingBookService.getBookResponseById(bookId);
+
+        // Assert
+        verify(bookDBService, times(1)).restoreBooks(books);
+        verify(bookDBService, times(2)).getBookResponseById(bookId);
+    }
+}
@@ -0,0 +1,45 @@
+package com.aim.fictionalpubliclibrary.services.imports;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookCsvImportRunnerTest {
+
+    @Mock
+    private BookCsvImporter bookCsvImporter;
+
+    @Mock
+    private ConfigurableApplicationContext applicationContext;
+
+    @Test
+    void run_WhenDatabaseIsInMemoryWithoutSnapshot_ImportsWithoutExiting() throws Exception {
+        // Arrange
+        LibraryProperties libraryProperties = new LibraryProperties();
+        libraryProperties.getCsvImport().setFile("books.csv");
+        DataSourceProperties dataSourceProperties = new DataSourceProperties();
+        dataSourceProperties.setUrl("jdbc:h2:mem:librarydb");
+        when(bookCsvImporter.importFile(Path.of("books.csv"), Path.of("books.csv.rejected.csv")))
+                .thenReturn(new BookCsvImporter.ImportResult(1, 1, 0, Duration.ZERO, 0));
+        BookCsvImportRunner runner = new BookCsvImportRunner(bookCsvImporter, libraryProperties,
+                dataSourceProperties, applicationContext);
+
+        // Act: exiting here would end the test JVM
+        runner.run(new DefaultApplicationArguments());
+
+        // Assert
+        verify(bookCsvImporter).importFile(Path.of("books.csv"), Path.of("books.csv.rejected.csv"));
+        verifyNoInteractions(applicationContext);
+    }
+}
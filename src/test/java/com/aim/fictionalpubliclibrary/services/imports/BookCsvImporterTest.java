@@ -0,0 +1,224 @@
+package com.aim.fictionalpubliclibrary.services.imports;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.exceptions.DuplicateResourceException;
+import com.aim.fictionalpubliclibrary.exceptions.InvalidInputException;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookCsvImporterTest {
+
+    private static final String HEADER = "title,author,isbn,publishedYear,genre\n";
+
+    @Mock
+    private BookService bookService;
+
+    @TempDir
+    private Path directory;
+
+    private LibraryProperties libraryProperties;
+
+    @BeforeEach
+    void setUp() {
+        libraryProperties = new LibraryProperties();
+        libraryProperties.getCsvImport().setParallelism(2);
+    }
+
+    @Test
+    void importFile_WhenRowsAreValid_CreatesBooksInBatches() throws IOException {
+        // Arrange
+        libraryProperties.getCsvImport().setBatchSize(2);
+        Path file = write(HEADER
+                + "Dune,Frank Herbert,9780441013593,1965,Science Fiction\n"
+                + "\"The Hobbit, or There and Back Again\",J.R.R. Tolkien,0-261-10221-4,1937,Fantasy\r\n"
+                + "\"Surely You're Joking, Mr. \"\"Feynman\"\"!\",Richard Feynman,9780393316049,1985,Memoir");
+        when(bookService.createBooks(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        BookCsvImporter.ImportResult result = importer().importFile(file, report());
+
+        // Assert
+        assertEquals(3, result.rows());
+        assertEquals(3, result.imported());
+        assertEquals(0, result.rejected());
+        assertFalse(Files.exists(report()));
+        List<Book> books = createdBooks(2);
+        assertEquals("Dune", books.get(0).getTitle());
+        assertEquals("Frank Herbert", books.get(0).getAuthor());
+        assertEquals(1965, books.get(0).getPublishedYear());
+        assertEquals("Surely You're Joking, Mr. \"Feynman\"!", books.get(1).getTitle());
+        assertEquals("Memoir", books.get(1).getGenre());
+        assertEquals("The Hobbit, or There and Back Again", books.get(2).getTitle());
+        assertEquals("Fantasy", books.get(2).getGenre());
+        assertEquals("9780261102217", books.get(2).getIsbn13());
+    }
+
+    @Test
+    void importFile_WhenColumnsAreReorderedOrExtra_ReadsThemByName() throws IOException {
+        // Arrange
+        Path file = write("\uFEFFid,Genre,ISBN,Title,Author,PublishedYear,shelf\n"
+                + "7,Science Fiction,9780441013593,Dune,Frank Herbert,1965,A3\n");
+        when(bookService.createBooks(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        BookCsvImporter.ImportResult result = importer().importFile(file, report());
+
+        // Assert
+        assertEquals(1, result.imported());
+        Book book = createdBooks(1).get(0);
+        assertEquals("Dune", book.getTitle());
+        assertEquals("Frank Herbert", book.getAuthor());
+        assertEquals("Science Fiction", book.getGenre());
+        assertEquals(1965, book.getPublishedYear());
+    }
+
+    @Test
+    void importFile_WhenRowsAreInvalid_ReportsThemWithTheirLineAcrossRanges() throws IOException {
+        // Arrange
+        libraryProperties.getCsvImport().setChunkSize(DataSize.ofBytes(64));
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 20; i++) {
+            csv.append(i % 5 == 4 ? "Bad " + i + ",Author,not-an-isbn,2000,Genre\n"
+                    : "Book " + i + ",Author,9780441013593,2000,Genre\n");
+        }
+        csv.append("\n");
+        csv.append("Year,Author,9780441013593,MMXX,Genre\n");
+        csv.append("\"Unterminated,Author,9780441013593,2000,Genre\n");
+        Path file = write(csv.toString());
+        when(bookService.createBooks(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        BookCsvImporter.ImportResult result = importer().importFile(file, report());
+
+        // Assert
+        assertEquals(22, result.rows());
+        assertEquals(16, result.imported());
+        assertEquals(6, result.rejected());
+        List<String> report = Files.readAllLines(report());
+        assertEquals("line,error,row", report.get(0));
+        assertEquals(List.of(6L, 11L, 16L, 21L, 23L, 24L),
+                report.stream().skip(1).map(line -> Long.parseLong(line.substring(0, line.indexOf(',')))).toList());
+        assertEquals("6,\"ISBN must be a valid ISBN-10 or ISBN-13\",\"Bad 4,Author,not-an-isbn,2000,Genre\"",
+                report.get(1));
+        assertTrue(report.get(5).contains("Published year must be a positive integer"));
+        assertTrue(report.get(6).contains("Unterminated quoted field"));
+    }
+
+    @Test
+    void importFile_WhenManyRowsAreRejected_MergesThemInFileOrderAndDeletesTheTemporaryFiles() throws IOException {
+        // Arrange
+        libraryProperties.getCsvImport().setChunkSize(DataSize.ofBytes(256));
+        libraryProperties.getCsvImport().setParallelism(4);
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 1000; i++) {
+            csv.append("Bad ").append(i).append(",Author,not-an-isbn,2000,Genre\n");
+        }
+        Path file = write(csv.toString());
+        long temporaryFilesBefore = temporaryRejectionFiles();
+
+        // Act
+        BookCsvImporter.ImportResult result = importer().importFile(file, report());
+
+        // Assert
+        assertEquals(1000, result.rejected());
+        List<String> report = Files.readAllLines(report());
+        assertEquals(1001, report.size());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(report.get(i + 1)
+                    .startsWith((i + 2) + ",\"ISBN must be a valid ISBN-10 or ISBN-13\",\"Bad " + i + ","));
+        }
+        assertEquals(temporaryFilesBefore, temporaryRejectionFiles());
+        verify(bookService, never()).createBooks(anyList());
+    }
+
+    @Test
+    void importFile_WhenBatchFails_WritesItsRowsOneByOne() throws IOException {
+        // Arrange
+        Path file = write(HEADER
+                + "Dune,Frank Herbert,9780441013593,1965,Science Fiction\n"
+                + "Dune again,Frank Herbert,9780441013593,1965,Science Fiction\n");
+        when(bookService.createBooks(anyList()))
+                .thenThrow(new DuplicateResourceException("Book", "isbn", "9780441013593"));
+        when(bookService.createBook(argThat(book -> book != null && "Dune".equals(book.getTitle()))))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(bookService.createBook(argThat(book -> book != null && "Dune again".equals(book.getTitle()))))
+                .thenThrow(new DuplicateResourceException("Book", "isbn", "9780441013593"));
+
+        // Act
+        BookCsvImporter.ImportResult result = importer().importFile(file, report());
+
+        // Assert
+        assertEquals(1, result.imported());
+        assertEquals(1, result.rejected());
+        List<String> report = Files.readAllLines(report());
+        assertTrue(report.get(1).startsWith("3,"));
+        assertTrue(report.get(1).endsWith(",\"\"\"Dune again\"\",\"\"Frank Herbert\"\",\"\"9780441013593\"\",1965,"
+                + "\"\"Science Fiction\"\"\""));
+    }
+
+    @Test
+    void importFile_WhenHeaderLacksColumns_ThrowsInvalidInputException() throws IOException {
+        // Arrange
+        Path file = write("title,author\nDune,Frank Herbert\n");
+
+        // Act & Assert
+        InvalidInputException exception = assertThrows(InvalidInputException.class,
+                () -> importer().importFile(file, report()));
+        assertEquals("CSV header is missing columns: isbn, publishedYear, genre", exception.getMessage());
+        verify(bookService, never()).createBooks(anyList());
+        verify(bookService, never()).createBook(any(Book.class));
+    }
+
+    private static long temporaryRejectionFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(path -> path.getFileName().toString().startsWith("book-import-")).count();
+        }
+    }
+
+    private BookCsvImporter importer() {
+        return new BookCsvImporter(bookService, libraryProperties);
+    }
+
+    private Path write(String csv) throws IOException {
+        return Files.writeString(directory.resolve("books.csv"), csv, StandardCharsets.UTF_8);
+    }
+
+    private Path report() {
+        return directory.resolve("books.csv.rejected.csv");
+    }
+
+    /** Books passed to createBooks, in file order whatever the order the ranges were written in. */
+    @SuppressWarnings("unchecked")
+    private List<Book> createdBooks(int calls) {
+        ArgumentCaptor<List<Book>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bookService, times(calls)).createBooks(captor.capture());
+        List<Book> books = new ArrayList<>();
+        captor.getAllValues().forEach(books::addAll);
+        books.sort(Comparator.comparing(Book::getTitle, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return books;
+    }
+}
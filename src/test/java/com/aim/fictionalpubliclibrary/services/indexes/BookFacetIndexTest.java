@@ -0,0 +1,171 @@
+package com.aim.fictionalpubliclibrary.services.indexes;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.models.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookFacetIndexTest {
+
+    private BookFacetIndex bookFacetIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookFacetIndex = new BookFacetIndex(new LibraryProperties());
+        bookFacetIndex.put(book(1L, "J.R.R. Tolkien", "Fantasy", 1937));
+        bookFacetIndex.put(book(2L, "J.R.R. Tolkien", "Fantasy", 1954));
+        bookFacetIndex.put(book(3L, "Frank Herbert", "Science Fiction", 1965));
+    }
+
+    @Test
+    void facets_WhenBooksAreIndexed_CountsBooksPerBucket() {
+        // Act
+        BookFacetIndex.Facets facets = bookFacetIndex.facets();
+
+        // Assert
+        assertEquals(Map.of("Fantasy", 2L, "Science Fiction", 1L), facets.genres());
+        assertEquals(Map.of("J.R.R. Tolkien", 2L, "Frank Herbert", 1L), facets.authors());
+        assertEquals(Map.of(1930, 1L, 1950, 1L, 1960, 1L), facets.decades());
+    }
+
+    @Test
+    void put_WhenBookIsReindexed_MovesItBetweenBuckets() {
+        // Act
+        bookFacetIndex.put(book(2L, "Christopher Tolkien", "History", 1954));
+
+        // Assert
+        BookFacetIndex.Facets facets = bookFacetIndex.facets();
+        assertEquals(3, bookFacetIndex.size());
+        assertEquals(Map.of("Fantasy", 1L, "History", 1L, "Science Fiction", 1L), facets.genres());
+        assertEquals(Map.of("J.R.R. Tolkien", 1L, "Christopher Tolkien", 1L, "Frank Herbert", 1L), facets.authors());
+        assertEquals(Map.of(1930, 1L, 1950, 1L, 1960, 1L), facets.decades());
+    }
+
+    @Test
+    void patch_WhenOnlyYearChanges_MovesBookToNewDecadeOnly() {
+        // Arrange
+        Book changes = new Book();
+        changes.setPublishedYear(1969);
+
+        // Act
+        bookFacetIndex.patch(1L, changes);
+        bookFacetIndex.patch(42L, changes);
+
+        // Assert
+        BookFacetIndex.Facets facets = bookFacetIndex.facets();
+        assertEquals(Map.of("Fantasy", 2L, "Science Fiction", 1L), facets.genres());
+        assertEquals(Map.of(1950, 1L, 1960, 2L), facets.decades());
+    }
+
+    @Test
+    void put_WhenOlderVersionArrivesAfterNewer_KeepsNewerBuckets() {
+        // Arrange
+        Book v2 = book(3L, "Frank Herbert", "Horror", 1976);
+        v2.setVersion(2L);
+        Book v3 = book(3L, "Frank Herbert", "Poetry", 1985);
+        v3.setVersion(3L);
+
+        // Act: committed as v2 then v3, but notified v3 first
+        bookFacetIndex.put(v3);
+        bookFacetIndex.put(v2);
+
+        // Assert
+        BookFacetIndex.Facets facets = bookFacetIndex.facets();
+        assertEquals(Map.of("Fantasy", 2L, "Poetry", 1L), facets.genres());
+        assertEquals(Map.of(1930, 1L, 1950, 1L, 1980, 1L), facets.decades());
+    }
+
+    @Test
+    void patch_WhenOlderVersionArrivesAfterNewer_IsIgnored() {
+        // Arrange
+        Book v3 = new Book();
+        v3.setGenre("Poetry");
+        v3.setVersion(3L);
+        Book v2 = new Book();
+        v2.setGenre("Horror");
+        v2.setPublishedYear(1976);
+        v2.setVersion(2L);
+
+        // Act
+        bookFacetIndex.patch(3L, v3);
+        bookFacetIndex.patch(3L, v2);
+
+        // Assert
+        BookFacetIndex.Facets facets = bookFacetIndex.facets();
+        assertEquals(Map.of("Fantasy", 2L, "Poetry", 1L), facets.genres());
+        assertEquals(Map.of(1930, 1L, 1950, 1L, 1960, 1L), facets.decades());
+    }
+
+    @Test
+    void put_WhenBookWasRemoved_DoesNotCountItAgain() {
+        // Arrange
+        Book update = book(3L, "Frank Herbert", "Horror", 1976);
+        update.setVersion(1L);
+
+        // Act
+        bookFacetIndex.remove(3L);
+        bookFacetIndex.put(update);
+
+        // Assert
+        assertEquals(2, bookFacetIndex.size());
+        assertEquals(Map.of("Fantasy", 2L), bookFacetIndex.facets().genres());
+    }
+
+    @Test
+    void remove_WhenBookIsIndexed_DecrementsAndDropsEmptyBuckets() {
+        // Act
+        bookFacetIndex.remove(3L);
+        bookFacetIndex.remove(3L);
+
+        // Assert
+        BookFacetIndex.Facets facets = bookFacetIndex.facets();
+        assertEquals(2, bookFacetIndex.size());
+        assertEquals(Map.of("Fantasy", 2L), facets.genres());
+        assertEquals(Map.of("J.R.R. Tolkien", 2L), facets.authors());
+        assertEquals(Map.of(1930, 1L, 1950, 1L), facets.decades());
+    }
+
+    @Test
+    void put_WhenBookHasNoGenreOrYear_LeavesThoseFacetsOut() {
+        // Act
+        bookFacetIndex.put(book(4L, "Anonymous", null, 0));
+
+        // Assert
+        BookFacetIndex.Facets facets = bookFacetIndex.facets();
+        assertEquals(3L, facets.genres().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(1L, facets.authors().get("Anonymous"));
+        assertEquals(3L, facets.decades().values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void remove_WhenTombstoneRetentionHasPassed_ForgetsTheRemovedBooks() {
+        // Arrange
+        LibraryProperties libraryProperties = new LibraryProperties();
+        libraryProperties.getIndexes().setTombstoneRetention(Duration.ZERO);
+        BookFacetIndex index = new BookFacetIndex(libraryProperties);
+
+        // Act
+        for (long id = 0; id < 10_000; id++) {
+            index.put(book(id, "Author", "Genre", 2000));
+            index.remove(id);
+        }
+
+        // Assert
+        assertEquals(0, index.size());
+        assertEquals(0, index.removedBooks());
+    }
+
+    private static Book book(long id, String author, String genre, int publishedYear) {
+        Book book = new Book();
+        book.setId(id);
+        book.setAuthor(author);
+        book.setGenre(genre);
+        book.setPublishedYear(publishedYear);
+        return book;
+    }
+}
@@ -0,0 +1,183 @@
+package com.aim.fictionalpubliclibrary.services.indexes;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.models.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex bookSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookSearchIndex = new BookSearchIndex(new LibraryProperties());
+        bookSearchIndex.put(book(1L, "The Hobbit", "J.R.R. Tolkien"));
+        bookSearchIndex.put(book(2L, "The Lord of the Rings", "J.R.R. Tolkien"));
+        bookSearchIndex.put(book(3L, "Tolkien: A Biography", "Humphrey Carpenter"));
+        bookSearchIndex.put(book(4L, "Dune", "Frank Herbert"));
+    }
+
+    @Test
+    void tokenize_WhenTextHasPunctuationAndCase_ReturnsDistinctLowerCaseWords() {
+        assertArrayEquals(new String[]{"the", "lord", "of", "rings"},
+                BookSearchIndex.tokenize("The Lord of the RINGS!"));
+        assertArrayEquals(new String[0], BookSearchIndex.tokenize("  -- "));
+        assertArrayEquals(new String[0], BookSearchIndex.tokenize(null));
+    }
+
+    @Test
+    void search_WhenWordIsInTitleAndAuthor_RanksTitleMatchesFirst() {
+        // Act
+        BookSearchIndex.SearchHits hits = bookSearchIndex.search("TOLKIEN", 0, 10);
+
+        // Assert
+        assertEquals(3, hits.totalHits());
+        assertArrayEquals(new long[]{3L, 1L, 2L}, hits.ids());
+    }
+
+    @Test
+    void search_WhenQueryHasSeveralWords_MatchesBooksContainingAllOfThem() {
+        // Act
+        BookSearchIndex.SearchHits hits = bookSearchIndex.search("tolkien rings", 0, 10);
+
+        // Assert
+        assertEquals(1, hits.totalHits());
+        assertArrayEquals(new long[]{2L}, hits.ids());
+        assertEquals(0, bookSearchIndex.search("tolkien dune", 0, 10).totalHits());
+        assertEquals(0, bookSearchIndex.search("unknown", 0, 10).totalHits());
+    }
+
+    @Test
+    void search_WhenPaged_ReturnsRequestedSliceOfRanking() {
+        // Act
+        BookSearchIndex.SearchHits hits = bookSearchIndex.search("tolkien", 1, 1);
+
+        // Assert
+        assertEquals(3, hits.totalHits());
+        assertArrayEquals(new long[]{1L}, hits.ids());
+        assertArrayEquals(new long[0], bookSearchIndex.search("tolkien", 3, 1).ids());
+    }
+
+    @Test
+    void put_WhenBookIsReindexed_ReplacesOldWords() {
+        // Act
+        bookSearchIndex.put(book(4L, "Children of Dune", "Frank Herbert"));
+        bookSearchIndex.put(book(1L, "There and Back Again", "J.R.R. Tolkien"));
+
+        // Assert
+        assertEquals(4, bookSearchIndex.size());
+        assertEquals(0, bookSearchIndex.search("hobbit", 0, 10).totalHits());
+        assertArrayEquals(new long[]{1L}, bookSearchIndex.search("back again", 0, 10).ids());
+        assertArrayEquals(new long[]{4L}, bookSearchIndex.search("children dune", 0, 10).ids());
+    }
+
+    @Test
+    void patch_WhenOnlyTitleChanges_KeepsAuthorWords() {
+        // Arrange
+        Book changes = new Book();
+        changes.setTitle("There and Back Again");
+
+        // Act
+        bookSearchIndex.patch(1L, changes);
+        bookSearchIndex.patch(42L, changes);
+
+        // Assert
+        assertEquals(4, bookSearchIndex.size());
+        assertEquals(0, bookSearchIndex.search("hobbit", 0, 10).totalHits());
+        assertArrayEquals(new long[]{1L}, bookSearchIndex.search("back tolkien", 0, 10).ids());
+    }
+
+    @Test
+    void remove_WhenBookIsIndexed_RemovesItFromResults() {
+        // Act
+        bookSearchIndex.remove(3L);
+        bookSearchIndex.remove(42L);
+
+        // Assert
+        assertEquals(3, bookSearchIndex.size());
+        assertArrayEquals(new long[]{1L, 2L}, bookSearchIndex.search("tolkien", 0, 10).ids());
+        assertEquals(0, bookSearchIndex.search("biography", 0, 10).totalHits());
+    }
+
+    @Test
+    void put_WhenOlderVersionArrivesAfterNewer_KeepsNewerWords() {
+        // Arrange
+        Book v2 = book(4L, "Dune Messiah", "Frank Herbert");
+        v2.setVersion(2L);
+        Book v3 = book(4L, "Children of Dune", "Frank Herbert");
+        v3.setVersion(3L);
+
+        // Act: committed as v2 then v3, but notified v3 first
+        bookSearchIndex.put(v3);
+        bookSearchIndex.put(v2);
+
+        // Assert
+        assertEquals(0, bookSearchIndex.search("messiah", 0, 10).totalHits());
+        assertArrayEquals(new long[]{4L}, bookSearchIndex.search("children", 0, 10).ids());
+    }
+
+    @Test
+    void patch_WhenOlderVersionArrivesAfterNewer_IsIgnored() {
+        // Arrange
+        Book v3 = new Book();
+        v3.setGenre("Science Fiction");
+        v3.setVersion(3L);
+        Book v2 = new Book();
+        v2.setTitle("Dune Messiah");
+        v2.setVersion(2L);
+
+        // Act: a patch that changes no indexed word still moves the book to its version
+        bookSearchIndex.patch(4L, v3);
+        bookSearchIndex.patch(4L, v2);
+
+        // Assert
+        assertEquals(0, bookSearchIndex.search("messiah", 0, 10).totalHits());
+        assertArrayEquals(new long[]{4L}, bookSearchIndex.search("dune", 0, 10).ids());
+    }
+
+    @Test
+    void put_WhenBookWasRemoved_DoesNotIndexItAgain() {
+        // Arrange
+        Book update = book(3L, "Tolkien: A Biography", "Humphrey Carpenter");
+        update.setVersion(1L);
+
+        // Act
+        bookSearchIndex.remove(3L);
+        bookSearchIndex.put(update);
+
+        // Assert
+        assertEquals(3, bookSearchIndex.size());
+        assertEquals(0, bookSearchIndex.search("biography", 0, 10).totalHits());
+    }
+
+    @Test
+    void remove_WhenTombstoneRetentionHasPassed_ForgetsTheRemovedBooks() {
+        // Arrange
+        LibraryProperties libraryProperties = new LibraryProperties();
+        libraryProperties.getIndexes().setTombstoneRetention(Duration.ZERO);
+        BookSearchIndex index = new BookSearchIndex(libraryProperties);
+
+        // Act
+        for (long id = 0; id < 10_000; id++) {
+            index.put(book(id, "Title", "Author"));
+            index.remove(id);
+        }
+
+        // Assert
+        assertEquals(0, index.size());
+        assertEquals(0, index.removedBooks());
+    }
+
+    private static Book book(long id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+}
@@ -0,0 +1,41 @@
+package com.aim.fictionalpubliclibrary.services.indexes;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookTombstonesTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final BookTombstones bookTombstones = new BookTombstones(Duration.ofMinutes(1), nanos::get);
+
+    @Test
+    void contains_WithinRetention_RemembersTheId() {
+        // Act
+        bookTombstones.add(1L);
+        nanos.addAndGet(Duration.ofSeconds(59).toNanos());
+
+        // Assert
+        assertTrue(bookTombstones.contains(1L));
+        assertFalse(bookTombstones.contains(2L));
+    }
+
+    @Test
+    void size_AfterRetention_DropsEveryId() {
+        // Arrange
+        for (long id = 0; id < 10_000; id++) {
+            bookTombstones.add(id);
+        }
+        assertEquals(10_000, bookTombstones.size());
+
+        // Act
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        // Assert
+        assertFalse(bookTombstones.contains(1L));
+        assertEquals(0, bookTombstones.size());
+    }
+}
@@ -0,0 +1,88 @@
+package com.aim.fictionalpubliclibrary.services.indexes;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.models.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookVersionIndexTest {
+
+    private BookVersionIndex bookVersionIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookVersionIndex = new BookVersionIndex(new LibraryProperties());
+        bookVersionIndex.put(book(1L, 3L));
+    }
+
+    @Test
+    void patch_WhenBookIsIndexed_UpdatesVersionAndCatalogVersion() {
+        // Arrange
+        String catalogVersion = bookVersionIndex.catalogVersion();
+        Book changes = new Book();
+        changes.setTitle("New title");
+        changes.setVersion(4L);
+
+        // Act
+        bookVersionIndex.patch(1L, changes);
+        bookVersionIndex.patch(2L, changes);
+
+        // Assert
+        assertEquals(4L, bookVersionIndex.version(1L));
+        assertNull(bookVersionIndex.version(2L));
+        assertNotEquals(catalogVersion, bookVersionIndex.catalogVersion());
+    }
+
+    @Test
+    void put_WhenChangesArriveOutOfOrder_KeepsTheHighestVersion() {
+        // Arrange
+        Book changes = new Book();
+        changes.setVersion(5L);
+        bookVersionIndex.patch(1L, changes);
+
+        // Act
+        bookVersionIndex.put(book(1L, 4L));
+
+        // Assert
+        assertEquals(5L, bookVersionIndex.version(1L));
+    }
+
+    @Test
+    void remove_WhenBookIsIndexed_ForgetsItAndChangesCatalogVersion() {
+        // Arrange
+        String catalogVersion = bookVersionIndex.catalogVersion();
+
+        // Act
+        bookVersionIndex.remove(1L);
+
+        // Assert
+        assertNull(bookVersionIndex.version(1L));
+        assertNotEquals(catalogVersion, bookVersionIndex.catalogVersion());
+    }
+
+    @Test
+    void put_WhenBookWasRemoved_DoesNotBringItsVersionBack() {
+        // Act: updated to v4 and then deleted, but the update is applied after the delete
+        bookVersionIndex.remove(1L);
+        bookVersionIndex.put(book(1L, 4L));
+
+        // Assert
+        assertNull(bookVersionIndex.version(1L));
+    }
+
+    @Test
+    void catalogVersion_WhenNothingChanges_StaysTheSame() {
+        // Act & Assert
+        assertEquals(bookVersionIndex.catalogVersion(), bookVersionIndex.catalogVersion());
+        assertNull(bookVersionIndex.version(2L));
+    }
+
+    private static Book book(long id, long version) {
+        Book book = new Book();
+        book.setId(id);
+        book.setVersion(version);
+        return book;
+    }
+}
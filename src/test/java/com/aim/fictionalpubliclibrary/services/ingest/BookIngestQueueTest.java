@@ -0,0 +1,167 @@
+package com.aim.fictionalpubliclibrary.services.ingest;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.dtos.BookRequestDTO;
+import com.aim.fictionalpubliclibrary.exceptions.InvalidInputException;
+import com.aim.fictionalpubliclibrary.exceptions.ResourceNotFoundException;
+import com.aim.fictionalpubliclibrary.exceptions.TooManyRequestsException;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookIngestQueueTest {
+
+    @Mock
+    private BookService bookService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LibraryProperties libraryProperties;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        libraryProperties = new LibraryProperties();
+        libraryProperties.getIngest().setQueueCapacity(3);
+    }
+
+    @Test
+    void writeNextBatch_WhenBooksAreQueued_CreatesThemInOneCall() throws InterruptedException {
+        // Arrange
+        BookIngestQueue queue = new BookIngestQueue(bookService, libraryProperties, meterRegistry);
+        BookIngestQueue.Ticket first = queue.submit(request("First"));
+        BookIngestQueue.Ticket second = queue.submit(request("Second"));
+        when(bookService.createBooks(anyList())).thenReturn(List.of(book(10L), book(11L)));
+
+        // Act
+        int written = queue.writeNextBatch(0, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertEquals(2, written);
+        verify(bookService, times(1)).createBooks(argThat(books -> books.size() == 2));
+        verify(bookService, never()).createBook(any(Book.class));
+        assertEquals(new BookIngestQueue.Ticket(first.id(), BookIngestQueue.Status.CREATED, 10L, null),
+                queue.getTicket(first.id()));
+        assertEquals(11L, queue.getTicket(second.id()).bookId());
+        assertEquals(0.0, meterRegistry.get(BookIngestQueue.QUEUE_GAUGE).gauge().value());
+        assertEquals(2.0, meterRegistry.get(BookIngestQueue.BATCH_SUMMARY).summary().totalAmount());
+    }
+
+    @Test
+    void writeNextBatch_WhenGroupFails_WritesBooksOneByOneAndFailsOnlyTheBadOnes() throws InterruptedException {
+        // Arrange
+        BookIngestQueue queue = new BookIngestQueue(bookService, libraryProperties, meterRegistry);
+        BookIngestQueue.Ticket good = queue.submit(request("Good"));
+        BookIngestQueue.Ticket duplicate = queue.submit(request("Duplicate"));
+        when(bookService.createBooks(anyList())).thenThrow(new InvalidInputException("Duplicate ISBN"));
+        when(bookService.createBook(argThat(book -> book != null && "Good".equals(book.getTitle()))))
+                .thenReturn(book(10L));
+        when(bookService.createBook(argThat(book -> book != null && "Duplicate".equals(book.getTitle()))))
+                .thenThrow(new InvalidInputException("Duplicate ISBN"));
+
+        // Act
+        queue.writeNextBatch(0, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertEquals(BookIngestQueue.Status.CREATED, queue.getTicket(good.id()).status());
+        assertEquals(10L, queue.getTicket(good.id()).bookId());
+        assertEquals(new BookIngestQueue.Ticket(duplicate.id(), BookIngestQueue.Status.FAILED, null, "Duplicate ISBN"),
+                queue.getTicket(duplicate.id()));
+    }
+
+    @Test
+    void writeNextBatch_WhenMoreBooksThanMaxBatchSize_SplitsThemIntoGroups() throws InterruptedException {
+        // Arrange
+        libraryProperties.getIngest().setMaxBatchSize(2);
+        BookIngestQueue queue = new BookIngestQueue(bookService, libraryProperties, meterRegistry);
+        queue.submit(request("First"));
+        queue.submit(request("Second"));
+        queue.submit(request("Third"));
+        when(bookService.createBooks(anyList()))
+                .thenReturn(List.of(book(10L), book(11L)))
+                .thenReturn(List.of(book(12L)));
+
+        // Act
+        int firstGroup = queue.writeNextBatch(0, TimeUnit.MILLISECONDS);
+        int secondGroup = queue.writeNextBatch(0, TimeUnit.MILLISECONDS);
+        int nothingLeft = queue.writeNextBatch(0, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertEquals(2, firstGroup);
+        assertEquals(1, secondGroup);
+        assertEquals(0, nothingLeft);
+        verify(bookService, times(2)).createBooks(anyList());
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ThrowsTooManyRequestsException() {
+        // Arrange
+        BookIngestQueue queue = new BookIngestQueue(bookService, libraryProperties, meterRegistry);
+        for (int i = 0; i < 3; i++) {
+            queue.submit(request("Book " + i));
+        }
+
+        // Act & Assert
+        TooManyRequestsException exception =
+                assertThrows(TooManyRequestsException.class, () -> queue.submit(request("One too many")));
+        assertTrue(exception.getRetryAfter().toSeconds() >= 1);
+        assertEquals(3.0, meterRegistry.get(BookIngestQueue.QUEUE_GAUGE).gauge().value());
+    }
+
+    @Test
+    void getTicket_WhenTicketIsUnknown_ThrowsResourceNotFoundException() {
+        // Arrange
+        BookIngestQueue queue = new BookIngestQueue(bookService, libraryProperties, meterRegistry);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> queue.getTicket("unknown"));
+    }
+
+    @Test
+    void stop_WhenBooksAreQueued_WritesThemBeforeReturning() {
+        // Arrange
+        BookIngestQueue queue = new BookIngestQueue(bookService, libraryProperties, meterRegistry);
+        when(bookService.createBooks(anyList())).thenAnswer(invocation -> invocation.<List<Book>>getArgument(0)
+                .stream().map(book -> book(99L)).toList());
+        queue.start();
+        BookIngestQueue.Ticket ticket = queue.submit(request("Queued before shutdown"));
+
+        // Act
+        queue.stop();
+
+        // Assert
+        assertFalse(queue.isRunning());
+        assertEquals(BookIngestQueue.Status.CREATED, queue.getTicket(ticket.id()).status());
+        assertThrows(TooManyRequestsException.class, () -> queue.submit(request("Too late")));
+    }
+
+    private static BookRequestDTO request(String title) {
+        return BookRequestDTO.builder()
+                .title(title)
+                .author("Frank Herbert")
+                .isbn("9780441013593")
+                .publishedYear(1965)
+                .genre("Science Fiction")
+                .build();
+    }
+
+    private static Book book(long id) {
+        Book book = new Book();
+        book.setId(id);
+        return book;
+    }
+}
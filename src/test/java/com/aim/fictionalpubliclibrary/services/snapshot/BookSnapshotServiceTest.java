@@ -0,0 +1,184 @@
+package com.aim.fictionalpubliclibrary.services.snapshot;
+
+import com.aim.fictionalpubliclibrary.config.LibraryProperties;
+import com.aim.fictionalpubliclibrary.dtos.BookResponseDTO;
+import com.aim.fictionalpubliclibrary.models.Book;
+import com.aim.fictionalpubliclibrary.services.BookService;
+import com.aim.fictionalpubliclibrary.services.indexes.BookIndex;
+import com.aim.fictionalpubliclibrary.services.indexes.BookIndexMaintainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookSnapshotServiceTest {
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private BookIndex bookIndex;
+
+    @TempDir
+    private Path directory;
+
+    private LibraryProperties libraryProperties;
+    private Path file;
+
+    @BeforeEach
+    void setUp() {
+        file = directory.resolve("snapshots").resolve("books.snapshot");
+        libraryProperties = new LibraryProperties();
+        libraryProperties.getSnapshot().setFile(file.toString());
+        libraryProperties.getSnapshot().setBatchSize(2);
+    }
+
+    @Test
+    void restore_WhenSnapshotWasSaved_RestoresEveryFieldInBatchesAndIndexesTheBooks() throws IOException {
+        // Arrange
+        Book dune = book(7L, "Dune", "9780441013593");
+        dune.setVersion(4L);
+        dune.setCreatedAt(new Date(1_000L));
+        dune.setLastModifiedAt(new Date(2_000L));
+        Book nulls = new Book();
+        nulls.setId(9L);
+        Book unicode = book(12L, "Ærø – 東京", "0-261-10221-4");
+        exportBooks(List.of(dune, nulls, unicode));
+        List<Book> restored = new ArrayList<>();
+        List<Integer> batchSizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Book> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            restored.addAll(batch);
+            return null;
+        }).when(bookService).restoreBooks(anyList());
+
+        // Act
+        BookSnapshotService.SnapshotResult saved = service().save();
+        BookSnapshotService.SnapshotResult result = service().restore();
+
+        // Assert
+        assertEquals(3, saved.books());
+        assertEquals(Files.size(file), saved.bytes());
+        assertFalse(Files.exists(file.resolveSibling("books.snapshot.tmp")));
+        assertEquals(3, result.books());
+        assertEquals(List.of(2, 1), batchSizes);
+        assertEquals(List.of(7L, 9L, 12L), restored.stream().map(Book::getId).toList());
+        Book restoredDune = restored.get(0);
+        assertEquals("Dune", restoredDune.getTitle());
+        assertEquals("Author", restoredDune.getAuthor());
+        assertEquals("9780441013593", restoredDune.getIsbn13());
+        assertEquals(1965, restoredDune.getPublishedYear());
+        assertEquals(4L, restoredDune.getVersion());
+        assertEquals(1_000L, restoredDune.getCreatedAt().getTime());
+        assertEquals(2_000L, restoredDune.getLastModifiedAt().getTime());
+        assertNull(restored.get(1).getTitle());
+        assertNull(restored.get(1).getCreatedAt());
+        assertEquals("Ærø – 東京", restored.get(2).getTitle());
+        assertEquals("9780261102217", restored.get(2).getIsbn13());
+        verify(bookIndex, times(3)).put(any(Book.class));
+        // Only the save read the database, the indexes were built from the snapshot
+        verify(bookService, times(1)).exportBooks(any());
+    }
+
+    @Test
+    void restore_WhenSnapshotIsCorrupt_ThrowsIOExceptionBeforeRestoringAnyBook() throws IOException {
+        // Arrange
+        exportBooks(List.of(book(1L, "Dune", "9780441013593"), book(2L, "Emma", "0306406152")));
+        service().save();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        // Act & Assert
+        IOException exception = assertThrows(IOException.class, () -> service().restore());
+        assertTrue(exception.getMessage().contains("checksum"));
+        verify(bookService, never()).restoreBooks(anyList());
+        verify(bookIndex, never()).put(any(Book.class));
+    }
+
+    @Test
+    void save_WhenExportFails_KeepsThePreviousSnapshot() throws IOException {
+        // Arrange
+        exportBooks(List.of(book(1L, "Dune", "9780441013593")));
+        service().save();
+        byte[] previous = Files.readAllBytes(file);
+        doThrow(new IllegalStateException("Database is down")).when(bookService).exportBooks(any());
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> service().save());
+        assertArrayEquals(previous, Files.readAllBytes(file));
+        assertFalse(Files.exists(file.resolveSibling("books.snapshot.tmp")));
+    }
+
+    @Test
+    void start_WhenDatabaseAlreadyHasBooks_DoesNotRestore() throws IOException {
+        // Arrange
+        exportBooks(List.of(book(1L, "Dune", "9780441013593")));
+        service().save();
+        when(bookService.getBookResponsesAfter(anyLong(), anyInt()))
+                .thenReturn(List.of(BookResponseDTO.builder().id(1L).build()));
+
+        // Act
+        service().start();
+
+        // Assert
+        verify(bookService, never()).restoreBooks(anyList());
+    }
+
+    @Test
+    void start_WhenSnapshotIsCorrupt_StopsTheStartup() throws IOException {
+        // Arrange
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "not a snapshot, but long enough to be one");
+        when(bookService.getBookResponsesAfter(anyLong(), anyInt())).thenReturn(List.of());
+
+        // Act & Assert
+        assertThrows(UncheckedIOException.class, () -> service().start());
+        verify(bookService, never()).restoreBooks(anyList());
+    }
+
+    private BookSnapshotService service() {
+        return new BookSnapshotService(bookService, new BookIndexMaintainer(bookService, List.of(bookIndex)),
+                libraryProperties);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void exportBooks(List<Book> books) {
+        doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            books.forEach(consumer);
+            return null;
+        }).when(bookService).exportBooks(any());
+    }
+
+    private static Book book(long id, String title, String isbn) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setIsbn(isbn);
+        book.setPublishedYear(1965);
+        book.setGenre("Fiction");
+        return book;
+    }
+}
@@ -0,0 +1,31 @@
+package com.aim.fictionalpubliclibrary.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsbnUtilsTest {
+
+    @Test
+    void toIsbn13_WhenIsbn10IsValid_ReturnsCanonicalIsbn13() {
+        assertEquals("9780306406157", IsbnUtils.toIsbn13("0306406152"));
+        assertEquals("9780306406157", IsbnUtils.toIsbn13("0-306-40615-2"));
+        assertEquals("9780804429573", IsbnUtils.toIsbn13("080442957X"));
+    }
+
+    @Test
+    void toIsbn13_WhenIsbn13IsValid_ReturnsDigitsOnly() {
+        assertEquals("9780306406157", IsbnUtils.toIsbn13("978-0-306-40615-7"));
+        assertEquals("9791090636071", IsbnUtils.toIsbn13("979 10 90636 07 1"));
+    }
+
+    @Test
+    void toIsbn13_WhenIsbnIsInvalid_ReturnsNull() {
+        assertNull(IsbnUtils.toIsbn13(null));
+        assertNull(IsbnUtils.toIsbn13(""));
+        assertNull(IsbnUtils.toIsbn13("1234567890"));
+        assertNull(IsbnUtils.toIsbn13("9780306406158"));
+        assertNull(IsbnUtils.toIsbn13("03064X6152"));
+        assertNull(IsbnUtils.toIsbn13("978030640615"));
+    }
+}